@@ -1,24 +1,29 @@
 package com.instaclustr.cassandra.k8s;
 
-import static java.nio.file.StandardOpenOption.CREATE;
-import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
-
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -29,7 +34,9 @@ import com.google.common.base.Suppliers;
 import org.apache.cassandra.config.Config;
 import org.apache.cassandra.config.ConfigurationLoader;
 import org.apache.cassandra.config.TransparentDataEncryptionOptions;
+import org.apache.cassandra.config.YamlConfigurationLoader;
 import org.apache.cassandra.exceptions.ConfigurationException;
+import org.apache.cassandra.io.util.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yaml.snakeyaml.DumperOptions;
@@ -41,6 +48,9 @@ import org.yaml.snakeyaml.error.YAMLException;
  * contained within any specified directories. The contents of these configuration files will be concatenated
  * together and then read as if they were a single file. Files are concatenated in the order specified, and files
  * in any specified directories will be concatenated in lexicographical order.
+ *
+ * Alternatively, with -Dcassandra.k8s.config.merge_fragments=true, every file is parsed on its own and the results
+ * are deep-merged in the same order.
  */
 public class ConcatenatedYamlConfigurationLoader implements ConfigurationLoader {
 
@@ -48,6 +58,79 @@ public class ConcatenatedYamlConfigurationLoader implements ConfigurationLoader
 
     private static final PathMatcher YAML_PATH_MATCHER = FileSystems.getDefault().getPathMatcher("glob:**/*.{yaml,yml}");
 
+    /**
+     * When true, files are not concatenated but parsed one by one and merged, see {@link ConfigSupplier#loadFragments(List)}.
+     */
+    private static final boolean MERGE_FRAGMENTS = Boolean.getBoolean("cassandra.k8s.config.merge_fragments");
+
+    /**
+     * How configuration files are read, "stream" (default) or "mapped", see {@link ConcatenatedReader.Mode}.
+     */
+    private static final ConcatenatedReader.Mode READER_MODE = ConcatenatedReader.Mode.parse(System.getProperty("cassandra.k8s.config.reader"));
+
+    /**
+     * When true (default), loaded configuration is snapshotted and loaded from the snapshot on the next start
+     * unless configuration files have changed, see {@link ConfigSnapshot}.
+     */
+    private static final boolean SNAPSHOT_ENABLED = Boolean.parseBoolean(System.getProperty("cassandra.k8s.config.snapshot", "true"));
+
+    /**
+     * When true, configuration files are watched and settings Cassandra can change at runtime are applied
+     * as soon as they change, see {@link RuntimeConfigReloader}. Off by default.
+     */
+    private static final boolean HOT_RELOAD_ENABLED = Boolean.getBoolean("cassandra.k8s.config.hot_reload");
+
+    /**
+     * When true, performance settings not set in any configuration file are derived from CPUs and memory of
+     * the container, see {@link ConfigAutoTuner}. Off by default.
+     */
+    private static final boolean AUTO_TUNE_ENABLED = Boolean.getBoolean("cassandra.k8s.config.auto_tune");
+
+    /**
+     * When "detect" or "probe", directories are spread over volumes mounted under /var/lib/cassandra unless they are
+     * set in a configuration file, see {@link StorageLayout}. "off" by default.
+     */
+    private static final StorageLayout.Mode STORAGE_LAYOUT_MODE = StorageLayout.Mode.parse(System.getProperty("cassandra.k8s.storage.layout"));
+
+    /**
+     * Configuration files with defaults of the image, separated by ':', settings in them do not count as explicitly set
+     * for auto-tuning and storage layout.
+     */
+    private static final String DEFAULTS_FILES = System.getProperty("cassandra.k8s.config.defaults");
+
+    /**
+     * Port of the HTTP server answering liveness and readiness probes, see {@link HealthServer}. Not started when unset,
+     * startup fails when it can not be started as the probes would never pass.
+     */
+    private static final Integer HEALTH_PORT = Integer.getInteger("cassandra.k8s.health.port");
+
+    /**
+     * Port on the loopback of the HTTP server running operations like drain or cleanup in process, see
+     * {@link CommandServer}. Not started when unset.
+     */
+    private static final Integer COMMAND_PORT = Integer.getInteger("cassandra.k8s.command.port");
+
+    /**
+     * Prewarms page cache with SSTables which were resident before restart, see {@link PageCachePrewarmer}. Budgets
+     * are set by "cassandra.k8s.prewarm.max_mb" and "cassandra.k8s.prewarm.timeout_ms", residency is recorded every
+     * "cassandra.k8s.prewarm.record_interval_ms".
+     */
+    private static final boolean PREWARM_ENABLED = Boolean.getBoolean("cassandra.k8s.prewarm");
+
+    /**
+     * Starts resolution of seeds as soon as configuration is loaded when seeds are provided by our {@link SeedProvider},
+     * so it overlaps with the rest of the startup instead of following it, see
+     * {@link MultiServiceSeedsResolver#prefetch(Map)}.
+     */
+    private static final boolean SEEDS_PREFETCH_ENABLED = Boolean.getBoolean("cassandra.k8s.seeds.prefetch");
+
+    /**
+     * Settings holding passwords, they are not snapshotted but parsed from configuration files every time.
+     */
+    private static final List<String> SNAPSHOT_EXCLUDED_KEYS = Arrays.asList("client_encryption_options", "server_encryption_options", "transparent_data_encryption_options");
+
+    private static final ConfigSnapshot<Config> CONFIG_SNAPSHOT = new ConfigSnapshot<>(Paths.get("/var/lib/cassandra/cassandra-config.snapshot"), Config.class, Config::new, SNAPSHOT_EXCLUDED_KEYS);
+
     static final class ConfigSupplier implements Supplier<Config> {
 
         @Override
@@ -55,10 +138,257 @@ public class ConcatenatedYamlConfigurationLoader implements ConfigurationLoader
             final String configProperty = System.getProperty("cassandra.config");
             logger.info("Loading config from {}", configProperty);
 
-            final Iterable<String> configValues = Splitter.on(':').split(configProperty);
+            final List<Path> paths;
+
+            final StartupTimeline.Phase phase = StartupTimeline.CONFIG.begin("list", configProperty);
+
+            try {
+                paths = listConfigFiles();
+                phase.count(paths.size());
+            } finally {
+                phase.end();
+            }
+
+            final Config config = load(paths);
+
+            if (AUTO_TUNE_ENABLED || STORAGE_LAYOUT_MODE != StorageLayout.Mode.OFF) {
+                final Set<String> explicitKeys = explicitKeys(paths);
+
+                if (explicitKeys != null) {
+                    // storage layout first, concurrency is tuned for the number of data directories
+                    if (STORAGE_LAYOUT_MODE != StorageLayout.Mode.OFF) {
+                        applyStorageLayout(config, explicitKeys);
+                    }
+
+                    if (AUTO_TUNE_ENABLED) {
+                        autoTune(config, explicitKeys);
+                    }
+                }
+            }
+
+            return config;
+        }
+
+        private Config load(final List<Path> paths) {
+            final List<String> excludedSections = excludedSections(paths);
+            final String hash = excludedSections == null ? null : snapshotHash(paths);
+
+            if (hash != null) {
+                final long start = System.nanoTime();
+                final ConfigSnapshot.Loaded<Config> loaded;
+
+                final StartupTimeline.Phase phase = StartupTimeline.CONFIG.begin("snapshot read", CONFIG_SNAPSHOT.getFile().toString());
+
+                try {
+                    loaded = CONFIG_SNAPSHOT.read(hash);
+                } finally {
+                    phase.end();
+                }
+
+                if (loaded != null && loadExcludedKeys(loaded.getConfig(), paths, excludedSections)) {
+                    final long loadNanos = System.nanoTime() - start;
+                    logger.info("Loaded configuration from snapshot {} in {} ms, parsing of configuration files took {} ms, saved {} ms",
+                                CONFIG_SNAPSHOT.getFile(),
+                                TimeUnit.NANOSECONDS.toMillis(loadNanos),
+                                TimeUnit.NANOSECONDS.toMillis(loaded.getParseNanos()),
+                                TimeUnit.NANOSECONDS.toMillis(loaded.getParseNanos() - loadNanos));
+                    return loaded.getConfig();
+                }
+            }
+
+            final long start = System.nanoTime();
+            final Config config = MERGE_FRAGMENTS ? loadFragments(paths) : loadConcatenated(paths);
+            final long parseNanos = System.nanoTime() - start;
 
-            final List<BufferedReader> readers = StreamSupport.stream(configValues.spliterator(), false)
-                .map(Paths::get)
+            if (hash != null) {
+                final StartupTimeline.Phase phase = StartupTimeline.CONFIG.begin("snapshot write", CONFIG_SNAPSHOT.getFile().toString());
+
+                try {
+                    CONFIG_SNAPSHOT.write(hash, config, parseNanos);
+                } catch (final IOException ex) {
+                    logger.warn("Unable to write configuration snapshot, configuration files will be parsed on next start again", ex);
+                } finally {
+                    phase.end();
+                }
+            }
+
+            return config;
+        }
+
+        /**
+         * @return top-level sections of keys which are not in the snapshot, by configuration file, or null when
+         * the snapshot is not to be used, also when keys of some file can not be told apart so one of them could be missed
+         */
+        private List<String> excludedSections(final List<Path> paths) {
+            if (!SNAPSHOT_ENABLED) {
+                return null;
+            }
+
+            final List<String> sections = new ArrayList<>();
+
+            try {
+                for (final Path path : paths) {
+                    sections.add(CONFIG_SNAPSHOT.excludedSections(path));
+                }
+            } catch (final IOException ex) {
+                logger.info("Configuration snapshot will not be used, configuration files will be parsed: {}", ex.getMessage());
+                return null;
+            }
+
+            return sections;
+        }
+
+        /**
+         * Sets what is not in the snapshot from the sections of configuration files which set it, those are parsed
+         * the same way as whole files would be.
+         *
+         * @param excludedSections sections of each of the paths, in the same order
+         * @return false when the sections are unable to be parsed
+         */
+        @SuppressWarnings("unchecked")
+        private boolean loadExcludedKeys(final Config config, final List<Path> paths, final List<String> excludedSections) {
+            if (excludedSections.stream().allMatch(String::isEmpty)) {
+                // sections of comments only
+                return true;
+            }
+
+            final StartupTimeline.Phase phase = StartupTimeline.CONFIG.begin("snapshot excluded", null);
+
+            try {
+                final Config parsed;
+
+                if (MERGE_FRAGMENTS) {
+                    final ConfigFragmentMerger merger = new ConfigFragmentMerger();
+
+                    for (int i = 0; i < paths.size(); i++) {
+                        final Object fragment = new Yaml().load(excludedSections.get(i));
+
+                        if (fragment instanceof Map) {
+                            merger.merge(paths.get(i).toString(), (Map<String, Object>) fragment);
+                        }
+                    }
+
+                    parsed = YamlConfigurationLoader.fromMap(merger.getMerged(), Config.class);
+                } else {
+                    parsed = new Yaml().loadAs(String.join("", excludedSections), Config.class);
+                }
+
+                // sections of comments only
+                if (parsed != null) {
+                    CONFIG_SNAPSHOT.copyExcludedFields(parsed, config);
+                }
+
+                return true;
+            } catch (final ReflectiveOperationException | YAMLException ex) {
+                logger.warn(String.format("Unable to parse %s from configuration files, configuration snapshot will not be used", SNAPSHOT_EXCLUDED_KEYS), ex);
+                return false;
+            } finally {
+                phase.end();
+            }
+        }
+
+        private Set<String> explicitKeys(final List<Path> paths) {
+            final List<Path> defaults = DEFAULTS_FILES == null ? Collections.emptyList() : StreamSupport.stream(Splitter.on(':').split(DEFAULTS_FILES).spliterator(), false)
+                .map(path -> Paths.get(path).toAbsolutePath().normalize())
+                .collect(Collectors.toList());
+
+            final List<Path> explicitFiles = paths.stream()
+                .filter(path -> !defaults.contains(path.toAbsolutePath().normalize()))
+                .collect(Collectors.toList());
+
+            final List<Map<?, ?>> fragments = new ArrayList<>(explicitFiles.size());
+
+            try {
+                for (final Path path : explicitFiles) {
+                    try (final Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                        final Object fragment = new Yaml().load(reader);
+
+                        // an empty file sets nothing, anything else than a map fails the load of configuration anyway
+                        if (fragment instanceof Map) {
+                            fragments.add((Map<?, ?>) fragment);
+                        }
+                    }
+                }
+
+                return ConfigAutoTuner.explicitKeys(fragments);
+            } catch (final IOException | YAMLException ex) {
+                logger.warn("Unable to tell which settings are set in configuration files, settings will not be auto-tuned nor directories spread", ex);
+                return null;
+            }
+        }
+
+        private void autoTune(final Config config, final Set<String> explicitKeys) {
+            final StartupTimeline.Phase phase = StartupTimeline.CONFIG.begin("auto tune", null);
+
+            try {
+                final int dataDirectories = config.data_file_directories == null ? 1 : config.data_file_directories.length;
+
+                phase.count(CONFIG_AUTO_TUNER.tune(config, explicitKeys, dataDirectories).size());
+            } finally {
+                phase.end();
+            }
+        }
+
+        private void applyStorageLayout(final Config config, final Set<String> explicitKeys) {
+            final StorageLayout.Layout layout;
+
+            final StartupTimeline.Phase phase = StartupTimeline.CONFIG.begin("storage layout", STORAGE_LAYOUT_MODE.name());
+
+            try {
+                layout = storageLayout(config);
+            } finally {
+                phase.end();
+            }
+
+            if (layout == null) {
+                return;
+            }
+
+            if (!explicitKeys.contains("data_file_directories")) {
+                config.data_file_directories = layout.getDataDirectories().toArray(new String[0]);
+            }
+            if (!explicitKeys.contains("commitlog_directory")) {
+                config.commitlog_directory = layout.getCommitLogDirectory();
+            }
+            if (!explicitKeys.contains("cdc_raw_directory")) {
+                config.cdc_raw_directory = layout.getCdcRawDirectory();
+            }
+            if (!explicitKeys.contains("hints_directory")) {
+                config.hints_directory = layout.getHintsDirectory();
+            }
+            if (!explicitKeys.contains("saved_caches_directory")) {
+                config.saved_caches_directory = layout.getSavedCachesDirectory();
+            }
+        }
+
+        /**
+         * Resolved once, reloads of configuration must not probe volumes again.
+         */
+        private static StorageLayout.Layout storageLayout(final Config config) {
+            synchronized (STORAGE_LAYOUT_LOCK) {
+                if (!storageLayoutResolved) {
+                    final List<String> configuredDirectories = new ArrayList<>();
+
+                    if (config.data_file_directories != null) {
+                        configuredDirectories.addAll(Arrays.asList(config.data_file_directories));
+                    }
+                    configuredDirectories.addAll(Arrays.asList(config.commitlog_directory, config.cdc_raw_directory, config.hints_directory, config.saved_caches_directory));
+
+                    try {
+                        storageLayout = StorageLayout.resolve(StorageLayout.DEFAULT_BASE, STORAGE_LAYOUT_MODE, configuredDirectories);
+                    } catch (final IOException ex) {
+                        logger.warn("Unable to make storage layout, configured directories will be used", ex);
+                    }
+
+                    storageLayoutResolved = true;
+                }
+
+                return storageLayout;
+            }
+        }
+
+        private List<Path> listConfigFiles() {
+            return configLocations().stream()
 
                 // recurse into any specified directories and load any config files within
                 .flatMap(path -> {
@@ -98,18 +428,23 @@ public class ConcatenatedYamlConfigurationLoader implements ConfigurationLoader
                     logger.info("Loading configuration file \"{}\"", path);
                     return true;
                 })
+                .collect(Collectors.toList());
+        }
 
-                .map(path -> {
-                    try {
-                        return Files.newBufferedReader(path, StandardCharsets.UTF_8);
+        private String snapshotHash(final List<Path> paths) {
+            try {
+                return CONFIG_SNAPSHOT.hash(paths, "merge_fragments=" + MERGE_FRAGMENTS);
+            } catch (final IOException ex) {
+                logger.warn("Unable to compute hash of configuration files, configuration snapshot will not be used", ex);
+                return null;
+            }
+        }
 
-                    } catch (final IOException e) {
-                        throw new ConfigurationException(String.format("Failed to open configuration file \"%s\" for reading.", path), e);
-                    }
-                })
-                .collect(Collectors.toList());
+        private Config loadConcatenated(final List<Path> paths) {
+            // files are opened one by one as the parser gets to them
+            final StartupTimeline.Phase phase = StartupTimeline.CONFIG.begin("parse", null).count(paths.size());
 
-            try (final Reader reader = new ConcatenatedReader(readers)) {
+            try (final Reader reader = ConcatenatedReader.ofPaths(paths, StandardCharsets.UTF_8, READER_MODE)) {
                 final Yaml yaml = new Yaml();
 
                 final Config config = yaml.loadAs(reader, Config.class);
@@ -118,40 +453,260 @@ public class ConcatenatedYamlConfigurationLoader implements ConfigurationLoader
 
             } catch (final IOException | YAMLException e) {
                 throw new ConfigurationException("Exception while loading configuration files.", e);
+            } finally {
+                phase.end();
+            }
+        }
+
+        /**
+         * Parses every file on its own, in parallel, and deep-merges them in the order they were specified,
+         * see {@link ConfigFragmentMerger} for the semantics.
+         */
+        private Config loadFragments(final List<Path> paths) {
+            final List<Map<String, Object>> fragments = paths.parallelStream()
+                .map(ConfigSupplier::parseFragment)
+                .collect(Collectors.toList());
+
+            final ConfigFragmentMerger merger = new ConfigFragmentMerger();
+
+            final StartupTimeline.Phase phase = StartupTimeline.CONFIG.begin("merge", null).count(paths.size());
+
+            try {
+                for (int i = 0; i < paths.size(); i++) {
+                    merger.merge(paths.get(i).toString(), fragments.get(i));
+                }
+            } finally {
+                phase.end();
+            }
+
+            for (final String override : merger.getOverrides()) {
+                logger.info("Configuration key {}", override);
+            }
+
+            logger.info("Configuration keys supplied by files: {}", merger.getKeySources());
+
+            try {
+                return YamlConfigurationLoader.fromMap(merger.getMerged(), Config.class);
+            } catch (final YAMLException e) {
+                throw new ConfigurationException("Exception while loading configuration files.", e);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Map<String, Object> parseFragment(final Path path) {
+            final StartupTimeline.Phase phase = StartupTimeline.CONFIG.begin("parse", path.toString());
+
+            try (final Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                phase.bytes(Files.size(path));
+
+                final Object fragment = new Yaml().load(reader);
+
+                if (fragment == null) {
+                    return new HashMap<>();
+                }
+
+                if (!(fragment instanceof Map)) {
+                    throw new ConfigurationException(String.format("Configuration file \"%s\" does not contain a YAML map.", path));
+                }
+
+                return (Map<String, Object>) fragment;
+            } catch (final IOException | YAMLException e) {
+                throw new ConfigurationException(String.format("Exception while loading configuration file \"%s\".", path), e);
+            } finally {
+                phase.end();
             }
         }
     }
 
+    private static List<Path> configLocations() {
+        final Iterable<String> configValues = Splitter.on(':').split(System.getProperty("cassandra.config"));
+
+        return StreamSupport.stream(configValues.spliterator(), false)
+            .map(Paths::get)
+            .collect(Collectors.toList());
+    }
+
+    private static final Object STORAGE_LAYOUT_LOCK = new Object();
+
+    private static boolean storageLayoutResolved;
+
+    private static StorageLayout.Layout storageLayout;
+
+    private static final ConfigAutoTuner CONFIG_AUTO_TUNER = new ConfigAutoTuner(ContainerLimits.read(), Runtime.getRuntime().maxMemory());
+
     private static final Supplier<Config> CONFIG_SUPPLIER = Suppliers.memoize(new ConfigSupplier());
 
+    private static final RuntimeConfigReloader<Config> CONFIG_RELOADER = new RuntimeConfigReloader<>(Config.class, () -> new ConfigSupplier().get());
+
+    private static final Path CONFIG_DUMP_PATH = Paths.get("/var/lib/cassandra/cassandra-config.yaml");
+
+    private static final ExecutorService CONFIG_DUMP_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "cassandra-config-dump");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Object CONFIG_DUMP_LOCK = new Object();
+
+    private static Config lastDumpedConfig;
+
     @Override
     public Config loadConfig() throws ConfigurationException {
         Config config = CONFIG_SUPPLIER.get();
 
-        try {
-            Files.write(Paths.get("/var/lib/cassandra/cassandra-config.yaml"), log(config).getBytes(), CREATE, TRUNCATE_EXISTING);
-        } catch (IOException ex) {
-            logger.error("Unable to write cassandra configuration to /var/lib/cassandra-config.yaml", ex);
+        if (SEEDS_PREFETCH_ENABLED) {
+            prefetchSeeds(config);
+        }
+
+        // dump and reloads happen in the background, they are not part of startup
+        StartupTimeline.CONFIG.logSummary();
+
+        dumpConfig(config);
+
+        startConfigReloader(config);
+
+        if (HEALTH_PORT != null) {
+            try {
+                HealthServer.start(new InetSocketAddress(HEALTH_PORT));
+            } catch (final IllegalStateException ex) {
+                throw new ConfigurationException(ex.getMessage(), ex);
+            }
+        }
+
+        if (COMMAND_PORT != null) {
+            CommandServer.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), COMMAND_PORT));
+        }
+
+        if (PREWARM_ENABLED) {
+            startPrewarmer(config);
         }
 
         return config;
     }
 
+    private static void prefetchSeeds(final Config config) {
+        if (config.seed_provider == null
+            || !SeedProvider.class.getName().equals(config.seed_provider.class_name)
+            || config.seed_provider.parameters == null) {
+            return;
+        }
+
+        try {
+            MultiServiceSeedsResolver.prefetch(SeedProvider.withStoragePort(config.seed_provider.parameters, config));
+        } catch (final RuntimeException ex) {
+            // the seed provider resolves seeds itself and reports what is wrong with its arguments
+            logger.warn("Unable to prefetch seeds", ex);
+        }
+    }
+
+    private static void startPrewarmer(final Config config) {
+        if (config.data_file_directories == null || config.data_file_directories.length == 0) {
+            logger.warn("Page cache is not prewarmed, data_file_directories are not set");
+            return;
+        }
+
+        final List<Path> dataDirectories = Arrays.stream(config.data_file_directories).map(Paths::get).collect(Collectors.toList());
+
+        // Cassandra defaults saved caches directory only after loading configuration, next to data then
+        final Path record = config.saved_caches_directory != null
+            ? Paths.get(config.saved_caches_directory, PageCachePrewarmer.RECORD_FILE)
+            : dataDirectories.get(0).toAbsolutePath().resolveSibling(PageCachePrewarmer.RECORD_FILE);
+
+        final Long maxMb = Long.getLong("cassandra.k8s.prewarm.max_mb");
+
+        PageCachePrewarmer.start(new PageCachePrewarmer(dataDirectories,
+                                                        record,
+                                                        maxMb == null ? PageCachePrewarmer.defaultMaxBytes() : maxMb << 20,
+                                                        Duration.ofMillis(Long.getLong("cassandra.k8s.prewarm.timeout_ms", PageCachePrewarmer.DEFAULT_TIMEOUT.toMillis())),
+                                                        FileUtils::clean),
+                                 Duration.ofMillis(Long.getLong("cassandra.k8s.prewarm.record_interval_ms", PageCachePrewarmer.DEFAULT_RECORD_INTERVAL.toMillis())));
+    }
+
+    private void startConfigReloader(final Config config) {
+        if (!HOT_RELOAD_ENABLED) {
+            return;
+        }
+
+        try {
+            CONFIG_RELOADER.start(config, configLocations(), Duration.ofSeconds(2));
+        } catch (final IOException ex) {
+            logger.warn("Unable to watch configuration files, changes will be applied only after restart", ex);
+        }
+    }
+
+    /**
+     * Values are captured right away, rendering and writing happens in the background so it does not hold
+     * Cassandra's startup. The dump is written via a temporary file and a rename so the readiness probe never reads
+     * a partially written file, and not at all when it has not changed.
+     */
+    private void dumpConfig(final Config config) {
+        synchronized (CONFIG_DUMP_LOCK) {
+            if (lastDumpedConfig == config) {
+                return;
+            }
+            lastDumpedConfig = config;
+        }
+
+        final Map<String, String> configMap = configMap(config);
+
+        CONFIG_DUMP_EXECUTOR.submit(() -> {
+            final byte[] dump;
+
+            final StartupTimeline.Phase dumpPhase = StartupTimeline.CONFIG.begin("dump", null).count(configMap.size());
+
+            try {
+                dump = dump(configMap).getBytes(StandardCharsets.UTF_8);
+                dumpPhase.bytes(dump.length);
+            } finally {
+                dumpPhase.end();
+            }
+
+            final StartupTimeline.Phase writePhase = StartupTimeline.CONFIG.begin("write", CONFIG_DUMP_PATH.toString()).bytes(dump.length);
+
+            try {
+                if (!AtomicFiles.writeIfChanged(CONFIG_DUMP_PATH, dump)) {
+                    writePhase.bytes(0);
+                    logger.debug("Cassandra configuration in {} is up to date", CONFIG_DUMP_PATH);
+                }
+            } catch (IOException ex) {
+                logger.error("Unable to write cassandra configuration to " + CONFIG_DUMP_PATH, ex);
+            } finally {
+                writePhase.end();
+            }
+        });
+    }
+
     private static final List<String> SENSITIVE_KEYS = new ArrayList<String>() {{
         add("client_encryption_options");
         add("server_encryption_options");
     }};
 
-    // taken and tweaked from Config in Cassandra
+    // resolved once, ignoring the constants
+    private static final List<Field> CONFIG_FIELDS = Arrays.stream(Config.class.getFields())
+        .filter(field -> !Modifier.isFinal(field.getModifiers()))
+        .collect(Collectors.toList());
+
+    private static final ThreadLocal<Yaml> CONFIG_DUMPER = ThreadLocal.withInitial(() -> {
+        DumperOptions options = new DumperOptions();
+        options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+        options.setPrettyFlow(true);
+
+        return new Yaml(options);
+    });
+
     public String log(Config config) {
-        Map<String, String> configMap = new TreeMap<>();
+        return dump(configMap(config));
+    }
 
-        for (Field field : Config.class.getFields()) {
-            // ignore the constants
-            if (Modifier.isFinal(field.getModifiers())) {
-                continue;
-            }
+    private String dump(Map<String, String> configMap) {
+        return CONFIG_DUMPER.get().dump(configMap);
+    }
 
+    // taken and tweaked from Config in Cassandra
+    private Map<String, String> configMap(Config config) {
+        Map<String, String> configMap = new TreeMap<>();
+
+        for (Field field : CONFIG_FIELDS) {
             String name = field.getName();
 
             if (SENSITIVE_KEYS.contains(name)) {
@@ -188,13 +743,7 @@ public class ConcatenatedYamlConfigurationLoader implements ConfigurationLoader
             configMap.put(name, value);
         }
 
-        DumperOptions options = new DumperOptions();
-        options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
-        options.setPrettyFlow(true);
-
-        Yaml yaml = new Yaml(options);
-
-        return yaml.dump(configMap);
+        return configMap;
     }
 
     private String buildTransparentDataEncryptionOptions(TransparentDataEncryptionOptions options) {
@@ -0,0 +1,123 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.lang.String.format;
+
+import java.net.InetAddress;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.cassandra.db.SystemKeyspace;
+import org.apache.cassandra.exceptions.ConfigurationException;
+import org.apache.cassandra.gms.ApplicationState;
+import org.apache.cassandra.gms.EndpointState;
+import org.apache.cassandra.gms.Gossiper;
+import org.apache.cassandra.gms.VersionedValue;
+import org.apache.cassandra.locator.AbstractNetworkTopologySnitch;
+import org.apache.cassandra.locator.ReconnectableSnitchHelper;
+import org.apache.cassandra.locator.SnitchProperties;
+import org.apache.cassandra.service.StorageService;
+import org.apache.cassandra.utils.FBUtilities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Snitch taking data center and rack of this node from labels of its pod, see {@link PodTopology}, instead of
+ * a properties file written for every rack. When labels are not there, "dc", "dc_suffix" and "rack" are read from
+ * cassandra-rackdc.properties as {@code GossipingPropertyFileSnitch} does, so it replaces that snitch as it is.
+ *
+ * Data center and rack of this node are gossiped, those of other nodes are taken from gossip, or from peers saved
+ * in system keyspace until gossip settles. Replicas are sorted by proximity, the same rack (zone) first, then the same
+ * data center, so reads stay in their zone. Measured latency is added on top by Cassandra's dynamic snitch wrapping
+ * this one, it moves reads to another replica only when the close one is slower by more than
+ * "dynamic_snitch_badness_threshold".
+ *
+ * With "prefer_local=true" in cassandra-rackdc.properties, nodes of the same data center connect to each other by
+ * their internal addresses.
+ */
+public class KubernetesSnitch extends AbstractNetworkTopologySnitch {
+
+    private static final Logger logger = LoggerFactory.getLogger(KubernetesSnitch.class);
+
+    private static final String DEFAULT_DC = "UNKNOWN_DC";
+    private static final String DEFAULT_RACK = "UNKNOWN_RACK";
+
+    private final String localDatacenter;
+    private final String localRack;
+    private final boolean preferLocal;
+
+    private final AtomicBoolean snitchHelperRegistered = new AtomicBoolean();
+
+    private volatile Map<InetAddress, Map<String, String>> savedEndpoints;
+
+    public KubernetesSnitch() throws ConfigurationException {
+        final PodTopology topology = PodTopology.fromSystemProperties();
+        final SnitchProperties properties = new SnitchProperties();
+
+        localDatacenter = topology.getDatacenter() != null
+            ? topology.getDatacenter()
+            : properties.get("dc", DEFAULT_DC).trim() + properties.get("dc_suffix", "").trim();
+        localRack = topology.getRack() != null ? topology.getRack() : properties.get("rack", DEFAULT_RACK).trim();
+        preferLocal = Boolean.parseBoolean(properties.get("prefer_local", "false"));
+
+        if (DEFAULT_DC.equals(localDatacenter) || DEFAULT_RACK.equals(localRack)) {
+            throw new ConfigurationException(format("%s is unable to find data center and rack of this node, neither in pod labels nor in %s",
+                                                    KubernetesSnitch.class.getName(), SnitchProperties.RACKDC_PROPERTY_FILENAME));
+        }
+
+        logger.info("This node is in data center {}, rack {}{}", localDatacenter, localRack,
+                    topology.getDatacenter() != null && topology.getRack() != null ? ", taken from its pod labels" : "");
+    }
+
+    @Override
+    public String getDatacenter(final InetAddress endpoint) {
+        if (endpoint.equals(FBUtilities.getBroadcastAddress())) {
+            return localDatacenter;
+        }
+
+        return gossiped(endpoint, ApplicationState.DC, "data_center", DEFAULT_DC);
+    }
+
+    @Override
+    public String getRack(final InetAddress endpoint) {
+        if (endpoint.equals(FBUtilities.getBroadcastAddress())) {
+            return localRack;
+        }
+
+        return gossiped(endpoint, ApplicationState.RACK, "rack", DEFAULT_RACK);
+    }
+
+    private String gossiped(final InetAddress endpoint, final ApplicationState state, final String savedKey, final String defaultValue) {
+        final EndpointState endpointState = Gossiper.instance.getEndpointStateForEndpoint(endpoint);
+
+        if (endpointState != null) {
+            final VersionedValue value = endpointState.getApplicationState(state);
+
+            if (value != null) {
+                return value.value;
+            }
+        }
+
+        // not gossiped yet, e.g. right after a restart
+        Map<InetAddress, Map<String, String>> saved = savedEndpoints;
+
+        if (saved == null) {
+            saved = savedEndpoints = SystemKeyspace.loadDcRackInfo();
+        }
+
+        final Map<String, String> endpointInfo = saved.get(endpoint);
+
+        return endpointInfo != null && endpointInfo.get(savedKey) != null ? endpointInfo.get(savedKey) : defaultValue;
+    }
+
+    @Override
+    public void gossiperStarting() {
+        super.gossiperStarting();
+
+        Gossiper.instance.addLocalApplicationState(ApplicationState.INTERNAL_IP,
+                                                   StorageService.instance.valueFactory.internalIP(FBUtilities.getLocalAddress().getHostAddress()));
+
+        if (preferLocal && snitchHelperRegistered.compareAndSet(false, true)) {
+            Gossiper.instance.register(new ReconnectableSnitchHelper(this, localDatacenter, true));
+        }
+    }
+}
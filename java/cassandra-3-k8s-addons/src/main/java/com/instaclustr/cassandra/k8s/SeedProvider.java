@@ -3,26 +3,56 @@ package com.instaclustr.cassandra.k8s;
 import static java.lang.String.format;
 
 import java.net.InetAddress;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import com.instaclustr.cassandra.k8s.AddressTranslator.NoOpAddressTranslator;
 
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.config.EncryptionOptions.ServerEncryptionOptions.InternodeEncryption;
+
 public class SeedProvider implements org.apache.cassandra.locator.SeedProvider {
 
-    private final String service;
+    private final Callable<List<InetAddress>> seeds;
 
+    /**
+     * "service" is a seed service or more of them separated by commas, e.g. one per data center, they are resolved
+     * concurrently, see {@link MultiServiceSeedsResolver}.
+     */
     public SeedProvider(final Map<String, String> args) {
-        service = args.get("service");
-        if (service == null) {
+        if (args.get("service") == null) {
             throw new IllegalStateException(format("%s requires \"service\" argument.", SeedProvider.class));
         }
+
+        seeds = MultiServiceSeedsResolver.fromArgs(withStoragePort(args, DatabaseDescriptor.getRawConfig()), new NoOpAddressTranslator());
+    }
+
+    /**
+     * Seeds are probed on the port Cassandra connects to them on, ssl_storage_port when internode encryption is on,
+     * unless "storage_port" argument says otherwise.
+     *
+     * @param config configuration Cassandra has loaded, null if none
+     */
+    static Map<String, String> withStoragePort(final Map<String, String> args, final Config config) {
+        if (config == null || args.containsKey("storage_port")) {
+            return args;
+        }
+
+        final boolean encrypted = config.server_encryption_options != null && config.server_encryption_options.internode_encryption != InternodeEncryption.none;
+        final Map<String, String> withPort = new HashMap<>(args);
+
+        withPort.put("storage_port", Integer.toString(encrypted ? config.ssl_storage_port : config.storage_port));
+
+        return withPort;
     }
 
     @Override
     public List<InetAddress> getSeeds() {
         try {
-            return new SeedsResolver<>(service, new NoOpAddressTranslator()).resolve();
+            return seeds.call();
         } catch (final Exception ex) {
             throw new IllegalStateException("Unable to resolve any seeds!", ex);
         }
@@ -3,27 +3,55 @@ package com.instaclustr.cassandra.k8s;
 import static java.lang.String.format;
 
 import java.net.InetAddress;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.locator.InetAddressAndPort;
 
 public class SeedProvider implements org.apache.cassandra.locator.SeedProvider {
 
-    private final String service;
+    private final Callable<List<InetAddressAndPort>> seeds;
 
+    /**
+     * "service" is a seed service or more of them separated by commas, e.g. one per data center, they are resolved
+     * concurrently, see {@link MultiServiceSeedsResolver}.
+     */
     public SeedProvider(final Map<String, String> args) {
-        service = args.get("service");
-        if (service == null) {
+        if (args.get("service") == null) {
             throw new IllegalStateException(format("%s requires \"service\" argument.", SeedProvider.class));
         }
+
+        seeds = MultiServiceSeedsResolver.fromArgs(withStoragePort(args, DatabaseDescriptor.getRawConfig()), new InetAddressAndPortAddressTranslator());
+    }
+
+    /**
+     * Seeds are probed on the port Cassandra connects to them on unless "storage_port" argument says otherwise.
+     * It is storage_port even with internode encryption, ssl_storage_port is only listened on in addition to it
+     * for peers older than 4.0.
+     *
+     * @param config configuration Cassandra has loaded, null if none
+     */
+    static Map<String, String> withStoragePort(final Map<String, String> args, final Config config) {
+        if (config == null || args.containsKey("storage_port")) {
+            return args;
+        }
+
+        final Map<String, String> withPort = new HashMap<>(args);
+
+        withPort.put("storage_port", Integer.toString(config.storage_port));
+
+        return withPort;
     }
 
     @Override
     public List<InetAddressAndPort> getSeeds() {
         try {
-            return new SeedsResolver<>(service, new InetAddressAndPortAddressTranslator()).resolve();
+            return seeds.call();
         } catch (final Exception ex) {
             throw new IllegalStateException("Unable to resolve any seeds!", ex);
         }
@@ -38,7 +66,7 @@ public class SeedProvider implements org.apache.cassandra.locator.SeedProvider {
 
         @Override
         public String getHostname(final InetAddressAndPort address) {
-            return address.address.getCanonicalHostName();
+            return ReverseDnsCache.shared().getHostname(address.address);
         }
     }
 }
@@ -0,0 +1,28 @@
+package com.instaclustr.cassandra.k8s;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs benchmarks with the usual JMH command line, allocation rates are always profiled.
+ *
+ * java -jar target/benchmarks.jar [JMH options, e.g. SeedsResolverBenchmark -p records=2000]
+ */
+public class Benchmarks {
+
+    public static void main(final String[] args) throws Exception {
+        final CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+
+        if (commandLineOptions.shouldHelp() || commandLineOptions.shouldList()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        new Runner(new OptionsBuilder()
+                       .parent(commandLineOptions)
+                       .addProfiler(GCProfiler.class)
+                       .build()).run();
+    }
+}
@@ -0,0 +1,71 @@
+package com.instaclustr.cassandra.k8s;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reads a whole configuration directory through {@link ConcatenatedReader} the way the YAML parser does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcatenatedReaderBenchmark {
+
+    @Param({"1", "10", "100", "500"})
+    public int fragments;
+
+    @Param({"STREAM", "MAPPED"})
+    public ConcatenatedReader.Mode mode;
+
+    private Path directory;
+    private List<Path> paths;
+
+    // the buffer snakeyaml reads with
+    private final char[] buffer = new char[1024];
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("concatenated-reader-benchmark");
+        paths = ConfigFragments.write(directory, fragments);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        ConfigFragments.delete(directory);
+    }
+
+    @Benchmark
+    public long read() throws IOException {
+        long chars = 0;
+
+        try (final Reader reader = ConcatenatedReader.ofPaths(paths, StandardCharsets.UTF_8, mode)) {
+            int read;
+            while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+                chars += read;
+            }
+        }
+
+        return chars;
+    }
+}
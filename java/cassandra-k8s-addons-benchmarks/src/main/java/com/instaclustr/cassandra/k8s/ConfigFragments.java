@@ -0,0 +1,118 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Writes a cassandra.yaml.d-like directory, the keys of a typical cassandra.yaml spread over the given number
+ * of fragments. When there are more fragments than keys, the extra fragments override keys of the previous ones
+ * the way operator-supplied fragments override the defaults.
+ */
+final class ConfigFragments {
+
+    private static final List<String> SETTINGS = Arrays.asList(
+        "cluster_name: 'benchmark'",
+        "num_tokens: 16",
+        "hinted_handoff_enabled: true",
+        "max_hint_window_in_ms: 10800000",
+        "hinted_handoff_throttle_in_kb: 1024",
+        "max_hints_delivery_threads: 2",
+        "authenticator: PasswordAuthenticator",
+        "authorizer: CassandraAuthorizer",
+        "role_manager: CassandraRoleManager",
+        "roles_validity_in_ms: 2000",
+        "permissions_validity_in_ms: 2000",
+        "partitioner: org.apache.cassandra.dht.Murmur3Partitioner",
+        "data_file_directories:\n    - /var/lib/cassandra/data",
+        "commitlog_directory: /var/lib/cassandra/commitlog",
+        "saved_caches_directory: /var/lib/cassandra/saved_caches",
+        "hints_directory: /var/lib/cassandra/hints",
+        "disk_failure_policy: stop",
+        "commit_failure_policy: stop",
+        "key_cache_save_period: 14400",
+        "row_cache_size_in_mb: 0",
+        "counter_cache_save_period: 7200",
+        "commitlog_sync: periodic",
+        "commitlog_sync_period_in_ms: 10000",
+        "commitlog_segment_size_in_mb: 32",
+        "seed_provider:\n    - class_name: com.instaclustr.cassandra.k8s.SeedProvider\n      parameters:\n          - service: cassandra-dc1-seeds",
+        "concurrent_reads: 32",
+        "concurrent_writes: 32",
+        "concurrent_counter_writes: 32",
+        "memtable_allocation_type: heap_buffers",
+        "trickle_fsync: false",
+        "storage_port: 7000",
+        "ssl_storage_port: 7001",
+        "start_native_transport: true",
+        "native_transport_port: 9042",
+        "incremental_backups: false",
+        "snapshot_before_compaction: false",
+        "auto_snapshot: true",
+        "column_index_size_in_kb: 64",
+        "concurrent_compactors: 2",
+        "compaction_throughput_mb_per_sec: 16",
+        "sstable_preemptive_open_interval_in_mb: 50",
+        "stream_throughput_outbound_megabits_per_sec: 200",
+        "read_request_timeout_in_ms: 5000",
+        "range_request_timeout_in_ms: 10000",
+        "write_request_timeout_in_ms: 2000",
+        "counter_write_request_timeout_in_ms: 5000",
+        "cas_contention_timeout_in_ms: 1000",
+        "truncate_request_timeout_in_ms: 60000",
+        "request_timeout_in_ms: 10000",
+        "endpoint_snitch: GossipingPropertyFileSnitch",
+        "dynamic_snitch_update_interval_in_ms: 100",
+        "dynamic_snitch_reset_interval_in_ms: 600000",
+        "dynamic_snitch_badness_threshold: 0.1",
+        "tombstone_warn_threshold: 1000",
+        "tombstone_failure_threshold: 100000",
+        "batch_size_warn_threshold_in_kb: 5",
+        "batch_size_fail_threshold_in_kb: 50",
+        "gc_warn_threshold_in_ms: 1000",
+        "client_encryption_options:\n    enabled: false\n    keystore: conf/.keystore\n    keystore_password: cassandra",
+        "server_encryption_options:\n    internode_encryption: none\n    keystore: conf/.keystore\n    keystore_password: cassandra"
+    );
+
+    private ConfigFragments() {
+    }
+
+    static List<Path> write(final Path directory, final int fragments) throws IOException {
+        final List<Path> paths = new ArrayList<>(fragments);
+
+        for (int fragment = 0; fragment < fragments; fragment++) {
+            final StringBuilder content = new StringBuilder();
+
+            content.append(format("# fragment %s of %s%n", fragment + 1, fragments));
+
+            for (int setting = fragment; setting < Math.max(SETTINGS.size(), fragment + 1); setting += fragments) {
+                final String value = SETTINGS.get(setting % SETTINGS.size());
+
+                // comments as long as the ones in the stock cassandra.yaml
+                content.append("\n# ").append(value.split(":")[0]).append(" - lorem ipsum dolor sit amet, consectetur adipiscing elit,\n");
+                content.append("# sed do eiusmod tempor incididunt ut labore et dolore magna aliqua.\n");
+                content.append(value).append('\n');
+            }
+
+            final Path path = directory.resolve(format("%03d-fragment.yaml", fragment));
+            Files.write(path, content.toString().getBytes(StandardCharsets.UTF_8));
+            paths.add(path);
+        }
+
+        return paths;
+    }
+
+    static void delete(final Path directory) throws IOException {
+        try (final Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
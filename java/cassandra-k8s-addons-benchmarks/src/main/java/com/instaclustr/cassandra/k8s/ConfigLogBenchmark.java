@@ -0,0 +1,52 @@
+package com.instaclustr.cassandra.k8s;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cassandra.config.Config;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Renders loaded configuration the way it is dumped for the readiness probe.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dcassandra.k8s.config.snapshot=false"})
+public class ConfigLogBenchmark {
+
+    private final ConcatenatedYamlConfigurationLoader loader = new ConcatenatedYamlConfigurationLoader();
+
+    private Config config;
+
+    @Setup
+    public void setup() throws IOException {
+        final Path directory = Files.createTempDirectory("config-log-benchmark");
+
+        try {
+            ConfigFragments.write(directory, 10);
+            System.setProperty("cassandra.config", directory.toString());
+            config = new ConcatenatedYamlConfigurationLoader.ConfigSupplier().get();
+        } finally {
+            ConfigFragments.delete(directory);
+        }
+    }
+
+    @Benchmark
+    public String log() {
+        return loader.log(config);
+    }
+}
@@ -0,0 +1,71 @@
+package com.instaclustr.cassandra.k8s;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cassandra.config.Config;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loads Cassandra 4 configuration from a configuration directory, from listing the directory to the populated Config.
+ *
+ * The snapshot is disabled so files are parsed every time, loading modes are read once per JVM so each of them
+ * runs in its own fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ConfigSupplierBenchmark {
+
+    @Param({"1", "10", "100", "500"})
+    public int fragments;
+
+    private Path directory;
+
+    private final ConcatenatedYamlConfigurationLoader.ConfigSupplier supplier = new ConcatenatedYamlConfigurationLoader.ConfigSupplier();
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("config-supplier-benchmark");
+        ConfigFragments.write(directory, fragments);
+        System.setProperty("cassandra.config", directory.toString());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        ConfigFragments.delete(directory);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Dcassandra.k8s.config.snapshot=false"})
+    public Config concatenated() {
+        return supplier.get();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Dcassandra.k8s.config.snapshot=false", "-Dcassandra.k8s.config.reader=mapped"})
+    public Config concatenatedMapped() {
+        return supplier.get();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Dcassandra.k8s.config.snapshot=false", "-Dcassandra.k8s.config.merge_fragments=true"})
+    public Config mergedFragments() {
+        return supplier.get();
+    }
+}
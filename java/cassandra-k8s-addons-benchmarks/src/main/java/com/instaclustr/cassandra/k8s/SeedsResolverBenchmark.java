@@ -0,0 +1,134 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Turns SRV answers of a seed service into seed host names, for both native DNS and dig lookups.
+ *
+ * Answers have one pod per record, spread over three racks, seeds are the first pod of each rack, the "-0" one, by
+ * default, or a tenth of pods of each rack.
+ * Large answers would not fit into a single DNS message, they are parsed the same way nevertheless.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeedsResolverBenchmark {
+
+    private static final String SERVICE = "cassandra-dc1-seeds.default.svc.cluster.local";
+
+    private static final SeedPolicy FIRST_ORDINAL = new SeedPolicy(SeedPolicy.Mode.FIRST_ORDINALS, 1, 0);
+    private static final SeedPolicy TENTH_OF_RACK = new SeedPolicy(SeedPolicy.Mode.PERCENTAGE, 0, 10);
+
+    @Param({"3", "30", "300", "2000"})
+    public int records;
+
+    private byte[] query;
+    private byte[] response;
+    private List<String> digOutput;
+    private List<SrvRecord> srvRecords;
+    private List<String> endpoints;
+
+    @Setup
+    public void setup() throws IOException {
+        query = DnsSrvResolver.buildQuery(SERVICE);
+        response = response(query, records);
+        digOutput = new ArrayList<>(records);
+
+        for (int i = 0; i < records; i++) {
+            digOutput.add(format("0 %s 7000 %s.%s.", 100 / records, pod(i), SERVICE));
+        }
+
+        srvRecords = DnsSrvResolver.parseResponse(ByteBuffer.wrap(response), query);
+        endpoints = SeedsResolver.parseEndpoints(srvRecords);
+    }
+
+    @Benchmark
+    public List<SrvRecord> parseDnsResponse() throws IOException {
+        return DnsSrvResolver.parseResponse(ByteBuffer.wrap(response), query);
+    }
+
+    @Benchmark
+    public List<SrvRecord> parseDigOutput() {
+        return DigSrvLookup.parseEndpoints(digOutput);
+    }
+
+    @Benchmark
+    public List<String> parseEndpoints() {
+        return SeedsResolver.parseEndpoints(srvRecords);
+    }
+
+    @Benchmark
+    public List<String> filterSeeds() {
+        return FIRST_ORDINAL.filter(endpoints);
+    }
+
+    @Benchmark
+    public List<String> filterSeedsByPercentage() {
+        return TENTH_OF_RACK.filter(endpoints);
+    }
+
+    private static String pod(final int i) {
+        return format("cassandra-dc1-rack%s-%s", i % 3 + 1, i / 3);
+    }
+
+    /**
+     * Response the way cluster DNS compresses it, owner names and target suffixes point to the question.
+     */
+    private static byte[] response(final byte[] query, final int records) {
+        // question is everything between the header and the EDNS0 OPT record
+        final int questionLength = query.length - 12 - 11;
+
+        final ByteBuffer buffer = ByteBuffer.allocate(12 + questionLength + records * 64);
+
+        buffer.put(query, 0, 2);
+        buffer.putShort((short) 0x8180);
+        buffer.putShort((short) 1);
+        buffer.putShort((short) records);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0);
+        buffer.put(query, 12, questionLength);
+
+        for (int i = 0; i < records; i++) {
+            final byte[] label = pod(i).getBytes(StandardCharsets.US_ASCII);
+
+            buffer.putShort((short) 0xC00C);
+            buffer.putShort((short) 33);
+            buffer.putShort((short) 1);
+            buffer.putInt(30);
+            buffer.putShort((short) (6 + 1 + label.length + 2));
+            buffer.putShort((short) 0);
+            buffer.putShort((short) (100 / records));
+            buffer.putShort((short) 7000);
+            buffer.put((byte) label.length);
+            buffer.put(label);
+            buffer.putShort((short) 0xC00C);
+        }
+
+        final byte[] response = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(response);
+        return response;
+    }
+}
@@ -18,7 +18,7 @@ public interface AddressTranslator<T> {
 
         @Override
         public String getHostname(final InetAddress address) {
-            return address.getCanonicalHostName();
+            return ReverseDnsCache.shared().getHostname(address);
         }
     }
 }
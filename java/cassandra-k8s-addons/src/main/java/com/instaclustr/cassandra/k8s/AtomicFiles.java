@@ -0,0 +1,61 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Writes files so concurrent readers (e.g. probes) see either the old or the new content, never a partially written one.
+ */
+public final class AtomicFiles {
+
+    private AtomicFiles() {
+    }
+
+    /**
+     * Writes content to a temporary file next to the target and renames it over the target.
+     */
+    public static void write(final Path target, final byte[] content) throws IOException {
+        final Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        try {
+            Files.write(temp, content);
+            move(temp, target);
+        } catch (final IOException ex) {
+            Files.deleteIfExists(temp);
+            throw ex;
+        }
+    }
+
+    /**
+     * Same as {@link #write(Path, byte[])} but does nothing when the target already has the very same content.
+     *
+     * @return true if the target was written, false if it was left untouched
+     */
+    public static boolean writeIfChanged(final Path target, final byte[] content) throws IOException {
+        try {
+            if (Files.size(target) == content.length && Arrays.equals(Files.readAllBytes(target), content)) {
+                return false;
+            }
+        } catch (final NoSuchFileException ex) {
+            // nothing to compare with
+        }
+
+        write(target, content);
+        return true;
+    }
+
+    public static void move(final Path source, final Path target) throws IOException {
+        try {
+            Files.move(source, target, ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (final AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, REPLACE_EXISTING);
+        }
+    }
+}
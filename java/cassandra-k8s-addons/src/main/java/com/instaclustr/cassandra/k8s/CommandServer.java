@@ -0,0 +1,408 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs operations like drain or cleanup right on Cassandra's MBeans in its own JVM, so an operation takes as long as
+ * the work itself and not a JVM start of nodetool on top of it.
+ *
+ * <ul>
+ *     <li>GET /commands/status answers state of the node and of the ring as one JSON object</li>
+ *     <li>POST /commands/drain</li>
+ *     <li>POST /commands/flush?keyspace=ks&amp;tables=a,b, all keyspaces when no keyspace is given</li>
+ *     <li>POST /commands/cleanup?keyspace=ks&amp;tables=a,b&amp;jobs=2, all keyspaces not replicated locally only when
+ *     no keyspace is given</li>
+ *     <li>POST /commands/decommission?force=false</li>
+ * </ul>
+ *
+ * Operations answer JSON lines as they go, "started", then "progress" whenever operation mode of the node or running
+ * compactions change, and "finished" with the result or "failed" with the error at last. The same operation does not
+ * run twice at once, the second request is answered 409, even when the caller of the first one went away and the first
+ * one still runs.
+ *
+ * The server is meant to be bound to the loopback, so only containers of the pod reach it, like local JMX.
+ */
+public final class CommandServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommandServer.class);
+
+    private static final String STORAGE_SERVICE = "org.apache.cassandra.db:type=StorageService";
+    private static final String COMPACTION_MANAGER = "org.apache.cassandra.db:type=CompactionManager";
+
+    private static final long PROGRESS_INTERVAL_MILLIS = 500;
+
+    private static CommandServer instance;
+
+    // commands run for as long as drain or cleanup take, status must not wait behind them
+    private final ExecutorService executor = Executors.newCachedThreadPool(newThreadFactory("cassandra-command"));
+
+    private final HttpServer server;
+    private final MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+    private final ObjectName storageService;
+    private final ObjectName compactionManager;
+
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    private CommandServer(final InetSocketAddress address) throws IOException {
+        try {
+            storageService = new ObjectName(STORAGE_SERVICE);
+            compactionManager = new ObjectName(COMPACTION_MANAGER);
+        } catch (final MalformedObjectNameException ex) {
+            throw new IllegalStateException(ex);
+        }
+
+        server = HttpServer.create(address, 0);
+        server.createContext("/commands/status", exchange -> handle(exchange, "GET", this::status));
+        server.createContext("/commands/drain", exchange -> stream(exchange, "drain", this::drain));
+        server.createContext("/commands/flush", exchange -> stream(exchange, "flush", () -> flush(query(exchange))));
+        server.createContext("/commands/cleanup", exchange -> stream(exchange, "cleanup", () -> cleanup(query(exchange))));
+        server.createContext("/commands/decommission", exchange -> stream(exchange, "decommission", () -> decommission(query(exchange))));
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Starts the server once per JVM, subsequent calls do nothing.
+     */
+    public static synchronized void start(final InetSocketAddress address) {
+        if (instance != null) {
+            return;
+        }
+
+        try {
+            instance = new CommandServer(address);
+            // the dispatcher thread inherits daemon status of the thread starting the server, it must not hold the JVM
+            instance.executor.submit(instance.server::start).get();
+            logger.info("Command server listening on {}", instance.server.getAddress());
+        } catch (final IOException | ExecutionException ex) {
+            logger.error(format("Unable to start command server on %s", address), ex);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Map<String, Object> status() throws Exception {
+        final Map<String, Object> status = new LinkedHashMap<>();
+
+        for (final String attribute : Arrays.asList("OperationMode", "ReleaseVersion", "LocalHostId", "Drained", "Draining",
+                                                    "GossipRunning", "NativeTransportRunning", "LiveNodes", "UnreachableNodes",
+                                                    "JoiningNodes", "LeavingNodes", "MovingNodes")) {
+            status.put(attribute, mbeanServer.getAttribute(storageService, attribute));
+        }
+
+        status.put("Compactions", mbeanServer.getAttribute(compactionManager, "Compactions"));
+
+        return status;
+    }
+
+    private Map<String, Object> drain() throws Exception {
+        invoke(storageService, "drain");
+        return Collections.emptyMap();
+    }
+
+    private Map<String, Object> flush(final Map<String, String> query) throws Exception {
+        final List<String> keyspaces = keyspaces(query, "Keyspaces");
+
+        for (final String keyspace : keyspaces) {
+            invoke(storageService, "forceKeyspaceFlush", keyspace, tables(query));
+        }
+
+        return Collections.singletonMap("keyspaces", keyspaces);
+    }
+
+    private Map<String, Object> cleanup(final Map<String, String> query) throws Exception {
+        final int jobs = Integer.parseInt(query.getOrDefault("jobs", "2"));
+        final Map<String, Object> statuses = new LinkedHashMap<>();
+
+        // nodetool cleanup of all keyspaces skips the ones replicated locally only, there is nothing to clean up
+        for (final String keyspace : keyspaces(query, "NonLocalStrategyKeyspaces")) {
+            final Object status = invoke(storageService, "forceKeyspaceCleanup", jobs, keyspace, tables(query));
+
+            // 0 is success, 1 aborted, 2 unable to cancel, same as nodetool
+            if (!Objects.equals(status, 0)) {
+                throw new IllegalStateException(format("Cleanup of keyspace %s ended with status %s", keyspace, status));
+            }
+
+            statuses.put(keyspace, status);
+        }
+
+        return Collections.singletonMap("keyspaces", statuses);
+    }
+
+    private Map<String, Object> decommission(final Map<String, String> query) throws Exception {
+        // Cassandra 4 can be forced to decommission when it would leave less replicas than replication factor
+        if (hasOperation(storageService, "decommission", 1)) {
+            invoke(storageService, "decommission", Boolean.parseBoolean(query.get("force")));
+        } else {
+            invoke(storageService, "decommission");
+        }
+        return Collections.emptyMap();
+    }
+
+    private List<String> keyspaces(final Map<String, String> query, final String allAttribute) throws Exception {
+        final String keyspace = query.get("keyspace");
+
+        if (keyspace != null) {
+            return Collections.singletonList(keyspace);
+        }
+
+        final List<String> keyspaces = new ArrayList<>();
+
+        for (final Object name : list(mbeanServer.getAttribute(storageService, allAttribute))) {
+            keyspaces.add(String.valueOf(name));
+        }
+
+        return keyspaces;
+    }
+
+    // Cassandra's MBeans answer lists, the same attributes read through an MXBean are arrays
+    private static List<?> list(final Object attribute) {
+        if (attribute instanceof Object[]) {
+            return Arrays.asList((Object[]) attribute);
+        }
+        return attribute == null ? Collections.emptyList() : new ArrayList<>((Collection<?>) attribute);
+    }
+
+    private static String[] tables(final Map<String, String> query) {
+        final String tables = query.get("tables");
+        return tables == null || tables.isEmpty() ? new String[0] : tables.split(",");
+    }
+
+    /**
+     * Runs the command on its own thread and streams its progress to the caller until it ends.
+     */
+    private void stream(final HttpExchange exchange, final String command, final Callable<Map<String, Object>> operation) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, Collections.singletonMap("error", format("%s has to be POSTed", command)));
+            return;
+        }
+
+        if (!running.add(command)) {
+            respond(exchange, 409, Collections.singletonMap("error", format("%s is running already", command)));
+            return;
+        }
+
+        final long start = System.nanoTime();
+        Future<Map<String, Object>> result = null;
+
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+            // unknown length, chunked on HTTP/1.1, until the connection is closed on HTTP/1.0
+            exchange.sendResponseHeaders(200, 0);
+
+            try (final OutputStream out = exchange.getResponseBody()) {
+                logger.info("Running {} requested from {}", command, exchange.getRemoteAddress());
+                event(out, "started", command, start, null);
+
+                // the command is released when the operation ends, not when its caller goes away in the middle of it
+                result = executor.submit(() -> {
+                    try {
+                        return operation.call();
+                    } finally {
+                        running.remove(command);
+                    }
+                });
+
+                Object lastProgress = null;
+
+                while (true) {
+                    try {
+                        final Map<String, Object> finished = result.get(PROGRESS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                        event(out, "finished", command, start, Collections.singletonMap("result", finished));
+                        logger.info("{} finished in {} ms", command, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                        break;
+                    } catch (final TimeoutException ex) {
+                        final Map<String, Object> progress = progress();
+
+                        if (!progress.equals(lastProgress)) {
+                            event(out, "progress", command, start, progress);
+                            lastProgress = progress;
+                        }
+                    } catch (final ExecutionException ex) {
+                        final Throwable cause = ex.getCause();
+                        logger.warn(format("%s failed", command), cause);
+                        event(out, "failed", command, start, Collections.singletonMap("error", String.valueOf(cause.getMessage() == null ? cause : cause.getMessage())));
+                        break;
+                    } catch (final InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            } catch (final IOException ex) {
+                // the caller went away, the operation carries on as it would with nodetool
+                logger.debug("Unable to stream progress of {}", command, ex);
+            }
+        } finally {
+            if (result == null) {
+                running.remove(command);
+            }
+
+            exchange.close();
+        }
+    }
+
+    private Map<String, Object> progress() {
+        final Map<String, Object> progress = new LinkedHashMap<>();
+
+        try {
+            progress.put("OperationMode", mbeanServer.getAttribute(storageService, "OperationMode"));
+
+            final List<Object> compactions = new ArrayList<>();
+
+            for (final Object compaction : list(mbeanServer.getAttribute(compactionManager, "Compactions"))) {
+                compactions.add(compaction(compaction));
+            }
+
+            progress.put("Compactions", compactions);
+        } catch (final Exception ex) {
+            progress.put("error", ex.toString());
+        }
+
+        return progress;
+    }
+
+    // only what says how far it got, e.g. ids differ across versions
+    private static Object compaction(final Object compaction) {
+        if (!(compaction instanceof Map)) {
+            return String.valueOf(compaction);
+        }
+
+        final Map<String, Object> summary = new LinkedHashMap<>();
+
+        for (final String key : Arrays.asList("taskType", "keyspace", "columnfamily", "completed", "total", "unit")) {
+            summary.put(key, ((Map<?, ?>) compaction).get(key));
+        }
+
+        return summary;
+    }
+
+    private static void event(final OutputStream out, final String event, final String command, final long start, final Map<String, Object> details) throws IOException {
+        final Map<String, Object> line = new LinkedHashMap<>();
+        line.put("event", event);
+        line.put("command", command);
+        line.put("elapsed_ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        if (details != null) {
+            line.putAll(details);
+        }
+
+        out.write((Json.write(line) + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private void handle(final HttpExchange exchange, final String method, final Callable<Map<String, Object>> operation) throws IOException {
+        if (!method.equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, Collections.singletonMap("error", format("Use %s", method)));
+            return;
+        }
+
+        try {
+            respond(exchange, 200, operation.call());
+        } catch (final Exception ex) {
+            logger.debug("Unable to answer {}", exchange.getRequestURI(), ex);
+            respond(exchange, 503, Collections.singletonMap("error", ex.toString()));
+        }
+    }
+
+    /**
+     * Invokes the operation of given name and number of parameters, with signature taken from the MBean itself, so
+     * callers do not spell out types of varargs and primitives.
+     */
+    private Object invoke(final ObjectName name, final String operation, final Object... params) throws Exception {
+        for (final MBeanOperationInfo info : mbeanServer.getMBeanInfo(name).getOperations()) {
+            if (info.getName().equals(operation) && info.getSignature().length == params.length) {
+                final String[] signature = Arrays.stream(info.getSignature()).map(MBeanParameterInfo::getType).toArray(String[]::new);
+                return mbeanServer.invoke(name, operation, params, signature);
+            }
+        }
+
+        throw new IllegalStateException(format("%s has no operation %s with %s parameters", name, operation, params.length));
+    }
+
+    private boolean hasOperation(final ObjectName name, final String operation, final int params) throws Exception {
+        return Arrays.stream(mbeanServer.getMBeanInfo(name).getOperations())
+            .anyMatch(info -> info.getName().equals(operation) && info.getSignature().length == params);
+    }
+
+    private static Map<String, String> query(final HttpExchange exchange) {
+        final Map<String, String> query = new LinkedHashMap<>();
+        final String raw = exchange.getRequestURI().getRawQuery();
+
+        if (raw == null) {
+            return query;
+        }
+
+        for (final String parameter : raw.split("&")) {
+            final int equals = parameter.indexOf('=');
+
+            try {
+                if (equals > 0) {
+                    query.put(URLDecoder.decode(parameter.substring(0, equals), "UTF-8"), URLDecoder.decode(parameter.substring(equals + 1), "UTF-8"));
+                } else if (!parameter.isEmpty()) {
+                    query.put(URLDecoder.decode(parameter, "UTF-8"), "");
+                }
+            } catch (final IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        return query;
+    }
+
+    private static void respond(final HttpExchange exchange, final int status, final Map<String, Object> body) throws IOException {
+        final byte[] bytes = (Json.write(body) + "\n").getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+
+        try (final OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static ThreadFactory newThreadFactory(final String name) {
+        final AtomicInteger threadCounter = new AtomicInteger();
+
+        return runnable -> {
+            final Thread thread = new Thread(runnable, name + "-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
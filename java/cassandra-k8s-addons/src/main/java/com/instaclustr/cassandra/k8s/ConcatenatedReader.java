@@ -1,45 +1,258 @@
 package com.instaclustr.cassandra.k8s;
 
+import static java.lang.String.format;
+
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.Callable;
 
+/**
+ * Reads all sources one after another as if they were one, separated by new lines.
+ *
+ * Sources are opened lazily, only when the previous one is drained, and every source is closed as soon as
+ * it is drained so there is at most one open source at a time. Each read fills as much of the caller's
+ * buffer as possible, crossing source boundaries, instead of returning a short read at the end of every source.
+ */
 public class ConcatenatedReader extends Reader {
 
-    private final Queue<Reader> readers;
+    public enum Mode {
+        /**
+         * Each file is read through its own decoding input stream reader.
+         */
+        STREAM,
+        /**
+         * Each file is memory-mapped and decoded straight from the mapping into the caller's buffer.
+         */
+        MAPPED;
+
+        public static Mode parse(final String mode) {
+            if (mode == null) {
+                return STREAM;
+            }
+
+            for (final Mode value : values()) {
+                if (value.name().equalsIgnoreCase(mode.trim())) {
+                    return value;
+                }
+            }
+
+            throw new IllegalArgumentException(format("Unknown reader mode \"%s\", valid values are \"stream\" and \"mapped\".", mode));
+        }
+    }
+
+    private final Queue<Callable<Reader>> sources;
+
+    private final List<Reader> openedReaders = new ArrayList<>();
+
+    private Reader currentReader;
+
+    private boolean pendingSeparator;
 
     public ConcatenatedReader(final Collection<? extends Reader> readers) {
-        this.readers = new LinkedList<>(readers);
+        this.sources = new LinkedList<>();
+
+        for (final Reader reader : readers) {
+            this.sources.add(() -> reader);
+        }
+
+        this.openedReaders.addAll(readers);
+    }
+
+    private ConcatenatedReader(final Queue<Callable<Reader>> sources) {
+        this.sources = sources;
+    }
+
+    public static ConcatenatedReader ofPaths(final List<Path> paths, final Charset charset, final Mode mode) {
+        final Queue<Callable<Reader>> sources = new LinkedList<>();
+
+        for (final Path path : paths) {
+            sources.add(() -> {
+                final StartupTimeline.Phase phase = StartupTimeline.CONFIG.begin("open", path.toString());
+
+                try {
+                    phase.bytes(Files.size(path));
+                    return mode == Mode.MAPPED ? new MappedFileReader(path, charset) : new InputStreamReader(Files.newInputStream(path), newDecoder(charset));
+                } catch (final IOException ex) {
+                    throw new IOException(format("Failed to open configuration file \"%s\" for reading.", path), ex);
+                } finally {
+                    phase.end();
+                }
+            });
+        }
+
+        return new ConcatenatedReader(sources);
     }
 
     @Override
     public int read(final char[] cbuf, final int off, final int len) throws IOException {
-        if (readers.isEmpty()) {
-            return -1;
+        if (len == 0) {
+            return 0;
         }
 
-        final Reader currentReader = readers.peek();
+        int filled = 0;
+
+        while (filled < len) {
+            if (pendingSeparator) {
+                // return new-lines between files
+                cbuf[off + filled++] = '\n';
+                pendingSeparator = false;
+                continue;
+            }
 
-        final int bytesRead = currentReader.read(cbuf, off, len);
+            if (currentReader == null) {
+                if (sources.isEmpty()) {
+                    break;
+                }
+                currentReader = open(sources.remove());
+            }
 
-        if (bytesRead != -1) {
-            return bytesRead;
+            final int charsRead = currentReader.read(cbuf, off + filled, len - filled);
+
+            if (charsRead == -1) {
+                currentReader.close();
+                currentReader = null;
+                pendingSeparator = true;
+                continue;
+            }
+
+            filled += charsRead;
         }
 
-        currentReader.close();
-        readers.remove();
+        return filled == 0 ? -1 : filled;
+    }
 
-        // return new-lines between files
-        cbuf[off] = '\n';
-        return 1;
+    private static Reader open(final Callable<Reader> source) throws IOException {
+        try {
+            return source.call();
+        } catch (final IOException ex) {
+            throw ex;
+        } catch (final Exception ex) {
+            throw new IOException(ex);
+        }
     }
 
     @Override
     public void close() throws IOException {
-        for (final Reader reader : readers) {
-            reader.close();
+        sources.clear();
+
+        // sources not reached yet are opened lazily, only readers we were given already opened need closing
+        if (currentReader != null) {
+            openedReaders.add(currentReader);
+            currentReader = null;
+        }
+
+        IOException exception = null;
+
+        for (final Reader reader : openedReaders) {
+            try {
+                reader.close();
+            } catch (final IOException ex) {
+                exception = ex;
+            }
+        }
+
+        openedReaders.clear();
+
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    private static CharsetDecoder newDecoder(final Charset charset) {
+        return charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+    }
+
+    /**
+     * Decodes a memory-mapped file straight into the caller's buffer. The file is mapped and its channel closed
+     * right away so no file handle is kept open while reading.
+     */
+    static final class MappedFileReader extends Reader {
+
+        private final ByteBuffer bytes;
+        private final CharsetDecoder decoder;
+
+        private final CharBuffer leftover = CharBuffer.allocate(2);
+        private boolean flushed;
+
+        MappedFileReader(final Path path, final Charset charset) throws IOException {
+            try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                this.bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            this.decoder = newDecoder(charset);
+            this.leftover.flip();
+        }
+
+        @Override
+        public int read(final char[] cbuf, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            final CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+
+            while (leftover.hasRemaining() && out.hasRemaining()) {
+                out.put(leftover.get());
+            }
+
+            decode(out);
+
+            // not even a single (surrogate pair) character fits, decode it aside and hand out what fits
+            if (out.position() == off && !flushed) {
+                leftover.clear();
+                decode(leftover);
+                leftover.flip();
+
+                while (leftover.hasRemaining() && out.hasRemaining()) {
+                    out.put(leftover.get());
+                }
+            }
+
+            final int charsRead = out.position() - off;
+
+            return charsRead == 0 && flushed ? -1 : charsRead;
+        }
+
+        private void decode(final CharBuffer out) throws IOException {
+            if (flushed) {
+                return;
+            }
+
+            CoderResult result = decoder.decode(bytes, out, true);
+
+            if (result.isError()) {
+                result.throwException();
+            }
+
+            if (result.isUnderflow()) {
+                result = decoder.flush(out);
+
+                if (result.isUnderflow()) {
+                    flushed = true;
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            // mapping is released once unreachable, the channel is closed already
         }
     }
-}
\ No newline at end of file
+}
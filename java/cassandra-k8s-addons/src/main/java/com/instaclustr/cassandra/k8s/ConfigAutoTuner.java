@@ -0,0 +1,160 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.lang.String.format;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Derives performance settings from CPUs and memory of the container, see {@link ContainerLimits}, and the heap.
+ *
+ * Only settings which were not set explicitly are derived, a setting is explicit when any configuration file sets it
+ * to a value at its top level. Every derived value is logged together with what it was derived from, only when it
+ * changes so reloads of configuration do not repeat it.
+ *
+ * Settings are set by name via reflection so the same tuner works for Config of every Cassandra version.
+ */
+public final class ConfigAutoTuner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfigAutoTuner.class);
+
+    private final ContainerLimits limits;
+    private final long maxHeap;
+
+    private final Map<String, Object> logged = new HashMap<>();
+
+    public ConfigAutoTuner(final ContainerLimits limits, final long maxHeap) {
+        this.limits = limits;
+        this.maxHeap = maxHeap;
+    }
+
+    /**
+     * @param fragments configuration files as parsed by a YAML parser, so keys are told apart however they are written
+     * @return top-level keys given files set to a value, "key:" with no value is null just as if it was not there
+     */
+    public static Set<String> explicitKeys(final List<? extends Map<?, ?>> fragments) {
+        final Set<String> keys = new HashSet<>();
+
+        for (final Map<?, ?> fragment : fragments) {
+            for (final Map.Entry<?, ?> entry : fragment.entrySet()) {
+                if (entry.getKey() instanceof String && entry.getValue() != null) {
+                    keys.add((String) entry.getKey());
+                }
+            }
+        }
+
+        return keys;
+    }
+
+    /**
+     * @param config Cassandra's Config to set derived settings on
+     * @param explicitKeys settings not to touch
+     * @param dataDirectories number of data file directories, roughly the number of drives
+     * @return derived settings which were set
+     */
+    public List<String> tune(final Object config, final Set<String> explicitKeys, final int dataDirectories) {
+        final List<String> tuned = new ArrayList<>();
+
+        for (final Map.Entry<String, Derived> entry : derive(Math.max(1, dataDirectories)).entrySet()) {
+            final String key = entry.getKey();
+            final Derived derived = entry.getValue();
+
+            if (explicitKeys.contains(key)) {
+                continue;
+            }
+
+            try {
+                final Field field = config.getClass().getField(key);
+                field.set(config, convert(derived.value, field.getType()));
+                tuned.add(key);
+            } catch (final NoSuchFieldException ex) {
+                // not in this version of Cassandra
+                continue;
+            } catch (final ReflectiveOperationException | IllegalArgumentException ex) {
+                logger.warn(format("Unable to set auto-tuned %s", key), ex);
+                continue;
+            }
+
+            synchronized (logged) {
+                if (!derived.value.equals(logged.put(key, derived.value))) {
+                    logger.info("Auto-tuned {} to {}, {}", key, derived.value, derived.reason);
+                }
+            }
+        }
+
+        return tuned;
+    }
+
+    private Map<String, Derived> derive(final int drives) {
+        final Map<String, Derived> derived = new LinkedHashMap<>();
+
+        final int cpus = limits.getCpus();
+        final String cpuSource = format("%s CPUs from %s", cpus, limits.getCpuSource());
+        final long heapMb = maxHeap >> 20;
+
+        // Cassandra recommends 16 per drive for reads, as reads wait for disk, but there is no point in queueing more
+        // of them than CPUs can serve; writes are CPU bound so 8 per CPU
+        final int concurrentReads = clamp(16 * drives, 16, Math.max(16, 8 * cpus));
+        derived.put("concurrent_reads", new Derived(concurrentReads, format("16 x %s data directories, at most 8 x %s", drives, cpuSource)));
+        derived.put("concurrent_writes", new Derived(clamp(8 * cpus, 16, 128), format("8 x %s", cpuSource)));
+        derived.put("concurrent_counter_writes", new Derived(concurrentReads, "same as concurrent_reads as counter writes read first"));
+
+        // Cassandra's own default, just on CPUs of the container rather than of the host
+        derived.put("concurrent_compactors", new Derived(Math.min(8, Math.max(2, Math.min(cpus, drives))),
+                                                         format("smaller of %s and %s data directories, 2 to 8", cpuSource, drives)));
+
+        derived.put("native_transport_max_threads", new Derived(clamp(16 * cpus, 32, 128), format("16 x %s", cpuSource)));
+
+        if (heapMb > 0) {
+            derived.put("memtable_heap_space_in_mb", new Derived((int) (heapMb / 4), format("1/4 of %s MiB heap", heapMb)));
+            derived.put("key_cache_size_in_mb", new Derived(Math.min(heapMb / 20, 512), format("5%% of %s MiB heap, at most 512", heapMb)));
+        }
+
+        final long memoryMb = limits.getMemory() >> 20;
+
+        if (memoryMb > heapMb && heapMb > 0) {
+            // off-heap memory is shared with page cache, bloom filters, compression metadata and direct buffers
+            derived.put("memtable_offheap_space_in_mb", new Derived((int) Math.max(64, (memoryMb - heapMb) / 8),
+                                                                    format("1/8 of %s MiB memory outside of heap, from %s", memoryMb - heapMb, limits.getMemorySource())));
+        }
+
+        return derived;
+    }
+
+    private static int clamp(final int value, final int min, final int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static Object convert(final Object value, final Class<?> type) {
+        final Number number = (Number) value;
+
+        if (type == int.class || type == Integer.class) {
+            return number.intValue();
+        }
+        if (type == long.class || type == Long.class) {
+            return number.longValue();
+        }
+
+        return value;
+    }
+
+    private static final class Derived {
+
+        private final Object value;
+        private final String reason;
+
+        private Derived(final Object value, final String reason) {
+            this.value = value;
+            this.reason = reason;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches configuration files and directories and calls back once they have stopped changing for a quiet period.
+ *
+ * Directories are watched themselves, files through their parent directory. Kubernetes updates mounted ConfigMaps
+ * by swapping a "..data" symlink in the mounted directory, which shows up as a burst of create and delete events
+ * there, the quiet period makes such a burst end up as a single call back.
+ */
+public class ConfigDirectoryWatcher implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfigDirectoryWatcher.class);
+
+    private final WatchService watchService;
+    private final Duration quietPeriod;
+    private final Runnable onChange;
+    private final Thread thread;
+
+    public ConfigDirectoryWatcher(final List<Path> paths, final Duration quietPeriod, final Runnable onChange) throws IOException {
+        this.watchService = paths.isEmpty() ? null : paths.get(0).getFileSystem().newWatchService();
+        this.quietPeriod = quietPeriod;
+        this.onChange = onChange;
+
+        final Set<Path> directories = new LinkedHashSet<>();
+
+        for (final Path path : paths) {
+            final Path directory = Files.isDirectory(path) ? path : path.toAbsolutePath().getParent();
+
+            if (directory != null && Files.isDirectory(directory)) {
+                directories.add(directory);
+            }
+        }
+
+        for (final Path directory : directories) {
+            directory.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+            logger.info("Watching {} for configuration changes", directory);
+        }
+
+        this.thread = new Thread(this::watch, "cassandra-config-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    public ConfigDirectoryWatcher start() {
+        if (watchService != null) {
+            thread.start();
+        }
+        return this;
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                drain(watchService.take());
+
+                // wait until there are no more events for the whole quiet period
+                WatchKey key;
+                while ((key = watchService.poll(quietPeriod.toMillis(), TimeUnit.MILLISECONDS)) != null) {
+                    drain(key);
+                }
+
+                try {
+                    onChange.run();
+                } catch (final Exception ex) {
+                    logger.error("Unable to process configuration change", ex);
+                }
+            }
+        } catch (final InterruptedException | ClosedWatchServiceException ex) {
+            logger.debug("Configuration watcher stopped");
+        }
+    }
+
+    private static void drain(final WatchKey key) {
+        key.pollEvents().forEach(event -> logger.debug("Configuration event {} on {} in {}", event.kind(), event.context(), key.watchable()));
+        key.reset();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+}
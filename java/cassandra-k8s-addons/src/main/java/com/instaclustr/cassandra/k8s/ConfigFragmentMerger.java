@@ -0,0 +1,97 @@
+package com.instaclustr.cassandra.k8s;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Deep-merges parsed YAML configuration fragments in the order they are added.
+ *
+ * When a key is present in more than one fragment, the later fragment wins, with the exception of
+ * two maps under the same key which are merged key by key. Lists and scalars are replaced as a whole.
+ *
+ * For every leaf key (e.g. "client_encryption_options.enabled") we remember which fragment supplied it
+ * and which keys were overridden by later fragments.
+ */
+public final class ConfigFragmentMerger {
+
+    private final Map<String, Object> merged = new LinkedHashMap<>();
+
+    private final Map<String, String> keySources = new TreeMap<>();
+
+    private final List<String> overrides = new ArrayList<>();
+
+    public ConfigFragmentMerger merge(final String source, final Map<String, Object> fragment) {
+        merge(source, "", merged, fragment);
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void merge(final String source, final String prefix, final Map<String, Object> target, final Map<String, Object> fragment) {
+        for (final Map.Entry<String, Object> entry : fragment.entrySet()) {
+            final String key = prefix + entry.getKey();
+            final Object existing = target.get(entry.getKey());
+            final Object value = entry.getValue();
+
+            if (existing instanceof Map && value instanceof Map) {
+                merge(source, key + ".", (Map<String, Object>) existing, (Map<String, Object>) value);
+                continue;
+            }
+
+            if (target.containsKey(entry.getKey())) {
+                forgetSources(key);
+                overrides.add(String.format("\"%s\" of \"%s\" overridden by \"%s\"", key, keySources.getOrDefault(key, "a previous fragment"), source));
+            }
+
+            target.put(entry.getKey(), value instanceof Map ? copy((Map<String, Object>) value) : value);
+            recordSources(source, key, value);
+        }
+    }
+
+    private void forgetSources(final String key) {
+        keySources.keySet().removeIf(existing -> existing.startsWith(key + "."));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void recordSources(final String source, final String key, final Object value) {
+        if (value instanceof Map && !((Map<?, ?>) value).isEmpty()) {
+            for (final Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                recordSources(source, key + "." + entry.getKey(), entry.getValue());
+            }
+        } else {
+            keySources.put(key, source);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> copy(final Map<String, Object> map) {
+        final Map<String, Object> copy = new LinkedHashMap<>();
+
+        for (final Map.Entry<String, Object> entry : map.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue() instanceof Map ? copy((Map<String, Object>) entry.getValue()) : entry.getValue());
+        }
+
+        return copy;
+    }
+
+    /**
+     * @return merged configuration, top-level keys are the keys set by fragments
+     */
+    public Map<String, Object> getMerged() {
+        return merged;
+    }
+
+    /**
+     * @return leaf key paths, e.g. "client_encryption_options.enabled", mapped to fragment which supplied them
+     */
+    public Map<String, String> getKeySources() {
+        return Collections.unmodifiableMap(keySources);
+    }
+
+    public List<String> getOverrides() {
+        return Collections.unmodifiableList(overrides);
+    }
+}
@@ -0,0 +1,729 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.lang.String.format;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Content-addressed binary snapshot of a loaded configuration object, so an unchanged configuration
+ * does not need to be parsed again on the next start.
+ *
+ * The snapshot is keyed by a hash of the ordered configuration files (paths and contents), of the shape of
+ * the configuration class (so a Cassandra upgrade invalidates it) and of anything else affecting how files
+ * are parsed. Only fields which differ from a freshly constructed configuration object are stored.
+ *
+ * Values are encoded reflectively - primitives and their wrappers, strings, enums, arrays, lists, sets, maps
+ * and objects of non-JDK classes with a no-arg constructor. Fields of other interface types (e.g. loggers) are
+ * left as the constructor initialised them. Collections are re-created as the very same class of {@code java.util},
+ * either by its public no-arg constructor, by filling the collection a freshly constructed object holds, e.g. a
+ * concurrent set, or by the factory of an immutable one, e.g. {@link Collections#emptyMap()}.
+ * Whatever else makes writing (or reading) fail and callers are expected to parse files as usual.
+ *
+ * Class names read from a snapshot are only ever resolved against types reachable from fields of the configuration
+ * class (and JDK collections), a snapshot naming anything else is refused rather than loaded.
+ *
+ * Excluded fields, e.g. those holding passwords, are never written, the snapshot is readable by its owner only
+ * anyway. Callers parse them from their top-level sections of configuration files again, see
+ * {@link #excludedSections(Path)}.
+ *
+ * @param <T> type of configuration
+ */
+public final class ConfigSnapshot<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfigSnapshot.class);
+
+    private static final int MAGIC = 0x4b38534e;
+    private static final int FORMAT_VERSION = 2;
+    private static final int MAX_DEPTH = 32;
+
+    // a plain scalar key, anything else at the start of a line (quoted keys, flow mappings, merge keys, directives)
+    // makes it unknown which keys a file sets
+    private static final Pattern TOP_LEVEL_KEY = Pattern.compile("([A-Za-z_][A-Za-z0-9_.-]*)[ \\t]*:(?:[ \\t]|$)");
+
+    private static final byte NULL = 0;
+    private static final byte BOOLEAN = 1;
+    private static final byte BYTE = 2;
+    private static final byte SHORT = 3;
+    private static final byte CHAR = 4;
+    private static final byte INT = 5;
+    private static final byte LONG = 6;
+    private static final byte FLOAT = 7;
+    private static final byte DOUBLE = 8;
+    private static final byte STRING = 9;
+    private static final byte ENUM = 10;
+    private static final byte ARRAY = 11;
+    private static final byte LIST = 12;
+    private static final byte SET = 13;
+    private static final byte MAP = 14;
+    private static final byte OBJECT = 15;
+
+    // immutable collections of the JDK, re-created by the very factories which made them, by name of their classes
+    private static final Map<String, Function<List<Object>, Collection<Object>>> IMMUTABLE_COLLECTIONS = new HashMap<>();
+    private static final Map<String, Function<Map<Object, Object>, Map<Object, Object>>> IMMUTABLE_MAPS = new HashMap<>();
+
+    static {
+        IMMUTABLE_COLLECTIONS.put(Collections.emptyList().getClass().getName(), elements -> Collections.emptyList());
+        IMMUTABLE_COLLECTIONS.put(Collections.emptySet().getClass().getName(), elements -> Collections.emptySet());
+        IMMUTABLE_COLLECTIONS.put(Collections.singletonList(null).getClass().getName(), elements -> Collections.singletonList(elements.get(0)));
+        IMMUTABLE_COLLECTIONS.put(Collections.singleton(null).getClass().getName(), elements -> Collections.singleton(elements.get(0)));
+        IMMUTABLE_COLLECTIONS.put(Collections.unmodifiableList(new ArrayList<>()).getClass().getName(), elements -> Collections.unmodifiableList(elements));
+        IMMUTABLE_COLLECTIONS.put(Collections.unmodifiableSet(new LinkedHashSet<>()).getClass().getName(), elements -> Collections.unmodifiableSet(new LinkedHashSet<>(elements)));
+
+        IMMUTABLE_MAPS.put(Collections.emptyMap().getClass().getName(), entries -> Collections.emptyMap());
+        IMMUTABLE_MAPS.put(Collections.singletonMap(null, null).getClass().getName(), entries -> {
+            final Map.Entry<Object, Object> entry = entries.entrySet().iterator().next();
+            return Collections.singletonMap(entry.getKey(), entry.getValue());
+        });
+        IMMUTABLE_MAPS.put(Collections.unmodifiableMap(new LinkedHashMap<>()).getClass().getName(), entries -> Collections.unmodifiableMap(entries));
+    }
+
+    private final Path file;
+    private final Class<T> type;
+    private final Supplier<T> factory;
+    private final Set<String> excludedFields;
+    private final Map<String, Class<?>> reachableTypes;
+
+    /**
+     * @param excludedFields top-level fields never to be written, they are named the same as their configuration keys
+     */
+    public ConfigSnapshot(final Path file, final Class<T> type, final Supplier<T> factory, final Collection<String> excludedFields) {
+        this.file = file;
+        this.type = type;
+        this.factory = factory;
+        this.excludedFields = new HashSet<>(excludedFields);
+        this.reachableTypes = reachableTypes(type);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @param paths          configuration files in the order they are loaded
+     * @param discriminators anything else which changes the outcome of loading, e.g. loading mode
+     * @return hex-encoded hash identifying the configuration these files produce
+     */
+    public String hash(final List<Path> paths, final String... discriminators) throws IOException {
+        final MessageDigest digest = sha256();
+
+        update(digest, Integer.toString(FORMAT_VERSION));
+        update(digest, fingerprint(type));
+
+        for (final String discriminator : discriminators) {
+            update(digest, discriminator);
+        }
+
+        final byte[] buffer = new byte[8192];
+
+        for (final Path path : paths) {
+            update(digest, path.toString());
+
+            try (final InputStream in = Files.newInputStream(path)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+
+            digest.update((byte) 0);
+        }
+
+        final StringBuilder hex = new StringBuilder();
+
+        for (final byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+
+        return hex.toString();
+    }
+
+    /**
+     * @return snapshot stored under given hash or null if there is none or it can not be read
+     */
+    public Loaded<T> read(final String hash) {
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                logger.info("Configuration snapshot {} is of unknown format, ignoring it", file);
+                return null;
+            }
+
+            if (!hash.equals(in.readUTF())) {
+                logger.info("Configuration snapshot {} is stale, configuration files have changed", file);
+                return null;
+            }
+
+            final long parseNanos = in.readLong();
+            final T config = factory.get();
+            final int fields = in.readInt();
+
+            for (int i = 0; i < fields; i++) {
+                final Field field = findField(type, in.readUTF());
+                field.set(config, decode(in, 0, field.get(config)));
+            }
+
+            return new Loaded<>(config, parseNanos);
+        } catch (final NoSuchFileException ex) {
+            return null;
+        } catch (final Exception | LinkageError ex) {
+            logger.warn(format("Unable to read configuration snapshot %s, ignoring it", file), ex);
+            return null;
+        }
+    }
+
+    /**
+     * Atomically replaces the snapshot with given configuration.
+     *
+     * @param parseNanos how long it took to load the configuration from files, to report time saved later on
+     */
+    public void write(final String hash, final T config, final long parseNanos) throws IOException {
+        final T defaults = factory.get();
+        final List<Field> changed = new ArrayList<>();
+
+        try {
+            for (final Field field : instanceFields(type)) {
+                if (!excludedFields.contains(field.getName()) && !Objects.deepEquals(field.get(config), field.get(defaults))) {
+                    changed.add(field);
+                }
+            }
+        } catch (final IllegalAccessException | RuntimeException ex) {
+            throw new IOException(format("Unable to snapshot configuration of type %s", type.getName()), ex);
+        }
+
+        final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        createOwnerOnly(temp);
+
+        try (final OutputStream fileOut = Files.newOutputStream(temp);
+             final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(hash);
+            out.writeLong(parseNanos);
+            out.writeInt(changed.size());
+
+            for (final Field field : changed) {
+                out.writeUTF(field.getName());
+                encode(field.get(config), field.get(defaults), out, 0);
+            }
+        } catch (final IOException | ReflectiveOperationException | RuntimeException ex) {
+            Files.deleteIfExists(temp);
+            throw new IOException(format("Unable to write configuration snapshot %s", file), ex);
+        }
+
+        AtomicFiles.move(temp, file);
+    }
+
+    /**
+     * Top-level sections of excluded fields in given configuration file, as YAML, to be parsed on their own when
+     * the rest of configuration is read from the snapshot.
+     *
+     * A section is its key, a plain scalar at the start of a line, and all lines after it which are indented, empty,
+     * comments or items of a sequence.
+     *
+     * @throws IOException also when a line starts with anything else, e.g. a quoted key or a flow mapping, as an
+     *                     excluded field might be set there, callers are expected to parse files as usual then
+     */
+    public String excludedSections(final Path configFile) throws IOException {
+        final StringBuilder sections = new StringBuilder();
+        boolean inSection = false;
+        int lineNumber = 0;
+
+        for (final String line : Files.readAllLines(configFile, StandardCharsets.UTF_8)) {
+            lineNumber++;
+
+            final boolean continuation = line.isEmpty() || Character.isWhitespace(line.charAt(0)) || line.charAt(0) == '#'
+                || line.equals("-") || line.startsWith("- ");
+
+            if (!continuation) {
+                final Matcher matcher = TOP_LEVEL_KEY.matcher(line);
+
+                if (!matcher.lookingAt()) {
+                    throw new IOException(format("Top-level key at line %s of %s is not a plain scalar", lineNumber, configFile));
+                }
+
+                inSection = excludedFields.contains(matcher.group(1));
+            }
+
+            if (inSection) {
+                sections.append(line).append('\n');
+            }
+        }
+
+        return sections.toString();
+    }
+
+    /**
+     * Sets excluded fields of given configuration to those of another one, e.g. one parsed from
+     * {@link #excludedSections(Path)}.
+     */
+    public void copyExcludedFields(final T from, final T to) throws ReflectiveOperationException {
+        for (final String name : excludedFields) {
+            final Field field;
+
+            try {
+                field = findField(type, name);
+            } catch (final NoSuchFieldException ex) {
+                // not in this version of the configuration
+                continue;
+            }
+
+            field.set(to, field.get(from));
+        }
+    }
+
+    private static void createOwnerOnly(final Path path) throws IOException {
+        Files.deleteIfExists(path);
+
+        try {
+            Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (final UnsupportedOperationException ex) {
+            // not a POSIX file system
+            Files.createFile(path);
+        }
+    }
+
+    /**
+     * @param defaultValue value at the same place in a freshly constructed object, if there is one
+     */
+    private void encode(final Object value, final Object defaultValue, final DataOutputStream out, final int depth) throws IOException, ReflectiveOperationException {
+        if (depth > MAX_DEPTH) {
+            throw new IOException("Configuration is nested too deep to be snapshotted");
+        }
+
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Character) {
+            out.writeByte(CHAR);
+            out.writeChar((Character) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString((String) value, out);
+        } else if (value instanceof Enum) {
+            checkReachable(((Enum<?>) value).getDeclaringClass());
+            out.writeByte(ENUM);
+            out.writeUTF(((Enum<?>) value).getDeclaringClass().getName());
+            out.writeUTF(((Enum<?>) value).name());
+        } else if (value.getClass().isArray()) {
+            checkReachable(value.getClass().getComponentType());
+            out.writeByte(ARRAY);
+            out.writeUTF(value.getClass().getComponentType().getName());
+            final int length = Array.getLength(value);
+            out.writeInt(length);
+            for (int i = 0; i < length; i++) {
+                encode(Array.get(value, i), null, out, depth + 1);
+            }
+        } else if (value instanceof List || value instanceof Set) {
+            checkRecreatable(value, defaultValue);
+            out.writeByte(value instanceof List ? LIST : SET);
+            out.writeUTF(value.getClass().getName());
+            out.writeInt(((Collection<?>) value).size());
+            for (final Object element : (Collection<?>) value) {
+                encode(element, null, out, depth + 1);
+            }
+        } else if (value instanceof Map) {
+            checkRecreatable(value, defaultValue);
+            out.writeByte(MAP);
+            out.writeUTF(value.getClass().getName());
+            out.writeInt(((Map<?, ?>) value).size());
+            for (final Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                encode(entry.getKey(), null, out, depth + 1);
+                encode(entry.getValue(), null, out, depth + 1);
+            }
+        } else {
+            if (isJdkClass(value.getClass())) {
+                throw new IOException(format("Values of type %s can not be snapshotted", value.getClass().getName()));
+            }
+
+            checkReachable(value.getClass());
+
+            final List<Field> fields = instanceFields(value.getClass());
+            // reading starts from a fresh object too, see decode
+            final Object defaults = instantiate(value.getClass());
+
+            out.writeByte(OBJECT);
+            out.writeUTF(value.getClass().getName());
+            out.writeInt(fields.size());
+
+            for (final Field field : fields) {
+                out.writeUTF(field.getName());
+                encode(field.get(value), field.get(defaults), out, depth + 1);
+            }
+        }
+    }
+
+    /**
+     * Collection has to be read back as the very same class of {@code java.util}, by its constructor, into the one
+     * a fresh object holds or by the factory of an immutable one.
+     */
+    private static void checkRecreatable(final Object collection, final Object defaultValue) throws IOException {
+        final String className = collection.getClass().getName();
+
+        if (IMMUTABLE_COLLECTIONS.containsKey(className) || IMMUTABLE_MAPS.containsKey(className)) {
+            return;
+        }
+
+        if (!isCollectionClassName(className)
+            || !hasPublicConstructor(collection.getClass()) && (defaultValue == null || defaultValue.getClass() != collection.getClass())) {
+            throw new IOException(format("Collections of type %s can not be snapshotted", className));
+        }
+    }
+
+    private void checkReachable(final Class<?> valueType) throws IOException {
+        if (reachableTypes.get(valueType.getName()) != valueType) {
+            throw new IOException(format("Values of type %s can not be snapshotted, it is not a type of any field of %s", valueType.getName(), type.getName()));
+        }
+    }
+
+    /**
+     * @param existing value at the same place in a freshly constructed object, collections are read into it when
+     *                 their class has no public no-arg constructor
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object decode(final DataInputStream in, final int depth, final Object existing) throws Exception {
+        if (depth > MAX_DEPTH) {
+            throw new IOException("Configuration snapshot is nested too deep");
+        }
+
+        final byte tag = in.readByte();
+
+        switch (tag) {
+            case NULL:
+                return null;
+            case BOOLEAN:
+                return in.readBoolean();
+            case BYTE:
+                return in.readByte();
+            case SHORT:
+                return in.readShort();
+            case CHAR:
+                return in.readChar();
+            case INT:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case FLOAT:
+                return in.readFloat();
+            case DOUBLE:
+                return in.readDouble();
+            case STRING:
+                return readString(in);
+            case ENUM: {
+                final Class<?> enumType = reachableType(in.readUTF());
+                if (!enumType.isEnum()) {
+                    throw new IOException(format("Type %s in configuration snapshot is not an enum", enumType.getName()));
+                }
+                return Enum.valueOf((Class<Enum>) enumType, in.readUTF());
+            }
+            case ARRAY: {
+                final Class<?> componentType = reachableType(in.readUTF());
+                final int length = in.readInt();
+                final Object array = Array.newInstance(componentType, length);
+                for (int i = 0; i < length; i++) {
+                    Array.set(array, i, decode(in, depth + 1, null));
+                }
+                return array;
+            }
+            case LIST:
+            case SET: {
+                final String className = in.readUTF();
+                final int size = in.readInt();
+                final List<Object> elements = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    elements.add(decode(in, depth + 1, null));
+                }
+
+                if (IMMUTABLE_COLLECTIONS.containsKey(className)) {
+                    return IMMUTABLE_COLLECTIONS.get(className).apply(elements);
+                }
+
+                final Collection<Object> collection = (Collection<Object>) newInstance(className, existing);
+                collection.addAll(elements);
+                return collection;
+            }
+            case MAP: {
+                final String className = in.readUTF();
+                final int size = in.readInt();
+                final Map<Object, Object> entries = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    entries.put(decode(in, depth + 1, null), decode(in, depth + 1, null));
+                }
+
+                if (IMMUTABLE_MAPS.containsKey(className)) {
+                    return IMMUTABLE_MAPS.get(className).apply(entries);
+                }
+
+                final Map<Object, Object> map = (Map<Object, Object>) newInstance(className, existing);
+                map.putAll(entries);
+                return map;
+            }
+            case OBJECT: {
+                final Class<?> objectType = reachableType(in.readUTF());
+                final Object object = instantiate(objectType);
+                final int fields = in.readInt();
+                for (int i = 0; i < fields; i++) {
+                    final Field field = findField(objectType, in.readUTF());
+                    field.set(object, decode(in, depth + 1, field.get(object)));
+                }
+                return object;
+            }
+            default:
+                throw new IOException(format("Unknown value tag %s in configuration snapshot", tag));
+        }
+    }
+
+    private static void writeString(final String value, final DataOutputStream out) throws IOException {
+        // writeUTF is limited to 64k bytes
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Class<?> reachableType(final String name) throws IOException {
+        final Class<?> reachable = reachableTypes.get(name);
+
+        if (reachable == null) {
+            throw new IOException(format("Type %s in configuration snapshot is not a type of any field of %s", name, type.getName()));
+        }
+
+        return reachable;
+    }
+
+    /**
+     * Collections are re-created as the very same class, by its public no-arg constructor, or the one a fresh object
+     * holds is emptied and reused, e.g. a concurrent set which has no constructor of its own.
+     */
+    private static Object newInstance(final String className, final Object existing) throws Exception {
+        if (!isCollectionClassName(className)) {
+            throw new IOException(format("Type %s in configuration snapshot is not a collection of java.util", className));
+        }
+
+        // not initialised until it is known to be a collection
+        final Class<?> collectionType = Class.forName(className, false, null);
+
+        if (!Collection.class.isAssignableFrom(collectionType) && !Map.class.isAssignableFrom(collectionType)) {
+            throw new IOException(format("Type %s in configuration snapshot is not a collection", className));
+        }
+
+        if (hasPublicConstructor(collectionType)) {
+            return collectionType.getConstructor().newInstance();
+        }
+
+        if (existing instanceof Collection && existing.getClass() == collectionType) {
+            ((Collection<?>) existing).clear();
+            return existing;
+        }
+
+        if (existing instanceof Map && existing.getClass() == collectionType) {
+            ((Map<?, ?>) existing).clear();
+            return existing;
+        }
+
+        throw new IOException(format("Collection of type %s can not be re-created", className));
+    }
+
+    private static boolean hasPublicConstructor(final Class<?> type) {
+        try {
+            return Modifier.isPublic(type.getModifiers()) && Modifier.isPublic(type.getConstructor().getModifiers());
+        } catch (final NoSuchMethodException ex) {
+            return false;
+        }
+    }
+
+    private static Object instantiate(final Class<?> objectType) throws ReflectiveOperationException {
+        final Constructor<?> constructor = objectType.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        return constructor.newInstance();
+    }
+
+    private static boolean isCollectionClassName(final String className) {
+        return className.startsWith("java.util.");
+    }
+
+    /**
+     * Types of fields of given class, of their type arguments and array components and so on through fields of
+     * non-JDK classes, by name. Only these are ever resolved while reading a snapshot.
+     */
+    private static Map<String, Class<?>> reachableTypes(final Class<?> root) {
+        final Map<String, Class<?>> reachable = new HashMap<>();
+        final Deque<Type> pending = new ArrayDeque<>();
+
+        pending.add(root);
+
+        while (!pending.isEmpty()) {
+            final Type next = pending.pop();
+
+            if (next instanceof ParameterizedType) {
+                pending.add(((ParameterizedType) next).getRawType());
+                pending.addAll(Arrays.asList(((ParameterizedType) next).getActualTypeArguments()));
+            } else if (next instanceof GenericArrayType) {
+                pending.add(((GenericArrayType) next).getGenericComponentType());
+            } else if (next instanceof WildcardType) {
+                pending.addAll(Arrays.asList(((WildcardType) next).getUpperBounds()));
+            } else if (next instanceof Class) {
+                final Class<?> nextClass = (Class<?>) next;
+
+                if (nextClass.isArray()) {
+                    pending.add(nextClass.getComponentType());
+                } else if (reachable.put(nextClass.getName(), nextClass) == null && !isJdkClass(nextClass) && !nextClass.isEnum()) {
+                    for (final Field field : instanceFields(nextClass)) {
+                        pending.add(field.getGenericType());
+                    }
+                }
+            }
+        }
+
+        return reachable;
+    }
+
+    static boolean isJdkClass(final Class<?> type) {
+        final String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.") || name.startsWith("jdk.") || name.startsWith("com.sun.");
+    }
+
+    static List<Field> instanceFields(final Class<?> type) {
+        final List<Field> fields = new ArrayList<>();
+
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (final Field field : current.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers()) || field.isSynthetic()) {
+                    continue;
+                }
+                // fields like loggers are not configuration, YAML could not have populated them either
+                if (field.getType().isInterface() && !Collection.class.isAssignableFrom(field.getType()) && !Map.class.isAssignableFrom(field.getType())) {
+                    continue;
+                }
+                field.setAccessible(true);
+                fields.add(field);
+            }
+        }
+
+        return fields;
+    }
+
+    private static Field findField(final Class<?> type, final String name) throws NoSuchFieldException {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            try {
+                final Field field = current.getDeclaredField(name);
+                field.setAccessible(true);
+                return field;
+            } catch (final NoSuchFieldException ex) {
+                // try superclass
+            }
+        }
+        throw new NoSuchFieldException(format("Field %s not found in %s", name, type.getName()));
+    }
+
+    private static String fingerprint(final Class<?> type) {
+        final StringBuilder fingerprint = new StringBuilder(type.getName());
+
+        for (final Field field : instanceFields(type)) {
+            fingerprint.append(';').append(field.getName()).append(':').append(field.getGenericType().getTypeName());
+        }
+
+        return fingerprint.toString();
+    }
+
+    private static void update(final MessageDigest digest, final String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    public static final class Loaded<T> {
+
+        private final T config;
+        private final long parseNanos;
+
+        Loaded(final T config, final long parseNanos) {
+            this.config = config;
+            this.parseNanos = parseNanos;
+        }
+
+        public T getConfig() {
+            return config;
+        }
+
+        /**
+         * @return how long it took to load the configuration from files when the snapshot was written
+         */
+        public long getParseNanos() {
+            return parseNanos;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * CPU and memory available to the container we run in, read from cgroup v2 or v1 filesystem.
+ *
+ * Kubernetes mounts the cgroup of the container itself at /sys/fs/cgroup, so its limits are read right from there.
+ * What is not limited falls back to the cpuset, the host's processors or memory in /proc/meminfo. Every value comes
+ * with the file it was read from so decisions made on it can be explained.
+ *
+ * The root of the filesystem is given so limits can be read from a fake tree too.
+ */
+public final class ContainerLimits {
+
+    // cgroup v1 reports "no limit" as a page aligned Long.MAX_VALUE, anything this big is no limit
+    private static final long UNLIMITED_MEMORY = 1L << 60;
+
+    private final int cgroupVersion;
+    private final double cpuQuota;
+    private final int cpus;
+    private final String cpuSource;
+    private final long memoryLimit;
+    private final long memory;
+    private final String memorySource;
+
+    private ContainerLimits(final int cgroupVersion,
+                            final double cpuQuota,
+                            final int cpus,
+                            final String cpuSource,
+                            final long memoryLimit,
+                            final long memory,
+                            final String memorySource) {
+        this.cgroupVersion = cgroupVersion;
+        this.cpuQuota = cpuQuota;
+        this.cpus = cpus;
+        this.cpuSource = cpuSource;
+        this.memoryLimit = memoryLimit;
+        this.memory = memory;
+        this.memorySource = memorySource;
+    }
+
+    public static ContainerLimits read() {
+        return read(Paths.get("/"), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param root root of the filesystem to read cgroup, /proc/meminfo and cpuset from
+     * @param hostCpus processors to assume when neither quota nor cpuset limit them
+     */
+    public static ContainerLimits read(final Path root, final int hostCpus) {
+        final Path cgroup = root.resolve("sys/fs/cgroup");
+
+        if (Files.exists(cgroup.resolve("cgroup.controllers"))) {
+            return readV2(root, cgroup, hostCpus);
+        }
+
+        if (Files.isDirectory(cgroup.resolve("memory")) || Files.isDirectory(cgroup.resolve("cpu")) || Files.isDirectory(cgroup.resolve("cpu,cpuacct"))) {
+            return readV1(root, cgroup, hostCpus);
+        }
+
+        final Source<Long> hostMemory = hostMemory(root);
+
+        return new ContainerLimits(0, -1, hostCpus, "available processors", -1, hostMemory.value, hostMemory.source);
+    }
+
+    private static ContainerLimits readV2(final Path root, final Path cgroup, final int hostCpus) {
+        double quota = -1;
+
+        // "max 100000" or "200000 100000"
+        final String[] cpuMax = readFirstLine(cgroup.resolve("cpu.max")).split("\\s+");
+
+        if (cpuMax.length == 2 && !"max".equals(cpuMax[0])) {
+            quota = quota(parseLong(cpuMax[0], -1), parseLong(cpuMax[1], -1));
+        }
+
+        final Source<Integer> cpus = cpus(quota, "cgroup v2 " + cgroup.resolve("cpu.max"), cgroup.resolve("cpuset.cpus.effective"), hostCpus);
+
+        final String memoryMax = readFirstLine(cgroup.resolve("memory.max"));
+        final long limit = "max".equals(memoryMax) ? -1 : memoryLimit(parseLong(memoryMax, -1));
+        final Source<Long> memory = memory(limit, "cgroup v2 " + cgroup.resolve("memory.max"), root);
+
+        return new ContainerLimits(2, quota, cpus.value, cpus.source, limit, memory.value, memory.source);
+    }
+
+    private static ContainerLimits readV1(final Path root, final Path cgroup, final int hostCpus) {
+        Path cpu = cgroup.resolve("cpu");
+
+        if (!Files.isDirectory(cpu)) {
+            cpu = cgroup.resolve("cpu,cpuacct");
+        }
+
+        final double quota = quota(parseLong(readFirstLine(cpu.resolve("cpu.cfs_quota_us")), -1),
+                                   parseLong(readFirstLine(cpu.resolve("cpu.cfs_period_us")), -1));
+
+        final Source<Integer> cpus = cpus(quota, "cgroup v1 " + cpu.resolve("cpu.cfs_quota_us"), cgroup.resolve("cpuset/cpuset.cpus"), hostCpus);
+
+        final Path memoryLimitPath = cgroup.resolve("memory/memory.limit_in_bytes");
+        final long limit = memoryLimit(parseLong(readFirstLine(memoryLimitPath), -1));
+        final Source<Long> memory = memory(limit, "cgroup v1 " + memoryLimitPath, root);
+
+        return new ContainerLimits(1, quota, cpus.value, cpus.source, limit, memory.value, memory.source);
+    }
+
+    private static double quota(final long quota, final long period) {
+        return quota > 0 && period > 0 ? (double) quota / period : -1;
+    }
+
+    private static long memoryLimit(final long limit) {
+        return limit <= 0 || limit >= UNLIMITED_MEMORY ? -1 : limit;
+    }
+
+    private static Source<Integer> cpus(final double quota, final String quotaSource, final Path cpuset, final int hostCpus) {
+        final int cpusetCpus = countCpus(readFirstLine(cpuset));
+
+        if (quota > 0) {
+            // a quota of 1.5 CPU can keep two CPUs busy, just not all the time
+            final int quotaCpus = (int) Math.ceil(quota);
+
+            if (cpusetCpus > 0 && cpusetCpus < quotaCpus) {
+                return new Source<>(cpusetCpus, "cpuset " + cpuset);
+            }
+            return new Source<>(quotaCpus, quotaSource);
+        }
+
+        if (cpusetCpus > 0) {
+            return new Source<>(cpusetCpus, "cpuset " + cpuset);
+        }
+
+        return new Source<>(hostCpus, "available processors");
+    }
+
+    private static Source<Long> memory(final long limit, final String limitSource, final Path root) {
+        final Source<Long> hostMemory = hostMemory(root);
+
+        if (limit > 0 && (hostMemory.value <= 0 || limit < hostMemory.value)) {
+            return new Source<>(limit, limitSource);
+        }
+
+        return hostMemory;
+    }
+
+    private static Source<Long> hostMemory(final Path root) {
+        final Path meminfo = root.resolve("proc/meminfo");
+
+        try {
+            for (final String line : Files.readAllLines(meminfo, StandardCharsets.UTF_8)) {
+                // MemTotal:       16318480 kB
+                if (line.startsWith("MemTotal:")) {
+                    final String[] parts = line.substring("MemTotal:".length()).trim().split("\\s+");
+                    return new Source<>(parseLong(parts[0], -1) * 1024, meminfo.toString());
+                }
+            }
+        } catch (final IOException ex) {
+            // not on Linux
+        }
+
+        return new Source<>(-1L, "unknown");
+    }
+
+    /**
+     * Counts CPUs of a cpuset list like "0-3,8,10-11".
+     */
+    static int countCpus(final String cpuset) {
+        if (cpuset.isEmpty()) {
+            return 0;
+        }
+
+        int count = 0;
+
+        for (final String range : cpuset.split(",")) {
+            final int dash = range.indexOf('-');
+
+            try {
+                if (dash < 0) {
+                    Integer.parseInt(range.trim());
+                    count++;
+                } else {
+                    count += Integer.parseInt(range.substring(dash + 1).trim()) - Integer.parseInt(range.substring(0, dash).trim()) + 1;
+                }
+            } catch (final NumberFormatException ex) {
+                return 0;
+            }
+        }
+
+        return count;
+    }
+
+    private static String readFirstLine(final Path path) {
+        try {
+            final List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+            return lines.isEmpty() ? "" : lines.get(0).trim();
+        } catch (final IOException ex) {
+            return "";
+        }
+    }
+
+    private static long parseLong(final String value, final long defaultValue) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (final NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @return 2 or 1, 0 when there is no cgroup filesystem
+     */
+    public int getCgroupVersion() {
+        return cgroupVersion;
+    }
+
+    /**
+     * @return CPU quota in CPUs, e.g. 1.5, -1 when not limited
+     */
+    public double getCpuQuota() {
+        return cpuQuota;
+    }
+
+    /**
+     * @return CPUs we can use, the quota rounded up and never more than cpuset
+     */
+    public int getCpus() {
+        return Math.max(1, cpus);
+    }
+
+    public String getCpuSource() {
+        return cpuSource;
+    }
+
+    /**
+     * @return memory limit in bytes, -1 when not limited
+     */
+    public long getMemoryLimit() {
+        return memoryLimit;
+    }
+
+    /**
+     * @return memory we can use in bytes, the limit or memory of the host, -1 when neither is known
+     */
+    public long getMemory() {
+        return memory;
+    }
+
+    public String getMemorySource() {
+        return memorySource;
+    }
+
+    @Override
+    public String toString() {
+        return format("%s CPUs (%s), %s MiB of memory (%s)", getCpus(), cpuSource, memory < 0 ? "unknown" : memory >> 20, memorySource);
+    }
+
+    private static final class Source<T> {
+
+        private final T value;
+        private final String source;
+
+        private Source(final T value, final String source) {
+            this.value = value;
+            this.source = source;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.instaclustr.cassandra.k8s;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * SRV lookup by means of "dig -t SRV name +short", kept as a fallback for environments where
+ * querying nameservers directly from JVM is not desired. Requires bind-utils to be installed.
+ */
+public class DigSrvLookup implements SrvLookup {
+
+    private static final Logger logger = LoggerFactory.getLogger(DigSrvLookup.class);
+
+    private static final Pattern digResponseLinePattern = Pattern.compile("(.*) (.*) (.*) (.*)");
+
+    private final Duration timeout;
+
+    public DigSrvLookup(final Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    @Override
+    public List<SrvRecord> lookup(final String name) throws Exception {
+        // bound dig itself too so it does not hang on reading its output
+        final String digTimeout = "+time=" + Math.max(1, timeout.getSeconds());
+        return parseEndpoints(executeShellCommand("dig", "-t", "SRV", name, "+short", "+tries=1", digTimeout));
+    }
+
+    static List<SrvRecord> parseEndpoints(final List<String> digResult) {
+        final List<SrvRecord> records = new ArrayList<>();
+
+        for (final String line : digResult) {
+            final Matcher matcher = digResponseLinePattern.matcher(line);
+
+            if (matcher.matches()) {
+                try {
+                    records.add(new SrvRecord(Integer.parseInt(matcher.group(1)),
+                                              Integer.parseInt(matcher.group(2)),
+                                              Integer.parseInt(matcher.group(3)),
+                                              matcher.group(4)));
+                } catch (final NumberFormatException ex) {
+                    logger.debug("Skipping unparsable dig output line: {}", line);
+                }
+            }
+        }
+
+        return records;
+    }
+
+    private List<String> executeShellCommand(final String... command) throws IOException, InterruptedException {
+        final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+
+        final List<String> output = Collections.synchronizedList(new ArrayList<>());
+
+        // output is drained on its own thread, reading it to its end here would wait for dig however long it hangs
+        final Thread reader = new Thread(() -> {
+            try (final BufferedReader br = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+
+                while ((line = br.readLine()) != null) {
+                    logger.debug("dig output: {}", line);
+                    output.add(line);
+                }
+            } catch (final IOException ex) {
+                logger.debug("Unable to read output of dig", ex);
+            }
+        }, "dig-output-reader");
+
+        reader.setDaemon(true);
+        reader.start();
+
+        if (!process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            process.destroyForcibly();
+            throw new IOException(String.format("dig has not finished in %s ms", timeout.toMillis()));
+        }
+
+        // the process is gone, its output ends right away unless a child of it still holds the pipe
+        reader.join(timeout.toMillis());
+
+        if (process.exitValue() != 0) {
+            throw new IOException(String.format("dig has finished with exit code %s: %s", process.exitValue(), String.join("\n", output)));
+        }
+
+        synchronized (output) {
+            return new ArrayList<>(output);
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.lang.String.format;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Minimal DNS client which asks for SRV records directly from JVM instead of forking "dig".
+ *
+ * Each query is sent over UDP (advertising EDNS0 payload size so large answers fit into one datagram)
+ * and repeated over TCP when the answer is truncated. Every nameserver is tried in order, in each of
+ * the attempts, until one of them answers. Both timeout and attempts default to the ones in /etc/resolv.conf.
+ *
+ * Nameservers are taken as they are so this resolver can be pointed to a local stub DNS server in tests.
+ */
+public class DnsSrvResolver implements SrvLookup {
+
+    private static final Logger logger = LoggerFactory.getLogger(DnsSrvResolver.class);
+
+    private static final int TYPE_SRV = 33;
+    private static final int TYPE_OPT = 41;
+    private static final int CLASS_IN = 1;
+
+    private static final int RCODE_NO_ERROR = 0;
+    private static final int RCODE_NXDOMAIN = 3;
+
+    private static final int EDNS_PAYLOAD_SIZE = 4096;
+    private static final int MAX_COMPRESSION_POINTERS = 64;
+
+    private final List<InetSocketAddress> nameservers;
+    private final Duration timeout;
+    private final int attempts;
+
+    public DnsSrvResolver(final List<InetSocketAddress> nameservers, final Duration timeout, final int attempts) {
+        if (nameservers.isEmpty()) {
+            throw new IllegalArgumentException("There has to be at least one nameserver to query.");
+        }
+
+        this.nameservers = new ArrayList<>(nameservers);
+        this.timeout = timeout;
+        this.attempts = Math.max(1, attempts);
+    }
+
+    public DnsSrvResolver(final ResolvConf resolvConf) {
+        this(resolvConf.getNameservers(), resolvConf.getTimeout(), resolvConf.getAttempts());
+    }
+
+    @Override
+    public List<SrvRecord> lookup(final String name) throws IOException {
+        final byte[] query = buildQuery(name);
+
+        IOException lastException = null;
+
+        for (int attempt = 1; attempt <= attempts; attempt++) {
+            for (final InetSocketAddress nameserver : nameservers) {
+                try {
+                    final List<SrvRecord> records = query(resolve(nameserver), query);
+                    logger.debug("Nameserver {} returned {} SRV records for {}", nameserver, records.size(), name);
+                    return records;
+                } catch (final IOException ex) {
+                    logger.debug(format("Attempt %s to query %s for %s has failed", attempt, nameserver, name), ex);
+                    lastException = ex;
+                }
+            }
+        }
+
+        throw new IOException(format("Unable to resolve SRV records of %s from any of nameservers %s in %s attempts",
+                                     name, nameservers, attempts),
+                              lastException);
+    }
+
+    private static InetSocketAddress resolve(final InetSocketAddress nameserver) {
+        if (nameserver.isUnresolved()) {
+            // nameservers are IP literals so this does not hit DNS
+            return new InetSocketAddress(nameserver.getHostString(), nameserver.getPort());
+        }
+        return nameserver;
+    }
+
+    private List<SrvRecord> query(final InetSocketAddress nameserver, final byte[] query) throws IOException {
+        final ByteBuffer response = queryUdp(nameserver, query);
+
+        if ((response.getShort(2) & 0x0200) != 0) {
+            logger.debug("Response from {} is truncated, retrying over TCP", nameserver);
+            return parseResponse(queryTcp(nameserver, query), query);
+        }
+
+        return parseResponse(response, query);
+    }
+
+    private ByteBuffer queryUdp(final InetSocketAddress nameserver, final byte[] query) throws IOException {
+        try (final DatagramSocket socket = new DatagramSocket()) {
+            socket.connect(nameserver);
+            socket.send(new DatagramPacket(query, query.length));
+
+            final long deadline = System.nanoTime() + timeout.toNanos();
+            final byte[] buffer = new byte[EDNS_PAYLOAD_SIZE];
+
+            while (true) {
+                final long remainingMillis = (deadline - System.nanoTime()) / 1_000_000;
+
+                if (remainingMillis <= 0) {
+                    throw new SocketTimeoutException(format("No response from %s in %s ms", nameserver, timeout.toMillis()));
+                }
+
+                socket.setSoTimeout((int) remainingMillis);
+
+                final DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                socket.receive(packet);
+
+                // ignore stray datagrams which are not answers to our query
+                if (packet.getLength() >= 12 && buffer[0] == query[0] && buffer[1] == query[1]) {
+                    return ByteBuffer.wrap(buffer, 0, packet.getLength()).slice();
+                }
+            }
+        }
+    }
+
+    private ByteBuffer queryTcp(final InetSocketAddress nameserver, final byte[] query) throws IOException {
+        try (final Socket socket = new Socket()) {
+            socket.connect(nameserver, (int) timeout.toMillis());
+            socket.setSoTimeout((int) timeout.toMillis());
+
+            final OutputStream out = socket.getOutputStream();
+            out.write(new byte[]{(byte) (query.length >>> 8), (byte) query.length});
+            out.write(query);
+            out.flush();
+
+            final DataInputStream in = new DataInputStream(socket.getInputStream());
+            final byte[] response = new byte[in.readUnsignedShort()];
+            in.readFully(response);
+
+            return ByteBuffer.wrap(response);
+        }
+    }
+
+    static byte[] buildQuery(final String name) {
+        final ByteBuffer buffer = ByteBuffer.allocate(512);
+
+        // header - random id, recursion desired, one question, one additional (EDNS0 OPT) record
+        buffer.putShort((short) ThreadLocalRandom.current().nextInt(1 << 16));
+        buffer.putShort((short) 0x0100);
+        buffer.putShort((short) 1);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 1);
+
+        for (final String label : name.split("\\.")) {
+            if (label.isEmpty()) {
+                continue;
+            }
+
+            final byte[] bytes = label.getBytes(StandardCharsets.US_ASCII);
+
+            if (bytes.length > 63) {
+                throw new IllegalArgumentException(format("Label %s of %s is longer than 63 characters", label, name));
+            }
+
+            buffer.put((byte) bytes.length);
+            buffer.put(bytes);
+        }
+
+        buffer.put((byte) 0);
+        buffer.putShort((short) TYPE_SRV);
+        buffer.putShort((short) CLASS_IN);
+
+        // EDNS0 OPT pseudo record - root name, type, payload size as class, extended rcode and flags as ttl, no data
+        buffer.put((byte) 0);
+        buffer.putShort((short) TYPE_OPT);
+        buffer.putShort((short) EDNS_PAYLOAD_SIZE);
+        buffer.putInt(0);
+        buffer.putShort((short) 0);
+
+        final byte[] query = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(query);
+        return query;
+    }
+
+    static List<SrvRecord> parseResponse(final ByteBuffer response, final byte[] query) throws IOException {
+        try {
+            if (response.getShort(0) != ByteBuffer.wrap(query).getShort(0)) {
+                throw new IOException("Response id does not match query id");
+            }
+
+            final int flags = response.getShort(2) & 0xFFFF;
+            final int rcode = flags & 0x000F;
+
+            if ((flags & 0x8000) == 0) {
+                throw new IOException("Received message is not a response");
+            }
+
+            if (rcode == RCODE_NXDOMAIN) {
+                return Collections.emptyList();
+            }
+
+            if (rcode != RCODE_NO_ERROR) {
+                throw new IOException(format("Nameserver responded with error code %s", rcode));
+            }
+
+            final int questions = response.getShort(4) & 0xFFFF;
+            final int answers = response.getShort(6) & 0xFFFF;
+
+            response.position(12);
+
+            for (int i = 0; i < questions; i++) {
+                skipName(response);
+                response.position(response.position() + 4);
+            }
+
+            final List<SrvRecord> records = new ArrayList<>(answers);
+
+            for (int i = 0; i < answers; i++) {
+                skipName(response);
+
+                final int type = response.getShort() & 0xFFFF;
+                response.getShort(); // class
+                response.getInt(); // ttl
+                final int length = response.getShort() & 0xFFFF;
+                final int end = response.position() + length;
+
+                if (type == TYPE_SRV) {
+                    final int priority = response.getShort() & 0xFFFF;
+                    final int weight = response.getShort() & 0xFFFF;
+                    final int port = response.getShort() & 0xFFFF;
+                    records.add(new SrvRecord(priority, weight, port, readName(response)));
+                }
+
+                // skip CNAMEs and anything else we do not care about
+                response.position(end);
+            }
+
+            return records;
+        } catch (final BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException ex) {
+            throw new IOException("Malformed DNS response", ex);
+        }
+    }
+
+    private static void skipName(final ByteBuffer buffer) {
+        while (true) {
+            final int length = buffer.get() & 0xFF;
+
+            if (length == 0) {
+                return;
+            }
+
+            if ((length & 0xC0) == 0xC0) {
+                // compression pointer is always the last part of a name
+                buffer.get();
+                return;
+            }
+
+            buffer.position(buffer.position() + length);
+        }
+    }
+
+    private static String readName(final ByteBuffer buffer) throws IOException {
+        final StringBuilder name = new StringBuilder();
+
+        int position = buffer.position();
+        int resumeAt = -1;
+        int pointers = 0;
+
+        while (true) {
+            final int length = buffer.get(position) & 0xFF;
+
+            if (length == 0) {
+                position++;
+                break;
+            }
+
+            if ((length & 0xC0) == 0xC0) {
+                if (++pointers > MAX_COMPRESSION_POINTERS) {
+                    throw new IOException("Too many compression pointers in DNS response");
+                }
+
+                if (resumeAt == -1) {
+                    resumeAt = position + 2;
+                }
+
+                position = ((length & 0x3F) << 8) | (buffer.get(position + 1) & 0xFF);
+                continue;
+            }
+
+            if (name.length() > 0) {
+                name.append('.');
+            }
+
+            for (int i = 0; i < length; i++) {
+                name.append((char) (buffer.get(position + 1 + i) & 0xFF));
+            }
+
+            position += length + 1;
+        }
+
+        buffer.position(resumeAt == -1 ? position : resumeAt);
+
+        return name.toString();
+    }
+}
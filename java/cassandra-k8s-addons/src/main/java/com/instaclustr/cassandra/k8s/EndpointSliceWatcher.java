@@ -0,0 +1,348 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.URLEncoder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps seeds of a seed service up to date by watching its EndpointSlices in Kubernetes API instead of polling DNS.
+ *
+ * EndpointSlices of the service are listed once and then watched, every added, modified or deleted slice updates
+ * the in-memory seed list right away, so asking for seeds never leaves the JVM. When the watch ends, it is resumed
+ * from the last seen resource version, when that is too old (410 Gone), slices are listed again. Failures are retried
+ * with a backoff, seeds known by then are kept. Seeds are ordered off the watch thread as ordering may probe them,
+ * see {@link SeedOrdering}, only the latest seeds are ordered when slices change meanwhile.
+ *
+ * The service account of the pod needs to be allowed to list and watch endpointslices of discovery.k8s.io.
+ *
+ * Endpoints are taken as seeds the same way as with DNS, by the ordinal in the host name of their pod, see
+ * {@link SeedPolicy}, and they are taken regardless of their readiness as the seed service publishes not ready
+ * addresses too.
+ */
+public class EndpointSliceWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(EndpointSliceWatcher.class);
+
+    private static final ConcurrentMap<String, EndpointSliceWatcher> WATCHERS = new ConcurrentHashMap<>();
+
+    private static final String API_V1 = "/apis/discovery.k8s.io/v1";
+    private static final String API_V1_BETA1 = "/apis/discovery.k8s.io/v1beta1";
+
+    private static final int WATCH_TIMEOUT_SECONDS = 300;
+    private static final Duration MIN_BACKOFF = Duration.ofSeconds(1);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+
+    private static final ExecutorService ORDERING_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "endpoint-slice-ordering");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String namespace;
+    private final String service;
+    private final KubernetesApiClient client;
+    private final SeedPolicy seedPolicy;
+    private final SeedOrdering seedOrdering;
+    private final ExecutorService probeExecutor;
+
+    // counted down once seeds of the first listing are ordered
+    private final CountDownLatch listed = new CountDownLatch(1);
+
+    // seeds waiting to be ordered, null when there are none
+    private final AtomicReference<List<InetAddress>> unordered = new AtomicReference<>();
+
+    private final Map<String, List<Endpoint>> slices = new TreeMap<>();
+
+    private String api = API_V1;
+    private String resourceVersion;
+
+    private volatile List<InetAddress> seeds = Collections.emptyList();
+
+    private Thread thread;
+
+    EndpointSliceWatcher(final String namespace, final String service, final KubernetesApiClient client,
+                         final SeedPolicy seedPolicy, final SeedOrdering seedOrdering, final ExecutorService probeExecutor) {
+        this.namespace = namespace;
+        this.service = service;
+        this.client = client;
+        this.seedPolicy = seedPolicy;
+        this.seedOrdering = seedOrdering;
+        this.probeExecutor = probeExecutor;
+    }
+
+    /**
+     * Returns the watcher of given service, it is started by the first caller with its client, policy and ordering.
+     */
+    public static EndpointSliceWatcher forService(final String namespace, final String service, final Supplier<KubernetesApiClient> client,
+                                                  final SeedPolicy seedPolicy, final SeedOrdering seedOrdering, final ExecutorService probeExecutor) {
+        return WATCHERS.computeIfAbsent(namespace + "/" + service, key -> new EndpointSliceWatcher(namespace, service, client.get(), seedPolicy, seedOrdering, probeExecutor).start());
+    }
+
+    EndpointSliceWatcher start() {
+        thread = new Thread(this::run, "endpoint-slice-watch-" + service);
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    /**
+     * Stops watching once the current request returns, the API server ends a watch in {@value #WATCH_TIMEOUT_SECONDS} seconds.
+     */
+    void stop() {
+        thread.interrupt();
+    }
+
+    /**
+     * @param listTimeout how long to wait for slices to be listed for the first time
+     * @return current seeds, in constant time once the slices were listed
+     */
+    public List<InetAddress> getSeeds(final Duration listTimeout) throws InterruptedException {
+        if (!listed.await(listTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException(format("EndpointSlices of %s were not listed from Kubernetes API in %s ms", service, listTimeout.toMillis()));
+        }
+        return seeds;
+    }
+
+    private void run() {
+        Duration backoff = MIN_BACKOFF;
+
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                if (resourceVersion == null) {
+                    list();
+                }
+
+                watch();
+                backoff = MIN_BACKOFF;
+            } catch (final Exception ex) {
+                final Throwable cause = ex instanceof UncheckedApiException ? ex.getCause() : ex;
+
+                if (cause instanceof KubernetesApiClient.ApiException && ((KubernetesApiClient.ApiException) cause).getStatus() == 410) {
+                    logger.debug("Resource version {} of EndpointSlices of {} is gone, listing them again", resourceVersion, service);
+                    resourceVersion = null;
+                    continue;
+                }
+
+                backoff = failed(cause, backoff);
+            }
+        }
+
+        logger.debug("Watch of EndpointSlices of {} was stopped", service);
+    }
+
+    private Duration failed(final Throwable ex, final Duration backoff) {
+        logger.warn(format("Unable to watch EndpointSlices of %s, retrying in %s ms", service, backoff.toMillis()), ex);
+
+        try {
+            Thread.sleep(backoff.toMillis());
+        } catch (final InterruptedException ie) {
+            // ends the watch loop
+            Thread.currentThread().interrupt();
+        }
+
+        return backoff.multipliedBy(2).compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff.multipliedBy(2);
+    }
+
+    private void list() throws IOException {
+        Object list;
+
+        try {
+            list = client.get(path(false));
+        } catch (final KubernetesApiClient.ApiException ex) {
+            // Kubernetes older than 1.21 serves only v1beta1
+            if (ex.getStatus() != 404 || api.equals(API_V1_BETA1)) {
+                throw ex;
+            }
+            api = API_V1_BETA1;
+            list = client.get(path(false));
+        }
+
+        slices.clear();
+
+        final List<?> items = Json.get(list, List.class, "items");
+
+        if (items != null) {
+            for (final Object item : items) {
+                final String name = Json.get(item, String.class, "metadata", "name");
+                if (name != null) {
+                    slices.put(name, endpoints(item));
+                }
+            }
+        }
+
+        final String version = Json.get(list, String.class, "metadata", "resourceVersion");
+
+        // without a version, the watch starts from the most recent one
+        resourceVersion = version == null ? "" : version;
+
+        publish();
+    }
+
+    private void watch() throws IOException {
+        client.watch(path(true), Duration.ofSeconds(WATCH_TIMEOUT_SECONDS + 30), event -> {
+            final String type = Json.get(event, String.class, "type");
+            final Object object = Json.get(event, Map.class, "object");
+            final String name = Json.get(object, String.class, "metadata", "name");
+            final String version = Json.get(object, String.class, "metadata", "resourceVersion");
+
+            if ("ERROR".equals(type)) {
+                final Long code = Json.get(object, Long.class, "code");
+                throw new UncheckedApiException(new KubernetesApiClient.ApiException(code == null ? 500 : code.intValue(),
+                                                                                     String.valueOf(Json.get(object, String.class, "message"))));
+            }
+
+            if (version != null) {
+                resourceVersion = version;
+            }
+
+            if (name == null || "BOOKMARK".equals(type)) {
+                return;
+            }
+
+            if ("DELETED".equals(type)) {
+                slices.remove(name);
+            } else {
+                slices.put(name, endpoints(object));
+            }
+
+            logger.debug("EndpointSlice {} of {} {}", name, service, type);
+
+            publish();
+        });
+    }
+
+    private String path(final boolean watch) {
+        try {
+            final String selector = URLEncoder.encode("kubernetes.io/service-name=" + service, "UTF-8");
+            final String path = format("%s/namespaces/%s/endpointslices?labelSelector=%s", api, namespace, selector);
+
+            if (!watch) {
+                return path;
+            }
+
+            return format("%s&watch=true&allowWatchBookmarks=true&timeoutSeconds=%s%s", path, WATCH_TIMEOUT_SECONDS,
+                          resourceVersion.isEmpty() ? "" : "&resourceVersion=" + resourceVersion);
+        } catch (final UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static List<Endpoint> endpoints(final Object slice) {
+        final List<?> endpoints = Json.get(slice, List.class, "endpoints");
+
+        if (endpoints == null) {
+            return Collections.emptyList();
+        }
+
+        final List<Endpoint> result = new ArrayList<>(endpoints.size());
+
+        for (final Object endpoint : endpoints) {
+            String hostname = Json.get(endpoint, String.class, "hostname");
+
+            if (hostname == null) {
+                hostname = Json.get(endpoint, String.class, "targetRef", "name");
+            }
+
+            final List<?> addresses = Json.get(endpoint, List.class, "addresses");
+
+            if (hostname != null && addresses != null && !addresses.isEmpty() && addresses.get(0) instanceof String) {
+                result.add(new Endpoint(hostname, (String) addresses.get(0)));
+            }
+        }
+
+        return result;
+    }
+
+    private void publish() {
+        final Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+
+        // a pod may be in more slices while it moves between them
+        for (final List<Endpoint> slice : slices.values()) {
+            for (final Endpoint endpoint : slice) {
+                endpoints.put(endpoint.hostname, endpoint);
+            }
+        }
+
+        final List<String> seedHostnames = seedPolicy.filter(new ArrayList<>(endpoints.keySet()));
+        final List<InetAddress> resolved = new ArrayList<>(seedHostnames.size());
+
+        for (final String hostname : seedHostnames) {
+            final Endpoint endpoint = endpoints.get(hostname);
+
+            try {
+                // address is an IP literal so this does not hit DNS
+                final InetAddress address = InetAddress.getByName(endpoint.address);
+                resolved.add(InetAddress.getByAddress(format("%s.%s.%s.svc", hostname, service, namespace), address.getAddress()));
+            } catch (final IOException ex) {
+                logger.warn(format("Endpoint %s of %s has invalid address %s", hostname, service, endpoint.address), ex);
+            }
+        }
+
+        if (unordered.getAndSet(resolved) == null) {
+            ORDERING_EXECUTOR.execute(this::order);
+        }
+    }
+
+    private void order() {
+        final List<InetAddress> resolved = unordered.getAndSet(null);
+        List<InetAddress> ordered;
+
+        try {
+            ordered = seedOrdering.order(service, resolved, probeExecutor);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            ordered = resolved;
+        } catch (final RuntimeException ex) {
+            logger.warn(format("Unable to order seeds of %s, taking them as they are", service), ex);
+            ordered = resolved;
+        }
+
+        if (!ordered.equals(seeds)) {
+            logger.info("Seeds of {} from EndpointSlices: {}", service, ordered);
+        }
+
+        seeds = Collections.unmodifiableList(ordered);
+        listed.countDown();
+    }
+
+    private static final class Endpoint {
+
+        private final String hostname;
+        private final String address;
+
+        private Endpoint(final String hostname, final String address) {
+            this.hostname = hostname;
+            this.address = address;
+        }
+    }
+
+    private static final class UncheckedApiException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private UncheckedApiException(final KubernetesApiClient.ApiException cause) {
+            super(cause);
+        }
+    }
+}
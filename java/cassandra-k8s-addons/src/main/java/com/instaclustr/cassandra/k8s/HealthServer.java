@@ -0,0 +1,232 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tiny HTTP server answering Kubernetes probes from Cassandra's own state, so probes do not need to fork cqlsh.
+ *
+ * GET /live answers 200 as long as the JVM is able to answer at all.
+ *
+ * GET /ready answers 200 when the node is NORMAL, gossip and native transport are running, gossip has settled and it
+ * is not draining, otherwise 503 with the checks which failed. State is read from MBeans so the server can be started
+ * before Cassandra itself and never touches Cassandra's classes. Our own work a node should finish before it serves,
+ * e.g. prewarming of page cache, holds readiness too, see {@link #holdReadiness(String, String)}.
+ *
+ * Gossip has settled once known endpoints, those of them up and pending gossip tasks have not changed for a few polls
+ * in a row, the way Cassandra waits for gossip to settle before it starts native transport. It is checked until it
+ * settles once after start, a node does not turn unready when other nodes come and go later.
+ */
+public final class HealthServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(HealthServer.class);
+
+    private static final String STORAGE_SERVICE = "org.apache.cassandra.db:type=StorageService";
+    private static final String FAILURE_DETECTOR = "org.apache.cassandra.net:type=FailureDetector";
+    private static final String GOSSIP_PENDING_TASKS = "org.apache.cassandra.metrics:type=ThreadPools,path=internal,scope=GossipStage,name=PendingTasks";
+
+    private static final long GOSSIP_POLL_MILLIS = 1000;
+    private static final int GOSSIP_SETTLED_POLLS = 3;
+
+    private static HealthServer instance;
+
+    private static final Map<String, String> READINESS_HOLDS = new ConcurrentHashMap<>();
+
+    // answers probes and polls gossip, both take no time
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "cassandra-health-http");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final HttpServer server;
+    private final MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+    private final ObjectName storageService;
+    private final ObjectName failureDetector;
+    private final ObjectName gossipPendingTasks;
+
+    private volatile boolean gossipSettled;
+    private ScheduledFuture<?> gossipPoll;
+    private String lastGossipState;
+    private int stableGossipPolls;
+
+    private HealthServer(final InetSocketAddress address) throws IOException {
+        try {
+            storageService = new ObjectName(STORAGE_SERVICE);
+            failureDetector = new ObjectName(FAILURE_DETECTOR);
+            gossipPendingTasks = new ObjectName(GOSSIP_PENDING_TASKS);
+        } catch (final Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+
+        server = HttpServer.create(address, 0);
+        server.createContext("/live", exchange -> respond(exchange, 200, "OK"));
+        server.createContext("/ready", this::ready);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Starts the server once per JVM, subsequent calls do nothing.
+     *
+     * @throws IllegalStateException when the server can not be started, probes pointed at it would never succeed
+     */
+    public static synchronized void start(final InetSocketAddress address) {
+        if (instance != null) {
+            return;
+        }
+
+        try {
+            instance = new HealthServer(address);
+            // the dispatcher thread inherits daemon status of the thread starting the server, it must not hold the JVM
+            instance.executor.submit(instance.server::start).get();
+            instance.gossipPoll = instance.executor.scheduleWithFixedDelay(instance::pollGossip, GOSSIP_POLL_MILLIS, GOSSIP_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            logger.info("Health server listening on {}", instance.server.getAddress());
+        } catch (final IOException | ExecutionException ex) {
+            instance = null;
+            throw new IllegalStateException(format("Unable to start health server on %s", address), ex instanceof ExecutionException ? ex.getCause() : ex);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Node is not ready until {@link #releaseReadiness(String)} is called with the same name, regardless of the state
+     * of Cassandra. Holds work without the server running too.
+     *
+     * @param reason what readiness waits for, answered by /ready
+     */
+    public static void holdReadiness(final String name, final String reason) {
+        READINESS_HOLDS.put(name, reason);
+    }
+
+    public static void releaseReadiness(final String name) {
+        READINESS_HOLDS.remove(name);
+    }
+
+    private void ready(final HttpExchange exchange) throws IOException {
+        final List<String> failures = new ArrayList<>(READINESS_HOLDS.values());
+
+        try {
+            final String operationMode = String.valueOf(mbeanServer.getAttribute(storageService, "OperationMode"));
+
+            if (!"NORMAL".equals(operationMode)) {
+                failures.add("operation mode is " + operationMode);
+            }
+
+            if (!isTrue("GossipRunning")) {
+                failures.add("gossip is not running");
+            } else if (!gossipSettled) {
+                failures.add("gossip is settling");
+            }
+
+            if (!isTrue("NativeTransportRunning")) {
+                failures.add("native transport is not running");
+            }
+
+            if (isTrue("Draining") || isTrue("Drained")) {
+                failures.add("node is draining or drained");
+            }
+        } catch (final InstanceNotFoundException ex) {
+            failures.add("Cassandra is starting");
+        } catch (final Exception ex) {
+            logger.debug("Unable to read state of Cassandra", ex);
+            failures.add("unable to read state of Cassandra: " + ex);
+        }
+
+        if (failures.isEmpty()) {
+            respond(exchange, 200, "READY");
+        } else {
+            respond(exchange, 503, String.join("\n", failures));
+        }
+    }
+
+    private void pollGossip() {
+        final String state;
+
+        try {
+            if (!isTrue("GossipRunning")) {
+                lastGossipState = null;
+                stableGossipPolls = 0;
+                return;
+            }
+
+            state = gossipState();
+        } catch (final InstanceNotFoundException ex) {
+            // Cassandra is starting
+            return;
+        } catch (final Exception ex) {
+            logger.debug("Unable to read state of gossip", ex);
+            return;
+        }
+
+        if (state.equals(lastGossipState)) {
+            stableGossipPolls++;
+        } else {
+            lastGossipState = state;
+            stableGossipPolls = 0;
+        }
+
+        if (stableGossipPolls >= GOSSIP_SETTLED_POLLS) {
+            gossipSettled = true;
+            gossipPoll.cancel(false);
+            logger.info("Gossip has settled with {}", state);
+        }
+    }
+
+    /**
+     * @return endpoints known to gossip, how many of them are up and how many gossip tasks are pending
+     */
+    private String gossipState() throws Exception {
+        final Map<?, ?> states = (Map<?, ?>) mbeanServer.getAttribute(failureDetector, "SimpleStates");
+        final long up = states.values().stream().filter(value -> "UP".equals(String.valueOf(value))).count();
+
+        Object pending;
+
+        try {
+            pending = mbeanServer.getAttribute(gossipPendingTasks, "Value");
+        } catch (final InstanceNotFoundException ex) {
+            // metrics are registered a bit later than gossip starts
+            pending = "unknown";
+        }
+
+        return format("%s endpoints, %s up, %s pending gossip tasks", states.size(), up, pending);
+    }
+
+    private boolean isTrue(final String attribute) throws Exception {
+        return Boolean.TRUE.equals(mbeanServer.getAttribute(storageService, attribute));
+    }
+
+    private static void respond(final HttpExchange exchange, final int status, final String body) throws IOException {
+        final byte[] bytes = (body + "\n").getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+
+        try (final OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON parser for Kubernetes API responses, so we do not need to ship a JSON library into Cassandra's classpath.
+ *
+ * Objects are parsed into maps, arrays into lists, numbers into longs or doubles. The very same types are written by
+ * {@link #write(Object)}.
+ */
+public final class Json {
+
+    private static final int MAX_DEPTH = 64;
+
+    private final String json;
+    private int position;
+
+    private Json(final String json) {
+        this.json = json;
+    }
+
+    public static Object parse(final String json) throws IOException {
+        final Json parser = new Json(json);
+
+        final Object value = parser.readValue(0);
+        parser.skipWhitespace();
+
+        if (parser.position != json.length()) {
+            throw parser.error("Unexpected content after JSON value");
+        }
+
+        return value;
+    }
+
+    /**
+     * Writes maps as objects, collections and arrays as arrays, numbers and booleans as they are and anything else
+     * as a string.
+     */
+    public static String write(final Object value) {
+        final StringBuilder json = new StringBuilder();
+        writeValue(json, value);
+        return json.toString();
+    }
+
+    private static void writeValue(final StringBuilder json, final Object value) {
+        if (value == null) {
+            json.append("null");
+        } else if (value instanceof Map) {
+            json.append('{');
+            boolean first = true;
+            for (final Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                json.append(first ? "" : ",");
+                writeString(json, String.valueOf(entry.getKey()));
+                json.append(':');
+                writeValue(json, entry.getValue());
+                first = false;
+            }
+            json.append('}');
+        } else if (value instanceof Collection || value instanceof Object[]) {
+            json.append('[');
+            boolean first = true;
+            for (final Object element : value instanceof Collection ? (Collection<?>) value : Arrays.asList((Object[]) value)) {
+                json.append(first ? "" : ",");
+                writeValue(json, element);
+                first = false;
+            }
+            json.append(']');
+        } else if (value instanceof Number || value instanceof Boolean) {
+            json.append(value);
+        } else {
+            writeString(json, value.toString());
+        }
+    }
+
+    private static void writeString(final StringBuilder json, final String string) {
+        json.append('"');
+
+        for (int i = 0; i < string.length(); i++) {
+            final char c = string.charAt(i);
+
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+
+        json.append('"');
+    }
+
+    /**
+     * @return value under given path of object keys, null if there is none or it is not of given type
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T get(final Object json, final Class<T> type, final String... path) {
+        Object current = json;
+
+        for (final String key : path) {
+            if (!(current instanceof Map)) {
+                return null;
+            }
+            current = ((Map<String, Object>) current).get(key);
+        }
+
+        return type.isInstance(current) ? (T) current : null;
+    }
+
+    private Object readValue(final int depth) throws IOException {
+        if (depth > MAX_DEPTH) {
+            throw error("JSON is nested too deep");
+        }
+
+        skipWhitespace();
+
+        if (position >= json.length()) {
+            throw error("Unexpected end of JSON");
+        }
+
+        final char c = json.charAt(position);
+
+        switch (c) {
+            case '{':
+                return readObject(depth);
+            case '[':
+                return readArray(depth);
+            case '"':
+                return readString();
+            case 't':
+                return readLiteral("true", Boolean.TRUE);
+            case 'f':
+                return readLiteral("false", Boolean.FALSE);
+            case 'n':
+                return readLiteral("null", null);
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return readNumber();
+                }
+                throw error(format("Unexpected character '%s'", c));
+        }
+    }
+
+    private Map<String, Object> readObject(final int depth) throws IOException {
+        final Map<String, Object> object = new LinkedHashMap<>();
+
+        position++;
+        skipWhitespace();
+
+        if (peek() == '}') {
+            position++;
+            return object;
+        }
+
+        while (true) {
+            skipWhitespace();
+
+            if (peek() != '"') {
+                throw error("Expected object key");
+            }
+
+            final String key = readString();
+
+            skipWhitespace();
+            expect(':');
+
+            object.put(key, readValue(depth + 1));
+
+            skipWhitespace();
+
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect('}');
+                return object;
+            }
+        }
+    }
+
+    private List<Object> readArray(final int depth) throws IOException {
+        final List<Object> array = new ArrayList<>();
+
+        position++;
+        skipWhitespace();
+
+        if (peek() == ']') {
+            position++;
+            return array;
+        }
+
+        while (true) {
+            array.add(readValue(depth + 1));
+
+            skipWhitespace();
+
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect(']');
+                return array;
+            }
+        }
+    }
+
+    private String readString() throws IOException {
+        final StringBuilder string = new StringBuilder();
+
+        position++;
+
+        while (true) {
+            if (position >= json.length()) {
+                throw error("Unterminated string");
+            }
+
+            final char c = json.charAt(position++);
+
+            if (c == '"') {
+                return string.toString();
+            }
+
+            if (c != '\\') {
+                string.append(c);
+                continue;
+            }
+
+            if (position >= json.length()) {
+                throw error("Unterminated escape sequence");
+            }
+
+            final char escaped = json.charAt(position++);
+
+            switch (escaped) {
+                case '"':
+                case '\\':
+                case '/':
+                    string.append(escaped);
+                    break;
+                case 'b':
+                    string.append('\b');
+                    break;
+                case 'f':
+                    string.append('\f');
+                    break;
+                case 'n':
+                    string.append('\n');
+                    break;
+                case 'r':
+                    string.append('\r');
+                    break;
+                case 't':
+                    string.append('\t');
+                    break;
+                case 'u':
+                    if (position + 4 > json.length()) {
+                        throw error("Invalid unicode escape sequence");
+                    }
+                    try {
+                        string.append((char) Integer.parseInt(json.substring(position, position + 4), 16));
+                    } catch (final NumberFormatException ex) {
+                        throw error("Invalid unicode escape sequence");
+                    }
+                    position += 4;
+                    break;
+                default:
+                    throw error(format("Invalid escape sequence '\\%s'", escaped));
+            }
+        }
+    }
+
+    private Object readNumber() throws IOException {
+        final int start = position;
+        boolean decimal = false;
+
+        while (position < json.length()) {
+            final char c = json.charAt(position);
+
+            if (c == '.' || c == 'e' || c == 'E') {
+                decimal = true;
+            } else if (!(c == '-' || c == '+' || (c >= '0' && c <= '9'))) {
+                break;
+            }
+
+            position++;
+        }
+
+        final String number = json.substring(start, position);
+
+        try {
+            return decimal ? (Object) Double.parseDouble(number) : (Object) Long.parseLong(number);
+        } catch (final NumberFormatException ex) {
+            throw error(format("Invalid number %s", number));
+        }
+    }
+
+    private Object readLiteral(final String literal, final Object value) throws IOException {
+        if (!json.startsWith(literal, position)) {
+            throw error("Unexpected literal");
+        }
+
+        position += literal.length();
+        return value;
+    }
+
+    private void skipWhitespace() {
+        while (position < json.length() && Character.isWhitespace(json.charAt(position))) {
+            position++;
+        }
+    }
+
+    private char peek() throws IOException {
+        if (position >= json.length()) {
+            throw error("Unexpected end of JSON");
+        }
+        return json.charAt(position);
+    }
+
+    private void expect(final char expected) throws IOException {
+        if (peek() != expected) {
+            throw error(format("Expected '%s'", expected));
+        }
+        position++;
+    }
+
+    private IOException error(final String message) {
+        return new IOException(format("%s at position %s", message, position));
+    }
+}
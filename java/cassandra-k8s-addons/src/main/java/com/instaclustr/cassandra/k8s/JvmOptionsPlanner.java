@@ -0,0 +1,265 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Plans heap, GC and GC threads for CPUs and memory of the container, see {@link ContainerLimits}, and writes them
+ * as a JVM options file, so a 2 CPU pod and a 32 CPU pod do not start with the very same options.
+ *
+ * It runs before Cassandra starts:
+ *
+ * <pre>
+ * java com.instaclustr.cassandra.k8s.JvmOptionsPlanner &lt;cassandra major version&gt; &lt;output file&gt; [options file or directory ...]
+ * </pre>
+ *
+ * Given options files are the ones Cassandra is started with, whatever they set is left out of the plan, e.g. when
+ * a user picks a GC, neither GC nor its tuning is planned.
+ */
+public final class JvmOptionsPlanner {
+
+    private static final long MB = 1024 * 1024;
+    private static final long GB = 1024 * MB;
+
+    private final ContainerLimits limits;
+    private final int cassandraMajorVersion;
+
+    public JvmOptionsPlanner(final ContainerLimits limits, final int cassandraMajorVersion) {
+        this.limits = limits;
+        this.cassandraMajorVersion = cassandraMajorVersion;
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: JvmOptionsPlanner <cassandra major version> <output file> [options file or directory ...]");
+            System.exit(1);
+        }
+
+        final int cassandraMajorVersion = Integer.parseInt(args[0]);
+        final Path output = Paths.get(args[1]);
+
+        final List<Path> optionsFiles = Arrays.stream(args, 2, args.length).map(Paths::get).collect(Collectors.toList());
+
+        final JvmOptionsPlanner planner = new JvmOptionsPlanner(ContainerLimits.read(), cassandraMajorVersion);
+        final Plan plan = planner.plan(readOptions(optionsFiles));
+
+        AtomicFiles.writeIfChanged(output, plan.toString().getBytes(StandardCharsets.UTF_8));
+
+        System.out.println(format("Planned JVM options for %s: %s", planner.limits, String.join(" ", plan.options)));
+    }
+
+    /**
+     * @return options, lines starting with "-", of given files and of "*.options" files in given directories
+     */
+    public static List<String> readOptions(final List<Path> files) throws IOException {
+        final List<String> options = new ArrayList<>();
+
+        for (final Path file : files) {
+            if (Files.isDirectory(file)) {
+                try (final Stream<Path> children = Files.list(file)) {
+                    options.addAll(readOptions(children.filter(child -> child.toString().endsWith(".options")).sorted().collect(Collectors.toList())));
+                }
+            } else if (Files.isRegularFile(file)) {
+                for (final String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    if (line.trim().startsWith("-")) {
+                        options.add(line.trim());
+                    }
+                }
+            }
+        }
+
+        return options;
+    }
+
+    /**
+     * @param userOptions options Cassandra is started with anyway, what they set is not planned
+     */
+    public Plan plan(final List<String> userOptions) {
+        final Plan plan = new Plan(limits);
+
+        final long memory = limits.getMemory() > 0 ? limits.getMemory() : 4 * GB;
+        final int cpus = limits.getCpus();
+
+        final boolean userHeap = isSet(userOptions, "-Xmx", "-Xms", "-XX:MaxHeapSize=", "-XX:InitialHeapSize=", "-XX:MaxRAMPercentage=", "-XX:MaxRAMFraction=");
+        final boolean userGc = isSet(userOptions, "-XX:+UseConcMarkSweepGC", "-XX:+UseG1GC", "-XX:+UseParallelGC", "-XX:+UseSerialGC", "-XX:+UseZGC", "-XX:+UseShenandoahGC");
+        final boolean userYoung = isSet(userOptions, "-Xmn", "-XX:NewSize=", "-XX:MaxNewSize=", "-XX:NewRatio=");
+
+        final long heap = userHeap ? userHeap(userOptions, memory) : heap(memory);
+        final boolean g1 = useG1(heap);
+
+        if (!userHeap) {
+            // equal so AlwaysPreTouch touches all of it at start
+            plan.add(format("-Xms%sM", heap / MB), format("heap from Cassandra's formula on %s MiB of memory", memory / MB));
+            plan.add(format("-Xmx%sM", heap / MB), null);
+        }
+
+        if (!isSet(userOptions, "-XX:MaxDirectMemorySize=")) {
+            // the other half of what is left over is for page cache, metaspace, thread stacks and Unsafe allocations
+            final long direct = Math.max(256 * MB, (memory - heap) / 2);
+            plan.add(format("-XX:MaxDirectMemorySize=%sM", direct / MB), format("half of memory outside of %sheap of %s MiB", userHeap ? "given " : "", heap / MB));
+        }
+
+        if (!userGc) {
+            if (g1) {
+                plan.add("-XX:+UseG1GC", cassandraMajorVersion >= 4 ? "CMS is deprecated on Java 11" : format("heap of %s MiB is too big for CMS", heap / MB));
+                plan.add("-XX:MaxGCPauseMillis=300", null);
+                plan.add("-XX:G1RSetUpdatingPauseTimePercent=5", null);
+            } else {
+                plan.add("-XX:+UseConcMarkSweepGC", format("heap of %s MiB on Cassandra %s", heap / MB, cassandraMajorVersion));
+                plan.add("-XX:+CMSParallelRemarkEnabled", null);
+                plan.add("-XX:SurvivorRatio=8", null);
+                plan.add("-XX:MaxTenuringThreshold=1", null);
+                plan.add("-XX:CMSInitiatingOccupancyFraction=75", null);
+                plan.add("-XX:+UseCMSInitiatingOccupancyOnly", null);
+
+                if (!userYoung) {
+                    // Cassandra's guidance, 100 MiB per CPU and at most a quarter of heap
+                    plan.add(format("-Xmn%sM", Math.min(100 * MB * cpus, heap / 4) / MB), format("100 MiB x %s CPUs, at most 1/4 of heap", cpus));
+                }
+            }
+        }
+
+        final int parallelGcThreads = parallelGcThreads(cpus);
+
+        if (!isSet(userOptions, "-XX:ParallelGCThreads=")) {
+            plan.add(format("-XX:ParallelGCThreads=%s", parallelGcThreads), format("%s CPUs from %s", cpus, limits.getCpuSource()));
+        }
+
+        if (!isSet(userOptions, "-XX:ConcGCThreads=")) {
+            plan.add(format("-XX:ConcGCThreads=%s", Math.max(1, (parallelGcThreads + 3) / 4)), "1/4 of parallel GC threads");
+        }
+
+        return plan;
+    }
+
+    /**
+     * Cassandra's formula from cassandra-env.sh, max(min(1/2 memory, 1 GiB), min(1/4 memory, cap)), the cap is 8 GiB
+     * on Cassandra 3 and 16 GiB on Cassandra 4 which always runs G1.
+     */
+    private long heap(final long memory) {
+        final long cap = cassandraMajorVersion >= 4 ? 16 * GB : 8 * GB;
+        return Math.max(Math.min(memory / 2, GB), Math.min(memory / 4, cap));
+    }
+
+    /**
+     * Max heap given options make the JVM size in this container, -Xmx or MaxHeapSize win over MaxRAMPercentage or
+     * MaxRAMFraction, otherwise it is JVM's default quarter of memory, but not less than initial heap. The last of the
+     * same options wins, as it does in the JVM.
+     */
+    static long userHeap(final List<String> options, final long memory) {
+        long max = -1;
+        long initial = -1;
+        long ofMemory = memory / 4;
+
+        for (final String option : options) {
+            try {
+                if (option.startsWith("-Xmx")) {
+                    max = size(option.substring("-Xmx".length()));
+                } else if (option.startsWith("-XX:MaxHeapSize=")) {
+                    max = size(option.substring("-XX:MaxHeapSize=".length()));
+                } else if (option.startsWith("-Xms")) {
+                    initial = size(option.substring("-Xms".length()));
+                } else if (option.startsWith("-XX:InitialHeapSize=")) {
+                    initial = size(option.substring("-XX:InitialHeapSize=".length()));
+                } else if (option.startsWith("-XX:MaxRAMPercentage=")) {
+                    ofMemory = (long) (memory * Double.parseDouble(option.substring("-XX:MaxRAMPercentage=".length())) / 100);
+                } else if (option.startsWith("-XX:MaxRAMFraction=")) {
+                    ofMemory = memory / Math.max(1, Long.parseLong(option.substring("-XX:MaxRAMFraction=".length())));
+                }
+            } catch (final NumberFormatException ex) {
+                // the JVM refuses to start with it anyway
+            }
+        }
+
+        return max > 0 ? max : Math.max(initial, ofMemory);
+    }
+
+    /**
+     * Size as the JVM takes it, bytes or a number with k, m, g or t suffix.
+     */
+    static long size(final String size) {
+        final char unit = Character.toLowerCase(size.isEmpty() ? ' ' : size.charAt(size.length() - 1));
+        final String digits = size.substring(0, size.length() - 1);
+
+        switch (unit) {
+            case 'k':
+                return Long.parseLong(digits) * 1024;
+            case 'm':
+                return Long.parseLong(digits) * MB;
+            case 'g':
+                return Long.parseLong(digits) * GB;
+            case 't':
+                return Long.parseLong(digits) * 1024 * GB;
+            default:
+                return Long.parseLong(size);
+        }
+    }
+
+    private boolean useG1(final long heap) {
+        // Cassandra 4 runs on Java 11 where CMS is deprecated, on Cassandra 3 G1 copes better with big heaps
+        return cassandraMajorVersion >= 4 || heap >= 8 * GB;
+    }
+
+    /**
+     * HotSpot's own formula, applied to CPUs of the container rather than of the host.
+     */
+    private static int parallelGcThreads(final int cpus) {
+        return cpus <= 8 ? cpus : 8 + (cpus - 8) * 5 / 8;
+    }
+
+    private static boolean isSet(final List<String> options, final String... prefixes) {
+        for (final String option : options) {
+            for (final String prefix : prefixes) {
+                if (option.startsWith(prefix)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public static final class Plan {
+
+        private final ContainerLimits limits;
+        private final List<String> options = new ArrayList<>();
+        private final List<String> lines = new ArrayList<>();
+
+        private Plan(final ContainerLimits limits) {
+            this.limits = limits;
+        }
+
+        private void add(final String option, final String reason) {
+            if (reason != null) {
+                lines.add("# " + reason);
+            }
+            lines.add(option);
+            options.add(option);
+        }
+
+        public List<String> getOptions() {
+            return options;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder builder = new StringBuilder()
+                .append("# Generated by ").append(JvmOptionsPlanner.class.getName()).append(" for ").append(limits).append(", do not edit.\n");
+
+            for (final String line : lines) {
+                builder.append(line).append('\n');
+            }
+
+            return builder.toString();
+        }
+    }
+}
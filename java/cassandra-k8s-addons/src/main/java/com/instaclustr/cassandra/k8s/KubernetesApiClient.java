@@ -0,0 +1,184 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.lang.String.format;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.time.Duration;
+import java.util.function.Consumer;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManagerFactory;
+
+/**
+ * Talks to Kubernetes API server as the service account of the pod it runs in.
+ *
+ * The token is read on every request as Kubernetes rotates it, the API server certificate is verified against
+ * the cluster CA of the service account. When the API server is reached over plain HTTP (e.g. a stub server in tests)
+ * and there is no token, requests are sent without authorization.
+ */
+public class KubernetesApiClient {
+
+    public static final Path SERVICE_ACCOUNT_PATH = Paths.get("/var/run/secrets/kubernetes.io/serviceaccount");
+
+    private final String baseUrl;
+    private final Path serviceAccountPath;
+    private final Duration timeout;
+
+    private SSLSocketFactory sslSocketFactory;
+
+    public KubernetesApiClient(final String baseUrl, final Path serviceAccountPath, final Duration timeout) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.serviceAccountPath = serviceAccountPath;
+        this.timeout = timeout;
+    }
+
+    /**
+     * @param baseUrl API server URL, null for the one Kubernetes advertises to pods
+     */
+    public static KubernetesApiClient inCluster(final String baseUrl, final Duration timeout) {
+        return new KubernetesApiClient(baseUrl != null ? baseUrl : defaultBaseUrl(), SERVICE_ACCOUNT_PATH, timeout);
+    }
+
+    private static String defaultBaseUrl() {
+        final String host = System.getenv("KUBERNETES_SERVICE_HOST");
+        final String port = System.getenv("KUBERNETES_SERVICE_PORT_HTTPS");
+
+        if (host == null) {
+            return "https://kubernetes.default.svc";
+        }
+
+        // IPv6 literals have to be bracketed in URLs
+        return format("https://%s:%s", host.contains(":") ? "[" + host + "]" : host, port == null ? "443" : port);
+    }
+
+    public Object get(final String path) throws IOException {
+        final HttpURLConnection connection = open(path, timeout);
+
+        try (final InputStream in = connection.getInputStream()) {
+            return Json.parse(new String(readFully(in), StandardCharsets.UTF_8));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Streams events of a watch, one JSON object per line, until the server ends the watch.
+     *
+     * @param readTimeout how long to wait for an event, should be longer than timeout of the watch itself
+     */
+    public void watch(final String path, final Duration readTimeout, final Consumer<Object> onEvent) throws IOException {
+        final HttpURLConnection connection = open(path, readTimeout);
+
+        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    onEvent.accept(Json.parse(line));
+                }
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private HttpURLConnection open(final String path, final Duration readTimeout) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+
+        connection.setConnectTimeout((int) timeout.toMillis());
+        connection.setReadTimeout((int) readTimeout.toMillis());
+        connection.setRequestProperty("Accept", "application/json");
+
+        if (connection instanceof HttpsURLConnection) {
+            ((HttpsURLConnection) connection).setSSLSocketFactory(sslSocketFactory());
+        }
+
+        final Path tokenPath = serviceAccountPath.resolve("token");
+
+        if (Files.exists(tokenPath)) {
+            connection.setRequestProperty("Authorization", "Bearer " + new String(Files.readAllBytes(tokenPath), StandardCharsets.UTF_8).trim());
+        }
+
+        final int status = connection.getResponseCode();
+
+        if (status != HttpURLConnection.HTTP_OK) {
+            final InputStream error = connection.getErrorStream();
+            final String body = error == null ? "" : new String(readFully(error), StandardCharsets.UTF_8);
+            connection.disconnect();
+            throw new ApiException(status, format("Kubernetes API responded to GET %s with %s: %s", path, status, body));
+        }
+
+        return connection;
+    }
+
+    private synchronized SSLSocketFactory sslSocketFactory() throws IOException {
+        if (sslSocketFactory != null) {
+            return sslSocketFactory;
+        }
+
+        final Path caPath = serviceAccountPath.resolve("ca.crt");
+
+        try (final InputStream in = Files.newInputStream(caPath)) {
+            final KeyStore trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
+            trustStore.load(null, null);
+
+            int i = 0;
+            for (final Certificate certificate : CertificateFactory.getInstance("X.509").generateCertificates(in)) {
+                trustStore.setCertificateEntry("ca-" + i++, certificate);
+            }
+
+            final TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            trustManagerFactory.init(trustStore);
+
+            final SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, trustManagerFactory.getTrustManagers(), null);
+
+            return sslSocketFactory = sslContext.getSocketFactory();
+        } catch (final GeneralSecurityException ex) {
+            throw new IOException(format("Unable to trust Kubernetes CA in %s", caPath), ex);
+        }
+    }
+
+    private static byte[] readFully(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+
+        return out.toByteArray();
+    }
+
+    public static class ApiException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        public ApiException(final int status, final String message) {
+            super(message);
+            this.status = status;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.instaclustr.cassandra.k8s;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with fixed, roughly exponential, bucket boundaries in milliseconds.
+ * Percentiles are reported as the upper bound of the bucket they fall into.
+ */
+public final class LatencyHistogram {
+
+    private static final long[] BUCKET_BOUNDS_MILLIS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1_000, 2_000, 5_000, 10_000, 30_000, Long.MAX_VALUE};
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MILLIS.length);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void update(final long nanos) {
+        final long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos));
+
+        int bucket = 0;
+        while (micros > BUCKET_BOUNDS_MILLIS[bucket] * 1_000 && bucket < BUCKET_BOUNDS_MILLIS.length - 1) {
+            bucket++;
+        }
+
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        sumMicros.addAndGet(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    public Snapshot snapshot() {
+        final long[] counts = new long[BUCKET_BOUNDS_MILLIS.length];
+        long total = 0;
+
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+
+        final long max = maxMicros.get();
+
+        return new Snapshot(total,
+                            total == 0 ? 0 : sumMicros.get() / 1_000d / total,
+                            percentile(counts, total, 0.50, max),
+                            percentile(counts, total, 0.95, max),
+                            percentile(counts, total, 0.99, max),
+                            max / 1_000d);
+    }
+
+    private static double percentile(final long[] counts, final long total, final double quantile, final long maxMicros) {
+        if (total == 0) {
+            return 0;
+        }
+
+        final long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // never report more than we have actually seen
+                return Math.min(BUCKET_BOUNDS_MILLIS[i], maxMicros / 1_000d);
+            }
+        }
+
+        return maxMicros / 1_000d;
+    }
+
+    /**
+     * Point-in-time view of a histogram, exposed over JMX as composite data.
+     */
+    public static final class Snapshot {
+
+        private final long count;
+        private final double meanMillis;
+        private final double p50Millis;
+        private final double p95Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+
+        Snapshot(final long count, final double meanMillis, final double p50Millis, final double p95Millis, final double p99Millis, final double maxMillis) {
+            this.count = count;
+            this.meanMillis = meanMillis;
+            this.p50Millis = p50Millis;
+            this.p95Millis = p95Millis;
+            this.p99Millis = p99Millis;
+            this.maxMillis = maxMillis;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanMillis() {
+            return meanMillis;
+        }
+
+        public double getP50Millis() {
+            return p50Millis;
+        }
+
+        public double getP95Millis() {
+            return p95Millis;
+        }
+
+        public double getP99Millis() {
+            return p99Millis;
+        }
+
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.instaclustr.cassandra.k8s;
+
+import static com.instaclustr.cassandra.k8s.SeedProviderArgs.getMillis;
+import static java.lang.String.format;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resolves seeds of several seed services, e.g. one per data center, and merges them.
+ *
+ * Services are resolved concurrently, each by its own {@link SeedsResolver} and {@link SeedsCache} when cacheable,
+ * and all of them share one deadline. Whatever resolved by the deadline is merged in the order services were given,
+ * so seeds of our own data center go first when its service is listed first, and a seed published by more services
+ * is taken only once. A service which failed or has not resolved in time is left out, its resolution is not
+ * cancelled so its cache is filled for the next time, and the next resolution waits for it rather than starting
+ * another one. Only when no service resolved any seed, resolution fails.
+ *
+ * @param <T> type of seed addresses
+ */
+public final class MultiServiceSeedsResolver<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(MultiServiceSeedsResolver.class);
+
+    public static final Duration DEFAULT_SEED_RESOLUTION_TIMEOUT = Duration.ofSeconds(10);
+
+    // resolutions block on DNS or Kubernetes API, so each service gets its own thread rather than a slot in a small pool,
+    // there are no more of them than services as a service is never resolved twice at once, see inFlight
+    private static final ExecutorService SERVICE_EXECUTOR = newServiceExecutor();
+
+    private final Map<String, Callable<List<T>>> services;
+
+    private final Duration timeout;
+
+    // resolutions by service, the ones still running past the deadline are waited on by the next resolve
+    private final ConcurrentMap<String, Future<List<T>>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param services resolvers of seeds by service, in the order their seeds are merged
+     * @param timeout deadline shared by all services
+     */
+    public MultiServiceSeedsResolver(final Map<String, Callable<List<T>>> services, final Duration timeout) {
+        this.services = services;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Builds resolution of seeds of services given in "service" argument of seed provider, separated by commas,
+     * see {@link SeedService} for how a service can be given.
+     *
+     * Besides arguments of {@link SeedsResolver.Settings} and {@link SeedsCache.Settings}, "seed_resolution_timeout_ms"
+     * is read, the deadline shared by all services when there are more of them.
+     */
+    public static <T> Callable<List<T>> fromArgs(final Map<String, String> args, final AddressTranslator<T> addressTranslator) {
+        final String service = args.get("service");
+
+        if (service == null) {
+            throw new IllegalStateException("Seed provider requires \"service\" argument.");
+        }
+
+        final SeedsResolver.Settings resolverSettings = SeedsResolver.Settings.fromArgs(args);
+        final SeedsCache.Settings cacheSettings = SeedsCache.Settings.fromArgs(args);
+
+        final Map<String, Callable<List<T>>> services = new LinkedHashMap<>();
+
+        for (final SeedService seedService : SeedService.parseList(service)) {
+            final String name = seedService.toString();
+            final SeedsResolver<T> resolver = new SeedsResolver<>(name, addressTranslator, resolverSettings);
+
+            if (resolver.isCacheable()) {
+                services.put(name, SeedsCache.forService(name, cacheSettings, resolver::resolve)::get);
+            } else {
+                services.put(name, resolver::resolve);
+            }
+        }
+
+        if (services.size() == 1) {
+            return services.values().iterator().next();
+        }
+
+        return new MultiServiceSeedsResolver<>(services, getMillis(args, "seed_resolution_timeout_ms", DEFAULT_SEED_RESOLUTION_TIMEOUT))::resolve;
+    }
+
+    /**
+     * Starts resolution of services given in "service" argument of seed provider in the background, so it overlaps
+     * with whatever Cassandra does before it asks for seeds. The first resolution of each service takes the prefetched
+     * seeds instead of resolving them again, see {@link SeedsResolver#prefetch(String, SeedsResolver.Settings)}.
+     */
+    public static void prefetch(final Map<String, String> args) {
+        final String service = args.get("service");
+
+        if (service == null) {
+            return;
+        }
+
+        final SeedsResolver.Settings resolverSettings = SeedsResolver.Settings.fromArgs(args);
+
+        for (final SeedService seedService : SeedService.parseList(service)) {
+            SeedsResolver.prefetch(seedService.toString(), resolverSettings);
+        }
+    }
+
+    public List<T> resolve() throws Exception {
+        final Map<String, Future<List<T>>> resolutions = new LinkedHashMap<>();
+
+        for (final Map.Entry<String, Callable<List<T>>> service : services.entrySet()) {
+            resolutions.put(service.getKey(), inFlight.compute(service.getKey(), (name, running) ->
+                running == null || running.isDone() ? SERVICE_EXECUTOR.submit(service.getValue()) : running));
+        }
+
+        final long deadline = System.nanoTime() + timeout.toNanos();
+
+        final Set<T> seeds = new LinkedHashSet<>();
+        final List<String> unresolved = new ArrayList<>();
+        final IllegalStateException failure = new IllegalStateException(format("Unable to resolve seeds of any of %s", services.keySet()));
+
+        for (final Map.Entry<String, Future<List<T>>> resolution : resolutions.entrySet()) {
+            final String service = resolution.getKey();
+
+            try {
+                final List<T> resolved = resolution.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                seeds.addAll(resolved);
+                logger.debug("Resolved seeds of {}: {}", service, resolved);
+            } catch (final TimeoutException ex) {
+                unresolved.add(service);
+                failure.addSuppressed(new TimeoutException(format("Seeds of %s were not resolved in %s ms", service, timeout.toMillis())));
+            } catch (final ExecutionException ex) {
+                unresolved.add(service);
+                failure.addSuppressed(ex.getCause());
+            }
+        }
+
+        if (seeds.isEmpty()) {
+            throw failure;
+        }
+
+        if (!unresolved.isEmpty()) {
+            final List<String> reasons = new ArrayList<>();
+
+            for (final Throwable reason : failure.getSuppressed()) {
+                reasons.add(String.valueOf(reason.getMessage()));
+            }
+
+            logger.warn("Unable to resolve seeds of {}, continuing with seeds of the other services: {}", unresolved, reasons);
+        }
+
+        return new ArrayList<>(seeds);
+    }
+
+    private static ExecutorService newServiceExecutor() {
+        final AtomicInteger threadCounter = new AtomicInteger();
+
+        final ThreadFactory threadFactory = runnable -> {
+            final Thread thread = new Thread(runnable, "seeds-resolver-service-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 30, TimeUnit.SECONDS, new SynchronousQueue<>(), threadFactory);
+    }
+}
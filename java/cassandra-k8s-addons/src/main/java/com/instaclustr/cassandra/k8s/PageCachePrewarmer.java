@@ -0,0 +1,439 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Brings SSTables back to page cache after a restart so a restarted node does not serve its first reads from disk.
+ *
+ * Every record interval, SSTable components are scanned for which of their chunks are resident in page cache and
+ * resident chunks are recorded to a file in saved caches directory, next to Cassandra's own key cache. Summary,
+ * Filter and Index components are read by every SSTable open and every read so they go first, resident ranges of
+ * Data components follow. Scanning stops once the byte budget worth of resident chunks is recorded.
+ *
+ * On start, the recorded chunks are loaded back in parallel, each range is mapped and loaded, so the kernel is
+ * advised to read it ahead and all its pages are touched. Loading stops at the byte budget or at the time budget,
+ * whichever comes first, chunks of SSTables compacted away since are skipped. Until loading is done, readiness is
+ * held, see {@link HealthServer#holdReadiness(String, String)}.
+ *
+ * Residency of a chunk is told by {@link MappedByteBuffer#isLoaded()} of its own mapping, a chunk is resident when
+ * all its pages are. Mappings are released right away by given unmapper, e.g. Cassandra's FileUtils.clean, rather
+ * than waiting for GC.
+ */
+public final class PageCachePrewarmer {
+
+    private static final Logger logger = LoggerFactory.getLogger(PageCachePrewarmer.class);
+
+    public static final String RECORD_FILE = "page-cache-residency.txt";
+
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(60);
+    public static final Duration DEFAULT_RECORD_INTERVAL = Duration.ofMinutes(5);
+
+    // in order of priority, Data go last
+    static final List<String> COMPONENTS = Arrays.asList("Summary.db", "Filter.db", "Index.db", "Data.db");
+
+    private static final long CHUNK_SIZE = 256 * 1024;
+    private static final long LOAD_SIZE = 16 * 1024 * 1024;
+    private static final int MAX_SCANNED_CHUNKS = 1 << 20;
+    private static final int PREWARM_THREADS = 4;
+
+    private static final String READINESS_GATE = "page cache prewarm";
+
+    private static PageCachePrewarmer instance;
+
+    private final List<Path> dataDirectories;
+    private final Path record;
+    private final long maxBytes;
+    private final Duration timeout;
+    private final Consumer<ByteBuffer> unmapper;
+
+    public PageCachePrewarmer(final List<Path> dataDirectories, final Path record, final long maxBytes, final Duration timeout, final Consumer<ByteBuffer> unmapper) {
+        this.dataDirectories = dataDirectories;
+        this.record = record;
+        this.maxBytes = maxBytes;
+        this.timeout = timeout;
+        this.unmapper = unmapper;
+    }
+
+    /**
+     * Prewarms page cache in the background and then records its residency every record interval, once per JVM,
+     * subsequent calls do nothing.
+     */
+    public static synchronized void start(final PageCachePrewarmer prewarmer, final Duration recordInterval) {
+        if (instance != null) {
+            return;
+        }
+        instance = prewarmer;
+
+        final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "page-cache-prewarm");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (Files.exists(prewarmer.record)) {
+            HealthServer.holdReadiness(READINESS_GATE, "page cache is being prewarmed");
+        }
+
+        executor.submit(() -> {
+            try {
+                prewarmer.prewarm();
+            } catch (final Exception ex) {
+                logger.warn("Unable to prewarm page cache", ex);
+            } finally {
+                HealthServer.releaseReadiness(READINESS_GATE);
+            }
+        });
+
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                prewarmer.record();
+            } catch (final Exception ex) {
+                logger.warn(format("Unable to record residency of SSTables in page cache to %s", prewarmer.record), ex);
+            }
+        }, recordInterval.toMillis(), recordInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return half of memory of the container outside of heap, the other half is left to memtables, caches and reads
+     */
+    public static long defaultMaxBytes() {
+        final long memory = ContainerLimits.read().getMemory();
+        return memory <= 0 ? 0 : Math.max(0, (memory - Runtime.getRuntime().maxMemory()) / 2);
+    }
+
+    /**
+     * Records resident chunks of SSTable components, up to the byte budget.
+     *
+     * @return number of resident bytes recorded
+     */
+    public long record() throws IOException {
+        final long start = System.nanoTime();
+        final List<String> lines = new ArrayList<>();
+
+        long recorded = 0;
+        int scanned = 0;
+
+        lines.add(format("# chunk_size=%s", CHUNK_SIZE));
+
+        scan:
+        for (final List<Path> files : sstableComponents()) {
+            for (final Path file : files) {
+                final long size;
+
+                try {
+                    size = Files.size(file);
+                } catch (final NoSuchFileException ex) {
+                    // compacted away meanwhile
+                    continue;
+                }
+
+                final StringBuilder ranges = new StringBuilder();
+                final long chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+                boolean cut = false;
+
+                try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    long firstResident = -1;
+                    long chunk = 0;
+
+                    for (; chunk < chunks; chunk++) {
+                        if (recorded >= maxBytes || scanned++ >= MAX_SCANNED_CHUNKS) {
+                            cut = true;
+                            break;
+                        }
+
+                        if (isResident(channel, chunk, size)) {
+                            firstResident = firstResident < 0 ? chunk : firstResident;
+                            recorded += Math.min(CHUNK_SIZE, size - chunk * CHUNK_SIZE);
+                        } else if (firstResident >= 0) {
+                            appendRange(ranges, firstResident, chunk - 1);
+                            firstResident = -1;
+                        }
+                    }
+
+                    if (firstResident >= 0) {
+                        appendRange(ranges, firstResident, chunk - 1);
+                    }
+                } catch (final NoSuchFileException ex) {
+                    continue;
+                }
+
+                if (ranges.length() > 0) {
+                    // size, ranges of chunks and path, path goes last as it may contain anything but a new line
+                    lines.add(format("%s\t%s\t%s", size, ranges, file));
+                }
+
+                if (cut) {
+                    break scan;
+                }
+            }
+        }
+
+        AtomicFiles.write(record, (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8));
+
+        logger.debug("Recorded {} MiB of SSTables resident in page cache to {} in {} ms, {} chunks scanned",
+                     recorded >> 20, record, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), scanned);
+
+        return recorded;
+    }
+
+    private static void appendRange(final StringBuilder ranges, final long first, final long last) {
+        ranges.append(ranges.length() == 0 ? "" : ",").append(first).append('-').append(last);
+    }
+
+    private boolean isResident(final FileChannel channel, final long chunk, final long size) throws IOException {
+        final long position = chunk * CHUNK_SIZE;
+        final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(CHUNK_SIZE, size - position));
+
+        try {
+            return buffer.isLoaded();
+        } finally {
+            unmap(buffer);
+        }
+    }
+
+    /**
+     * Loads recorded chunks back to page cache within the byte and time budgets.
+     *
+     * @return number of bytes loaded
+     */
+    public long prewarm() throws IOException, InterruptedException {
+        final List<Range> ranges = readRecord();
+
+        if (ranges.isEmpty()) {
+            return 0;
+        }
+
+        final long start = System.nanoTime();
+        final long deadline = start + timeout.toNanos();
+
+        final AtomicLong budget = new AtomicLong(maxBytes);
+        final AtomicLong loaded = new AtomicLong();
+        final Set<Path> files = ConcurrentHashMap.newKeySet();
+
+        final AtomicInteger threadCounter = new AtomicInteger();
+        final ThreadFactory threadFactory = runnable -> {
+            final Thread thread = new Thread(runnable, "page-cache-prewarm-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        final ExecutorService executor = Executors.newFixedThreadPool(PREWARM_THREADS, threadFactory);
+
+        try {
+            final List<Future<?>> loads = new ArrayList<>();
+
+            // ranges are in the order of priority, the pool takes them in that order too
+            for (final Range range : ranges) {
+                loads.add(executor.submit(() -> {
+                    if (load(range, budget, deadline, loaded)) {
+                        files.add(range.file);
+                    }
+                    return null;
+                }));
+            }
+
+            for (final Future<?> load : loads) {
+                try {
+                    load.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (final TimeoutException ex) {
+                    break;
+                } catch (final ExecutionException ex) {
+                    logger.debug("Unable to prewarm page cache", ex.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        final long elapsed = System.nanoTime() - start;
+
+        logger.info("Prewarmed page cache with {} MiB of {} SSTable components in {} ms{}",
+                    loaded.get() >> 20, files.size(), TimeUnit.NANOSECONDS.toMillis(elapsed),
+                    budget.get() <= 0 ? format(", byte budget of %s MiB used up", maxBytes >> 20) :
+                    elapsed >= timeout.toNanos() ? format(", time budget of %s ms used up", timeout.toMillis()) : "");
+
+        return loaded.get();
+    }
+
+    /**
+     * @return true if anything of the range was loaded
+     */
+    private boolean load(final Range range, final AtomicLong budget, final long deadline, final AtomicLong loaded) throws IOException {
+        try (final FileChannel channel = FileChannel.open(range.file, StandardOpenOption.READ)) {
+            // SSTables never change, a different size means a different SSTable of the same name
+            if (channel.size() != range.size) {
+                return false;
+            }
+
+            boolean any = false;
+
+            for (long position = range.start; position < range.end; position += LOAD_SIZE) {
+                final long length = Math.min(LOAD_SIZE, range.end - position);
+
+                if (System.nanoTime() - deadline >= 0 || budget.addAndGet(-length) < 0) {
+                    return any;
+                }
+
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+                try {
+                    buffer.load();
+                } finally {
+                    unmap(buffer);
+                }
+
+                loaded.addAndGet(length);
+                any = true;
+            }
+
+            return any;
+        } catch (final NoSuchFileException ex) {
+            return false;
+        }
+    }
+
+    private List<Range> readRecord() throws IOException {
+        if (!Files.exists(record)) {
+            return new ArrayList<>();
+        }
+
+        long chunkSize = CHUNK_SIZE;
+        final List<Range> ranges = new ArrayList<>();
+
+        for (final String line : Files.readAllLines(record, StandardCharsets.UTF_8)) {
+            if (line.startsWith("# chunk_size=")) {
+                chunkSize = Long.parseLong(line.substring("# chunk_size=".length()).trim());
+                continue;
+            }
+
+            final String[] fields = line.split("\t", 3);
+
+            if (fields.length != 3) {
+                continue;
+            }
+
+            try {
+                final long size = Long.parseLong(fields[0]);
+
+                for (final String chunks : fields[1].split(",")) {
+                    final int dash = chunks.indexOf('-');
+                    final long first = Long.parseLong(chunks.substring(0, dash));
+                    final long last = Long.parseLong(chunks.substring(dash + 1));
+
+                    ranges.add(new Range(Paths.get(fields[2]), size, first * chunkSize, Math.min(size, (last + 1) * chunkSize)));
+                }
+            } catch (final NumberFormatException | StringIndexOutOfBoundsException ex) {
+                logger.debug("Ignoring malformed line of {}: {}", record, line);
+            }
+        }
+
+        // records are written in the order of priority already, sorting keeps it when they were cut short
+        ranges.sort(Comparator.comparingInt(range -> component(range.file)));
+
+        return ranges;
+    }
+
+    /**
+     * @return SSTable components grouped by {@link #COMPONENTS}, the most recently written SSTables first
+     */
+    private List<List<Path>> sstableComponents() throws IOException {
+        final List<List<Path>> components = new ArrayList<>();
+
+        for (int i = 0; i < COMPONENTS.size(); i++) {
+            components.add(new ArrayList<>());
+        }
+
+        for (final Path dataDirectory : dataDirectories) {
+            if (!Files.isDirectory(dataDirectory)) {
+                continue;
+            }
+
+            // <data directory>/<keyspace>/<table>-<id>/<sstable>-<component>, snapshots and backups are deeper
+            try (final Stream<Path> files = Files.find(dataDirectory, 3, (path, attributes) -> attributes.isRegularFile() && component(path) < COMPONENTS.size())) {
+                for (final Path file : files.collect(Collectors.toList())) {
+                    components.get(component(file)).add(file);
+                }
+            }
+        }
+
+        for (final List<Path> files : components) {
+            files.sort(Comparator.comparingLong(PageCachePrewarmer::lastModified).reversed());
+        }
+
+        return components;
+    }
+
+    private static int component(final Path file) {
+        final String name = file.getFileName().toString();
+        final int dash = name.lastIndexOf('-');
+        final int component = dash < 0 ? -1 : COMPONENTS.indexOf(name.substring(dash + 1));
+
+        return component < 0 ? COMPONENTS.size() : component;
+    }
+
+    private static long lastModified(final Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (final IOException ex) {
+            return 0;
+        }
+    }
+
+    private void unmap(final MappedByteBuffer buffer) {
+        try {
+            unmapper.accept(buffer);
+        } catch (final RuntimeException | LinkageError ex) {
+            // released by GC then
+            logger.trace("Unable to unmap buffer", ex);
+        }
+    }
+
+    private static final class Range {
+
+        private final Path file;
+        private final long size;
+        private final long start;
+        private final long end;
+
+        private Range(final Path file, final long size, final long start, final long end) {
+            this.file = file;
+            this.size = size;
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Data center and rack of this pod taken from its labels, as Kubernetes publishes them by a downward API volume, e.g.
+ *
+ * <pre>
+ * cassandra-operator.instaclustr.com/datacenter="dc1"
+ * cassandra-operator.instaclustr.com/rack="west1-a"
+ * </pre>
+ *
+ * Operator labels every pod with its data center and rack, a rack is usually pinned to a zone by node affinity, so
+ * other labels can be used instead, e.g. a zone label copied to pods by an admission webhook.
+ *
+ * The file and the labels are set by "cassandra.k8s.topology.labels_file", "cassandra.k8s.topology.dc_label" and
+ * "cassandra.k8s.topology.rack_label" system properties.
+ */
+public final class PodTopology {
+
+    private static final Logger logger = LoggerFactory.getLogger(PodTopology.class);
+
+    public static final Path DEFAULT_LABELS_FILE = Paths.get("/etc/pod-info/labels");
+    public static final String DEFAULT_DC_LABEL = "cassandra-operator.instaclustr.com/datacenter";
+    public static final String DEFAULT_RACK_LABEL = "cassandra-operator.instaclustr.com/rack";
+
+    private final String datacenter;
+    private final String rack;
+
+    public PodTopology(final String datacenter, final String rack) {
+        this.datacenter = datacenter;
+        this.rack = rack;
+    }
+
+    public static PodTopology fromSystemProperties() {
+        return fromLabels(Paths.get(System.getProperty("cassandra.k8s.topology.labels_file", DEFAULT_LABELS_FILE.toString())),
+                          System.getProperty("cassandra.k8s.topology.dc_label", DEFAULT_DC_LABEL),
+                          System.getProperty("cassandra.k8s.topology.rack_label", DEFAULT_RACK_LABEL));
+    }
+
+    /**
+     * @return topology from given labels, data center or rack is null when its label or the whole file is missing
+     */
+    public static PodTopology fromLabels(final Path labelsFile, final String dcLabel, final String rackLabel) {
+        final Map<String, String> labels;
+
+        try {
+            labels = parseLabels(Files.readAllLines(labelsFile, StandardCharsets.UTF_8));
+        } catch (final NoSuchFileException ex) {
+            logger.debug("There are no pod labels in {}", labelsFile);
+            return new PodTopology(null, null);
+        } catch (final IOException ex) {
+            logger.warn(format("Unable to read pod labels from %s", labelsFile), ex);
+            return new PodTopology(null, null);
+        }
+
+        return new PodTopology(labels.get(dcLabel), labels.get(rackLabel));
+    }
+
+    /**
+     * Lines of a downward API file are "key=value", values are quoted.
+     */
+    static Map<String, String> parseLabels(final List<String> lines) {
+        final Map<String, String> labels = new HashMap<>();
+
+        for (final String line : lines) {
+            final int equals = line.indexOf('=');
+
+            if (equals <= 0) {
+                continue;
+            }
+
+            String value = line.substring(equals + 1).trim();
+
+            // values of labels have nothing to escape, quotes are all there is to strip
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                value = value.substring(1, value.length() - 1);
+            }
+
+            if (!value.isEmpty()) {
+                labels.put(line.substring(0, equals).trim(), value);
+            }
+        }
+
+        return labels;
+    }
+
+    /**
+     * @return data center, null when it is not known
+     */
+    public String getDatacenter() {
+        return datacenter;
+    }
+
+    /**
+     * @return rack, null when it is not known
+     */
+    public String getRack() {
+        return rack;
+    }
+
+    @Override
+    public String toString() {
+        return format("data center %s, rack %s", datacenter, rack);
+    }
+}
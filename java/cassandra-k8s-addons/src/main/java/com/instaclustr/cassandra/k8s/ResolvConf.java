@@ -0,0 +1,123 @@
+package com.instaclustr.cassandra.k8s;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Parsed content of /etc/resolv.conf, we are interested in nameservers, search domains and
+ * timeout / attempts options which drive how we query nameservers natively.
+ *
+ * nameserver 10.96.0.10
+ * search default.svc.cluster.local svc.cluster.local cluster.local
+ * options ndots:5 timeout:2 attempts:3
+ *
+ * Defaults follow the ones of glibc resolver - 5 seconds timeout, 2 attempts and local nameserver if none is specified.
+ */
+public final class ResolvConf {
+
+    public static final Path DEFAULT_PATH = Paths.get("/etc/resolv.conf");
+
+    private static final int DNS_PORT = 53;
+
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(5);
+
+    private static final int DEFAULT_ATTEMPTS = 2;
+
+    private final List<InetSocketAddress> nameservers;
+    private final List<String> searchDomains;
+    private final Duration timeout;
+    private final int attempts;
+
+    private ResolvConf(final List<InetSocketAddress> nameservers,
+                       final List<String> searchDomains,
+                       final Duration timeout,
+                       final int attempts) {
+        this.nameservers = Collections.unmodifiableList(nameservers);
+        this.searchDomains = Collections.unmodifiableList(searchDomains);
+        this.timeout = timeout;
+        this.attempts = attempts;
+    }
+
+    public static ResolvConf read() throws IOException {
+        return read(DEFAULT_PATH);
+    }
+
+    public static ResolvConf read(final Path path) throws IOException {
+        return parse(Files.readAllLines(path));
+    }
+
+    public static ResolvConf parse(final List<String> lines) {
+        final List<InetSocketAddress> nameservers = new ArrayList<>();
+        final List<String> searchDomains = new ArrayList<>();
+        Duration timeout = DEFAULT_TIMEOUT;
+        int attempts = DEFAULT_ATTEMPTS;
+
+        for (final String line : lines) {
+            final String[] split = line.trim().split("\\s+");
+
+            if (split.length < 2 || split[0].startsWith("#") || split[0].startsWith(";")) {
+                continue;
+            }
+
+            switch (split[0]) {
+                case "nameserver":
+                    nameservers.add(InetSocketAddress.createUnresolved(split[1], DNS_PORT));
+                    break;
+                case "search":
+                    searchDomains.clear();
+                    for (int i = 1; i < split.length; i++) {
+                        searchDomains.add(split[i]);
+                    }
+                    break;
+                case "options":
+                    for (int i = 1; i < split.length; i++) {
+                        if (split[i].startsWith("timeout:")) {
+                            timeout = Duration.ofSeconds(parseOption(split[i], timeout.getSeconds()));
+                        } else if (split[i].startsWith("attempts:")) {
+                            attempts = (int) parseOption(split[i], attempts);
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if (nameservers.isEmpty()) {
+            nameservers.add(InetSocketAddress.createUnresolved("127.0.0.1", DNS_PORT));
+        }
+
+        return new ResolvConf(nameservers, searchDomains, timeout, attempts);
+    }
+
+    private static long parseOption(final String option, final long defaultValue) {
+        try {
+            return Math.max(1, Long.parseLong(option.substring(option.indexOf(':') + 1)));
+        } catch (final NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
+
+    public List<InetSocketAddress> getNameservers() {
+        return nameservers;
+    }
+
+    public List<String> getSearchDomains() {
+        return searchDomains;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+}
@@ -0,0 +1,180 @@
+package com.instaclustr.cassandra.k8s;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Host names of addresses by reverse DNS lookups, without ever blocking the caller.
+ *
+ * PTR records of pods are slow to answer or missing altogether, so a lookup may take until the resolver times out.
+ * Instead of waiting, the IP literal of an address is returned until its host name is known, the lookup runs in
+ * the background. Found names are cached for TTL, missing ones for negative TTL, after that they are looked up
+ * again, meanwhile the name found before is still returned. At most max entries are kept, the least recently used
+ * address is evicted first.
+ *
+ * An address which already carries a host name, e.g. it was resolved by its name, is returned by that name right
+ * away, it is not looked up.
+ *
+ * TTLs and size of the shared cache are set by "cassandra.k8s.reverse_dns.ttl_ms",
+ * "cassandra.k8s.reverse_dns.negative_ttl_ms" and "cassandra.k8s.reverse_dns.max_entries" system properties.
+ */
+public final class ReverseDnsCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReverseDnsCache.class);
+
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+    public static final Duration DEFAULT_NEGATIVE_TTL = Duration.ofSeconds(30);
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    private static final int LOOKUP_THREADS = 2;
+
+    private static final ExecutorService LOOKUP_EXECUTOR = newLookupExecutor();
+
+    private static final ReverseDnsCache SHARED = new ReverseDnsCache(Duration.ofMillis(Long.getLong("cassandra.k8s.reverse_dns.ttl_ms", DEFAULT_TTL.toMillis())),
+                                                                      Duration.ofMillis(Long.getLong("cassandra.k8s.reverse_dns.negative_ttl_ms", DEFAULT_NEGATIVE_TTL.toMillis())),
+                                                                      Integer.getInteger("cassandra.k8s.reverse_dns.max_entries", DEFAULT_MAX_ENTRIES));
+
+    private final Duration ttl;
+    private final Duration negativeTtl;
+
+    private final Map<InetAddress, CachedName> entries;
+
+    public ReverseDnsCache(final Duration ttl, final Duration negativeTtl, final int maxEntries) {
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+        this.entries = new LinkedHashMap<InetAddress, CachedName>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<InetAddress, CachedName> eldest) {
+                return size() > Math.max(1, maxEntries);
+            }
+        };
+    }
+
+    /**
+     * @return cache shared by all address translators
+     */
+    public static ReverseDnsCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return host name of given address if it is known, its IP literal otherwise
+     */
+    public String getHostname(final InetAddress address) {
+        // "name/literal", the name is empty when the address was created without one, no lookup is done
+        final String given = address.toString();
+        final int slash = given.indexOf('/');
+
+        if (slash > 0) {
+            return given.substring(0, slash);
+        }
+
+        final long now = System.nanoTime();
+        final CachedName entry;
+        final String hostname;
+
+        synchronized (entries) {
+            final CachedName cached = entries.get(address);
+
+            if (cached != null && (cached.loading || now - cached.expiresAtNanos < 0)) {
+                return cached.hostname();
+            }
+
+            entry = new CachedName(address, cached == null ? null : cached.hostname);
+            entries.put(address, entry);
+            hostname = entry.hostname();
+        }
+
+        try {
+            LOOKUP_EXECUTOR.submit(() -> lookup(entry));
+        } catch (final RejectedExecutionException ex) {
+            logger.debug("Unable to look up host name of {}", address.getHostAddress(), ex);
+            loaded(entry, null, negativeTtl);
+        }
+
+        return hostname;
+    }
+
+    private void lookup(final CachedName entry) {
+        String hostname = null;
+
+        try {
+            // a new instance, so the name is not taken from the address given to us
+            final String canonical = InetAddress.getByAddress(entry.address.getAddress()).getCanonicalHostName();
+
+            // the literal is returned when there is no PTR record or the lookup failed
+            if (!canonical.equals(entry.address.getHostAddress())) {
+                hostname = canonical;
+            }
+        } catch (final UnknownHostException | SecurityException ex) {
+            logger.debug("Unable to look up host name of {}", entry.address.getHostAddress(), ex);
+        }
+
+        if (hostname == null) {
+            logger.debug("There is no host name of {}, looking it up again in {} ms", entry.address.getHostAddress(), negativeTtl.toMillis());
+            loaded(entry, null, negativeTtl);
+        } else {
+            loaded(entry, hostname, ttl);
+        }
+    }
+
+    /**
+     * @param hostname name found, null keeps the name found before, if any
+     */
+    private void loaded(final CachedName entry, final String hostname, final Duration entryTtl) {
+        synchronized (entries) {
+            if (hostname != null) {
+                entry.hostname = hostname;
+            }
+            entry.expiresAtNanos = System.nanoTime() + entryTtl.toNanos();
+            entry.loading = false;
+        }
+    }
+
+    private static ExecutorService newLookupExecutor() {
+        final AtomicInteger threadCounter = new AtomicInteger();
+
+        final ThreadFactory threadFactory = runnable -> {
+            final Thread thread = new Thread(runnable, "reverse-dns-lookup-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(LOOKUP_THREADS, LOOKUP_THREADS, 30, TimeUnit.SECONDS,
+                                                                   new LinkedBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static final class CachedName {
+
+        private final InetAddress address;
+
+        // guarded by entries
+        private String hostname;
+        private long expiresAtNanos;
+        private boolean loading = true;
+
+        private CachedName(final InetAddress address, final String hostname) {
+            this.address = address;
+            this.hostname = hostname;
+        }
+
+        private String hostname() {
+            return hostname == null ? address.getHostAddress() : hostname;
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import javax.management.Attribute;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Re-reads configuration when configuration files change and applies settings Cassandra can change at runtime
+ * through its StorageService MBean, the same way nodetool does.
+ *
+ * Cassandra fills in defaults into the configuration it has loaded (e.g. concurrent_compactors), so changes are not
+ * detected against the live configuration but against values of the configuration as it was loaded, captured before
+ * Cassandra gets to it, overlaid with whatever was applied since. Changes of all other settings are logged and
+ * reported as requiring restart.
+ *
+ * @param <T> type of configuration, e.g. Cassandra's Config
+ */
+public class RuntimeConfigReloader<T> implements RuntimeConfigReloaderMXBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(RuntimeConfigReloader.class);
+
+    private static final String STORAGE_SERVICE = "org.apache.cassandra.db:type=StorageService";
+
+    private static final int MAX_DEPTH = 32;
+
+    /**
+     * Configuration keys mapped to StorageService attributes which set them. Attributes missing in a Cassandra version
+     * (e.g. BatchSizeWarnThreshold in 3.11) are treated as requiring restart.
+     */
+    private static final Map<String, String> TUNABLES = new LinkedHashMap<>();
+
+    static {
+        TUNABLES.put("compaction_throughput_mb_per_sec", "CompactionThroughputMbPerSec");
+        TUNABLES.put("concurrent_compactors", "ConcurrentCompactors");
+        TUNABLES.put("stream_throughput_outbound_megabits_per_sec", "StreamThroughputMbPerSec");
+        TUNABLES.put("inter_dc_stream_throughput_outbound_megabits_per_sec", "InterDCStreamThroughputMbPerSec");
+        TUNABLES.put("request_timeout_in_ms", "RpcTimeout");
+        TUNABLES.put("read_request_timeout_in_ms", "ReadRpcTimeout");
+        TUNABLES.put("range_request_timeout_in_ms", "RangeRpcTimeout");
+        TUNABLES.put("write_request_timeout_in_ms", "WriteRpcTimeout");
+        TUNABLES.put("counter_write_request_timeout_in_ms", "CounterWriteRpcTimeout");
+        TUNABLES.put("cas_contention_timeout_in_ms", "CasContentionTimeout");
+        TUNABLES.put("truncate_request_timeout_in_ms", "TruncateRpcTimeout");
+        TUNABLES.put("tombstone_warn_threshold", "TombstoneWarnThreshold");
+        TUNABLES.put("tombstone_failure_threshold", "TombstoneFailureThreshold");
+        TUNABLES.put("batch_size_warn_threshold_in_kb", "BatchSizeWarnThreshold");
+        TUNABLES.put("batch_size_fail_threshold_in_kb", "BatchSizeFailureThreshold");
+        TUNABLES.put("hinted_handoff_throttle_in_kb", "HintedHandoffThrottleInKB");
+    }
+
+    private static final List<String> SENSITIVE_KEYS = Arrays.asList("client_encryption_options", "server_encryption_options");
+
+    private static final ExecutorService RELOAD_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "cassandra-config-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Supplier<T> parser;
+    private final List<Field> fields;
+    private final MBeanServer mbeanServer;
+
+    // values of fields of configuration as loaded at start, Cassandra replaces rather than mutates what it derives
+    private final Map<String, Object> baseline = new HashMap<>();
+    private final Map<String, Object> appliedValues = new HashMap<>();
+    private final Map<String, String> restartRequired = new TreeMap<>();
+
+    private long reloads;
+    private long failedReloads;
+    private long lastReloadNanos;
+    private String lastError;
+
+    private ConfigDirectoryWatcher watcher;
+
+    /**
+     * @param type   configuration type, its public non-final fields are compared
+     * @param parser parses configuration files from scratch on every call
+     */
+    public RuntimeConfigReloader(final Class<T> type, final Supplier<T> parser) {
+        this.parser = parser;
+        this.fields = Arrays.stream(type.getFields())
+            .filter(field -> !Modifier.isStatic(field.getModifiers()) && !Modifier.isFinal(field.getModifiers()))
+            .collect(Collectors.toList());
+        this.mbeanServer = ManagementFactory.getPlatformMBeanServer();
+    }
+
+    /**
+     * Starts watching given configuration files and directories.
+     *
+     * @param loaded configuration just loaded from these files, before Cassandra has filled in its defaults,
+     *               changes are detected against it
+     */
+    public synchronized RuntimeConfigReloader<T> start(final T loaded, final List<Path> paths, final Duration quietPeriod) throws IOException {
+        if (watcher != null) {
+            return this;
+        }
+
+        for (final Field field : fields) {
+            baseline.put(field.getName(), get(field, loaded));
+        }
+
+        watcher = new ConfigDirectoryWatcher(paths, quietPeriod, () -> RELOAD_EXECUTOR.execute(this::reload)).start();
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("com.instaclustr.cassandra.k8s:type=ConfigReload"));
+        } catch (final Exception ex) {
+            logger.warn("Unable to register configuration reloader", ex);
+        }
+
+        return this;
+    }
+
+    void reload() {
+        final T parsed;
+
+        try {
+            parsed = parser.get();
+        } catch (final RuntimeException ex) {
+            synchronized (this) {
+                failedReloads++;
+                lastError = ex.toString();
+            }
+            logger.error("Unable to reload configuration, nothing was applied", ex);
+            return;
+        }
+
+        applyChanges(parsed);
+    }
+
+    private synchronized void applyChanges(final T parsed) {
+        lastError = null;
+        reloads++;
+        lastReloadNanos = System.nanoTime();
+
+        for (final Field field : fields) {
+            final String name = field.getName();
+
+            final Object effective = appliedValues.containsKey(name) ? appliedValues.get(name) : baseline.get(name);
+            final Object value = get(field, parsed);
+
+            if (deepEquals(effective, value, 0)) {
+                // unchanged or set back to what is in effect
+                restartRequired.remove(name);
+                continue;
+            }
+
+            final String attribute = TUNABLES.get(name);
+
+            if (attribute != null && value != null && apply(name, attribute, value)) {
+                logger.info("Applied {} = {} without restart, it was {}", name, value, effective);
+                appliedValues.put(name, value);
+                restartRequired.remove(name);
+            } else {
+                final String change = describe(name, baseline.get(name)) + " -> " + describe(name, value);
+
+                if (!change.equals(restartRequired.put(name, change))) {
+                    logger.warn("Configuration {} has changed ({}), restart is required to apply it", name, change);
+                }
+            }
+        }
+
+        logger.info("Configuration reloaded, settings applied since start: {}, settings requiring restart: {}", appliedValues.keySet(), restartRequired.keySet());
+    }
+
+    private boolean apply(final String name, final String attribute, final Object value) {
+        try {
+            final ObjectName storageService = new ObjectName(STORAGE_SERVICE);
+            final MBeanInfo info = mbeanServer.getMBeanInfo(storageService);
+
+            for (final MBeanAttributeInfo attributeInfo : info.getAttributes()) {
+                if (attributeInfo.getName().equals(attribute) && attributeInfo.isWritable()) {
+                    mbeanServer.setAttribute(storageService, new Attribute(attribute, convert(value, attributeInfo.getType())));
+                    return true;
+                }
+            }
+
+            // setters without getters are operations, e.g. setHintedHandoffThrottleInKB
+            for (final MBeanOperationInfo operationInfo : info.getOperations()) {
+                if (operationInfo.getName().equals("set" + attribute) && operationInfo.getSignature().length == 1) {
+                    final String type = operationInfo.getSignature()[0].getType();
+                    mbeanServer.invoke(storageService, operationInfo.getName(), new Object[]{convert(value, type)}, new String[]{type});
+                    return true;
+                }
+            }
+
+            logger.info("{} can not be changed at runtime by this version of Cassandra", name);
+        } catch (final InstanceNotFoundException ex) {
+            logger.info("Unable to apply {}, Cassandra has not started yet", name);
+        } catch (final Exception ex) {
+            logger.warn(format("Unable to apply %s = %s", name, value), ex);
+        }
+
+        return false;
+    }
+
+    private static Object convert(final Object value, final String type) {
+        if (value instanceof Number) {
+            if ("int".equals(type) || Integer.class.getName().equals(type)) {
+                return ((Number) value).intValue();
+            }
+            if ("long".equals(type) || Long.class.getName().equals(type)) {
+                return ((Number) value).longValue();
+            }
+        }
+        return value;
+    }
+
+    private static Object get(final Field field, final Object config) {
+        try {
+            return field.get(config);
+        } catch (final IllegalAccessException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String describe(final String name, final Object value) {
+        if (SENSITIVE_KEYS.contains(name)) {
+            return "<REDACTED>";
+        }
+        return value instanceof Object[] ? Arrays.deepToString((Object[]) value) : Objects.toString(value);
+    }
+
+    /**
+     * Compares values field by field, most of Cassandra's option classes do not implement equals.
+     */
+    private static boolean deepEquals(final Object a, final Object b, final int depth) {
+        if (a == b) {
+            return true;
+        }
+
+        if (a == null || b == null || a.getClass() != b.getClass()) {
+            return false;
+        }
+
+        if (depth > MAX_DEPTH) {
+            return a.equals(b);
+        }
+
+        if (a instanceof Object[]) {
+            final Object[] first = (Object[]) a;
+            final Object[] second = (Object[]) b;
+
+            if (first.length != second.length) {
+                return false;
+            }
+
+            for (int i = 0; i < first.length; i++) {
+                if (!deepEquals(first[i], second[i], depth + 1)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        if (a.getClass().isArray()) {
+            return Objects.deepEquals(a, b);
+        }
+
+        if (a instanceof List) {
+            final List<?> first = (List<?>) a;
+            final List<?> second = (List<?>) b;
+
+            if (first.size() != second.size()) {
+                return false;
+            }
+
+            for (Iterator<?> i = first.iterator(), j = second.iterator(); i.hasNext(); ) {
+                if (!deepEquals(i.next(), j.next(), depth + 1)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        if (a instanceof Map) {
+            final Map<?, ?> first = (Map<?, ?>) a;
+            final Map<?, ?> second = (Map<?, ?>) b;
+
+            if (!first.keySet().equals(second.keySet())) {
+                return false;
+            }
+
+            for (final Map.Entry<?, ?> entry : first.entrySet()) {
+                if (!deepEquals(entry.getValue(), second.get(entry.getKey()), depth + 1)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        if (ConfigSnapshot.isJdkClass(a.getClass()) || a instanceof Enum) {
+            return a.equals(b);
+        }
+
+        for (final Field field : ConfigSnapshot.instanceFields(a.getClass())) {
+            if (!deepEquals(get(field, a), get(field, b), depth + 1)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public List<String> getRuntimeTunableSettings() {
+        return Collections.unmodifiableList(new ArrayList<>(TUNABLES.keySet()));
+    }
+
+    @Override
+    public synchronized Map<String, String> getAppliedSettings() {
+        final Map<String, String> applied = new TreeMap<>();
+
+        for (final Map.Entry<String, Object> entry : appliedValues.entrySet()) {
+            applied.put(entry.getKey(), describe(entry.getKey(), entry.getValue()));
+        }
+
+        return applied;
+    }
+
+    @Override
+    public synchronized Map<String, String> getRestartRequiredSettings() {
+        return new TreeMap<>(restartRequired);
+    }
+
+    @Override
+    public synchronized long getReloads() {
+        return reloads;
+    }
+
+    @Override
+    public synchronized long getFailedReloads() {
+        return failedReloads;
+    }
+
+    @Override
+    public synchronized long getLastReloadAgeMillis() {
+        if (reloads == 0) {
+            return -1;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastReloadNanos);
+    }
+
+    @Override
+    public synchronized String getLastError() {
+        return lastError;
+    }
+}
@@ -0,0 +1,40 @@
+package com.instaclustr.cassandra.k8s;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Configuration reloads as seen over JMX under "com.instaclustr.cassandra.k8s:type=ConfigReload".
+ */
+public interface RuntimeConfigReloaderMXBean {
+
+    /**
+     * Configuration keys which are applied without restart when they change in configuration files.
+     */
+    List<String> getRuntimeTunableSettings();
+
+    /**
+     * Settings changed in configuration files since start and applied to running Cassandra, key to applied value.
+     */
+    Map<String, String> getAppliedSettings();
+
+    /**
+     * Settings changed in configuration files since start which take effect only after restart,
+     * key to "value at start -> value in files".
+     */
+    Map<String, String> getRestartRequiredSettings();
+
+    long getReloads();
+
+    long getFailedReloads();
+
+    /**
+     * Milliseconds since last reload, -1 if there was none yet.
+     */
+    long getLastReloadAgeMillis();
+
+    /**
+     * Error of the last reload, null if it succeeded.
+     */
+    String getLastError();
+}
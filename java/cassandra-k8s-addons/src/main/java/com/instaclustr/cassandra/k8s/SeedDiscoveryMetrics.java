@@ -0,0 +1,198 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.lang.String.format;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Latencies and outcomes of seed resolutions of a seed service, registered as an MXBean on first use.
+ */
+public final class SeedDiscoveryMetrics implements SeedDiscoveryMetricsMXBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeedDiscoveryMetrics.class);
+
+    private static final ConcurrentMap<String, SeedDiscoveryMetrics> METRICS = new ConcurrentHashMap<>();
+
+    private final LatencyHistogram resolutionLatency = new LatencyHistogram();
+    private final LatencyHistogram dnsQueryLatency = new LatencyHistogram();
+    private final LatencyHistogram parsingLatency = new LatencyHistogram();
+    private final LatencyHistogram addressMappingLatency = new LatencyHistogram();
+    private final LatencyHistogram orderingLatency = new LatencyHistogram();
+
+    private final AtomicLong successfulResolutions = new AtomicLong();
+    private final AtomicLong failedResolutions = new AtomicLong();
+    private final AtomicLong emptyResolutions = new AtomicLong();
+    private final AtomicLong lastFilteredOutEndpoints = new AtomicLong();
+    private final AtomicLong totalFilteredOutEndpoints = new AtomicLong();
+    private final AtomicInteger currentSeedCount = new AtomicInteger();
+    private final AtomicLong lastSuccessNanos = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    private volatile boolean succeededOnce;
+
+    private volatile String seedPolicy;
+
+    private SeedDiscoveryMetrics() {
+    }
+
+    public static SeedDiscoveryMetrics forService(final String service) {
+        return METRICS.computeIfAbsent(service, s -> {
+            final SeedDiscoveryMetrics metrics = new SeedDiscoveryMetrics();
+            register(s, metrics);
+            return metrics;
+        });
+    }
+
+    private static void register(final String service, final SeedDiscoveryMetrics metrics) {
+        try {
+            final ObjectName name = new ObjectName(format("com.instaclustr.cassandra.k8s:type=SeedDiscovery,service=%s", ObjectName.quote(service)));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+        } catch (final Exception ex) {
+            logger.warn(format("Unable to register seed discovery metrics of %s", service), ex);
+        }
+    }
+
+    public void seedPolicy(final SeedPolicy policy) {
+        seedPolicy = policy.toString();
+    }
+
+    public void dnsQueryFinished(final long nanos) {
+        dnsQueryLatency.update(nanos);
+    }
+
+    public void parsingFinished(final long nanos, final int endpoints, final int seeds) {
+        parsingLatency.update(nanos);
+        lastFilteredOutEndpoints.set(endpoints - seeds);
+        totalFilteredOutEndpoints.addAndGet(endpoints - seeds);
+    }
+
+    public void addressMappingFinished(final long nanos) {
+        addressMappingLatency.update(nanos);
+    }
+
+    public void orderingFinished(final long nanos) {
+        orderingLatency.update(nanos);
+    }
+
+    public void resolutionSucceeded(final long nanos, final int seeds) {
+        resolutionLatency.update(nanos);
+        successfulResolutions.incrementAndGet();
+        currentSeedCount.set(seeds);
+        lastSuccessNanos.set(System.nanoTime());
+        succeededOnce = true;
+    }
+
+    public void resolutionEmpty(final long nanos) {
+        resolutionLatency.update(nanos);
+        emptyResolutions.incrementAndGet();
+    }
+
+    public void resolutionFailed(final long nanos) {
+        resolutionLatency.update(nanos);
+        failedResolutions.incrementAndGet();
+    }
+
+    public void cacheHit() {
+        cacheHits.incrementAndGet();
+    }
+
+    public void cacheMiss() {
+        cacheMisses.incrementAndGet();
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getResolutionLatency() {
+        return resolutionLatency.snapshot();
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getDnsQueryLatency() {
+        return dnsQueryLatency.snapshot();
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getParsingLatency() {
+        return parsingLatency.snapshot();
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getAddressMappingLatency() {
+        return addressMappingLatency.snapshot();
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getOrderingLatency() {
+        return orderingLatency.snapshot();
+    }
+
+    @Override
+    public long getSuccessfulResolutions() {
+        return successfulResolutions.get();
+    }
+
+    @Override
+    public long getFailedResolutions() {
+        return failedResolutions.get();
+    }
+
+    @Override
+    public long getEmptyResolutions() {
+        return emptyResolutions.get();
+    }
+
+    @Override
+    public String getSeedPolicy() {
+        return seedPolicy;
+    }
+
+    @Override
+    public long getLastFilteredOutEndpoints() {
+        return lastFilteredOutEndpoints.get();
+    }
+
+    @Override
+    public long getTotalFilteredOutEndpoints() {
+        return totalFilteredOutEndpoints.get();
+    }
+
+    @Override
+    public int getCurrentSeedCount() {
+        return currentSeedCount.get();
+    }
+
+    @Override
+    public long getLastSuccessAgeMillis() {
+        if (!succeededOnce) {
+            return -1;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastSuccessNanos.get());
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    @Override
+    public double getCacheHitRatio() {
+        final long hits = cacheHits.get();
+        final long total = hits + cacheMisses.get();
+        return total == 0 ? Double.NaN : (double) hits / total;
+    }
+}
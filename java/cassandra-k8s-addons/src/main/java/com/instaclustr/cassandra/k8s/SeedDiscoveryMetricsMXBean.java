@@ -0,0 +1,55 @@
+package com.instaclustr.cassandra.k8s;
+
+/**
+ * Seed discovery of a seed service as seen over JMX under
+ * "com.instaclustr.cassandra.k8s:type=SeedDiscovery,service=&lt;service&gt;".
+ */
+public interface SeedDiscoveryMetricsMXBean {
+
+    LatencyHistogram.Snapshot getResolutionLatency();
+
+    LatencyHistogram.Snapshot getDnsQueryLatency();
+
+    LatencyHistogram.Snapshot getParsingLatency();
+
+    LatencyHistogram.Snapshot getAddressMappingLatency();
+
+    /**
+     * Time spent ordering resolved seeds, including probes of their storage ports.
+     */
+    LatencyHistogram.Snapshot getOrderingLatency();
+
+    long getSuccessfulResolutions();
+
+    long getFailedResolutions();
+
+    long getEmptyResolutions();
+
+    /**
+     * Which pods of the service are seeds, see {@link SeedPolicy}, null until the first resolution.
+     */
+    String getSeedPolicy();
+
+    /**
+     * Number of endpoints dropped by seed filtering in the last resolution, e.g. pods which are not seeds.
+     */
+    long getLastFilteredOutEndpoints();
+
+    long getTotalFilteredOutEndpoints();
+
+    int getCurrentSeedCount();
+
+    /**
+     * Milliseconds since last successful resolution, -1 if there was none yet.
+     */
+    long getLastSuccessAgeMillis();
+
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    /**
+     * Ratio of seed requests answered from cache, NaN if seeds were not requested yet.
+     */
+    double getCacheHitRatio();
+}
@@ -0,0 +1,225 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Orders resolved seeds so a node gossips with the closest seeds first.
+ *
+ * Seeds are ranked by locality first, seeds in the same rack, then seeds in the same data center, then the rest.
+ * It is derived from the way operator names things, a pod "cassandra-cluster-dc1-rack1-0" belongs to StatefulSet
+ * (rack) "cassandra-cluster-dc1-rack1" and is published by seed service "cassandra-cluster-dc1-seeds" of its
+ * data center, so a seed is in the local data center when the local StatefulSet starts with the name of the service
+ * it is published by (the second label of its host name) without the suffix.
+ *
+ * Within the same locality, seeds can also be ordered by how long it takes to open a TCP connection to the port
+ * Cassandra connects to them on, see {@link Mode#LATENCY}. Probes run in parallel and unreachable seeds go last.
+ * Seeds of the same rank stay in the order DNS returned them.
+ */
+public class SeedOrdering {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeedOrdering.class);
+
+    public enum Mode {
+        /**
+         * Seeds are returned in the order DNS returned them.
+         */
+        DNS,
+        /**
+         * Seeds are ordered by locality only, nothing is probed. The default.
+         */
+        TOPOLOGY,
+        /**
+         * Seeds are ordered by locality and measured connect time to their storage port, opt-in as it opens
+         * connections to every seed on each resolution.
+         */
+        LATENCY;
+
+        public static Mode parse(final String mode) {
+            if (mode == null) {
+                return TOPOLOGY;
+            }
+
+            for (final Mode value : values()) {
+                if (value.name().equalsIgnoreCase(mode.trim())) {
+                    return value;
+                }
+            }
+
+            throw new IllegalArgumentException(format("Unknown seed ordering \"%s\", valid values are \"dns\", \"topology\" and \"latency\".", mode));
+        }
+    }
+
+    enum Locality {
+        SAME_RACK,
+        SAME_DC,
+        REMOTE
+    }
+
+    private final Mode mode;
+    private final String localStatefulSet;
+    private final int storagePort;
+    private final Duration probeTimeout;
+    private final int maxSeeds;
+
+    /**
+     * @param localHostname host name of this pod, null if not known
+     * @param storagePort   port seeds are probed on, the one Cassandra connects to them on
+     * @param maxSeeds      at most this many seeds are returned, 0 for all of them
+     */
+    public SeedOrdering(final Mode mode, final String localHostname, final int storagePort, final Duration probeTimeout, final int maxSeeds) {
+        this.mode = mode;
+        this.localStatefulSet = localHostname == null ? null : statefulSet(localHostname);
+        this.storagePort = storagePort;
+        this.probeTimeout = probeTimeout;
+        this.maxSeeds = maxSeeds;
+    }
+
+    /**
+     * @param service  seed service the seeds were resolved from
+     * @param seeds    seeds as resolved by their host names
+     * @param executor executor to probe seeds on
+     */
+    public List<InetAddress> order(final String service, final List<InetAddress> seeds, final ExecutorService executor) throws InterruptedException {
+        List<InetAddress> ordered = seeds;
+
+        if (mode != Mode.DNS && seeds.size() > 1) {
+            final List<RankedSeed> ranked = new ArrayList<>(seeds.size());
+
+            for (final InetAddress seed : seeds) {
+                ranked.add(new RankedSeed(seed, locality(service, seed.getHostName())));
+            }
+
+            if (mode == Mode.LATENCY) {
+                probe(ranked, executor);
+            }
+
+            ranked.sort(Comparator.comparing((RankedSeed seed) -> seed.locality).thenComparingLong(seed -> seed.rttNanos));
+
+            logger.debug("Seeds of {} ordered by {}: {}", service, mode, ranked);
+
+            ordered = new ArrayList<>(ranked.size());
+
+            for (final RankedSeed seed : ranked) {
+                ordered.add(seed.address);
+            }
+        }
+
+        if (maxSeeds > 0 && ordered.size() > maxSeeds) {
+            return new ArrayList<>(ordered.subList(0, maxSeeds));
+        }
+
+        return ordered;
+    }
+
+    Locality locality(final String service, final String seedHostname) {
+        if (localStatefulSet == null) {
+            return Locality.SAME_DC;
+        }
+
+        if (localStatefulSet.equals(statefulSet(seedHostname))) {
+            return Locality.SAME_RACK;
+        }
+
+        final String seedService = service(seedHostname, service);
+        final int suffix = seedService.lastIndexOf('-');
+
+        if (suffix > 0 && localStatefulSet.startsWith(seedService.substring(0, suffix + 1))) {
+            return Locality.SAME_DC;
+        }
+
+        return Locality.REMOTE;
+    }
+
+    /**
+     * "cassandra-cluster-dc1-rack1-0.cassandra-cluster-dc1-seeds.default.svc.cluster.local" is in "cassandra-cluster-dc1-rack1"
+     */
+    static String statefulSet(final String hostname) {
+        final int dot = hostname.indexOf('.');
+        final String pod = dot == -1 ? hostname : hostname.substring(0, dot);
+        final int ordinal = pod.lastIndexOf('-');
+
+        return ordinal == -1 ? pod : pod.substring(0, ordinal);
+    }
+
+    private static String service(final String hostname, final String defaultService) {
+        final int start = hostname.indexOf('.');
+
+        if (start == -1) {
+            return defaultService;
+        }
+
+        final int end = hostname.indexOf('.', start + 1);
+
+        return end == -1 ? hostname.substring(start + 1) : hostname.substring(start + 1, end);
+    }
+
+    private void probe(final List<RankedSeed> seeds, final ExecutorService executor) throws InterruptedException {
+        final List<Future<Long>> probes = new ArrayList<>(seeds.size());
+
+        for (final RankedSeed seed : seeds) {
+            probes.add(executor.submit(() -> connectNanos(seed.address)));
+        }
+
+        // every probe gives up after the timeout on its own, even when all of them queue up behind each other
+        // on a single thread, this is only a safety net
+        final long deadline = System.nanoTime() + probeTimeout.toNanos() * seeds.size();
+
+        for (int i = 0; i < seeds.size(); i++) {
+            final RankedSeed seed = seeds.get(i);
+            final Future<Long> probe = probes.get(i);
+
+            try {
+                seed.rttNanos = probe.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (final TimeoutException ex) {
+                probe.cancel(true);
+                logger.debug("Probe of seed {} has not finished in time", seed.address);
+            } catch (final ExecutionException ex) {
+                logger.debug("Seed {} is not reachable on port {}: {}", seed.address, storagePort, ex.getCause().toString());
+            }
+        }
+    }
+
+    private long connectNanos(final InetAddress address) throws IOException {
+        try (final Socket socket = new Socket()) {
+            final long start = System.nanoTime();
+            socket.connect(new InetSocketAddress(address, storagePort), (int) Math.max(1, probeTimeout.toMillis()));
+            return System.nanoTime() - start;
+        }
+    }
+
+    private static final class RankedSeed {
+
+        private final InetAddress address;
+        private final Locality locality;
+
+        // unreachable seeds go last
+        private long rttNanos = Long.MAX_VALUE;
+
+        private RankedSeed(final InetAddress address, final Locality locality) {
+            this.address = address;
+            this.locality = locality;
+        }
+
+        @Override
+        public String toString() {
+            return format("%s (%s, %s)", address, locality, rttNanos == Long.MAX_VALUE ? "unreachable" : TimeUnit.NANOSECONDS.toMicros(rttNanos) + " us");
+        }
+    }
+}
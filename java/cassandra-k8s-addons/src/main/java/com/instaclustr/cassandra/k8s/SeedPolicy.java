@@ -0,0 +1,172 @@
+package com.instaclustr.cassandra.k8s;
+
+import static com.instaclustr.cassandra.k8s.SeedProviderArgs.getInt;
+import static java.lang.String.format;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides which pods of a seed service are seeds by their StatefulSet ordinal, e.g.
+ * "cassandra-cluster-dc1-rack1-2.cassandra-cluster-dc1-seeds.default.svc.cluster.local" has ordinal 2 in rack
+ * "cassandra-cluster-dc1-rack1".
+ *
+ * By default only the first pod of each rack is a seed, as it always was. More seeds per rack make gossip converge
+ * faster after a restart of a big data center and keep a rack with a seed when its first pod is gone. Seeds are
+ * always the lowest ordinals of a rack, those are the pods a StatefulSet keeps when it is scaled down.
+ *
+ * Endpoints whose host name does not end with an ordinal are never seeds.
+ */
+public final class SeedPolicy {
+
+    public enum Mode {
+        /**
+         * Pods with ordinals lower than seeds per rack are seeds.
+         */
+        FIRST_ORDINALS,
+        /**
+         * Given percentage of pods of each rack are seeds, rounded up, so every rack has a seed. Size of a rack is
+         * taken from the highest ordinal seen in it, a pod which is down does not shrink its rack.
+         */
+        PERCENTAGE;
+
+        public static Mode parse(final String mode) {
+            if (mode == null) {
+                return FIRST_ORDINALS;
+            }
+
+            for (final Mode value : values()) {
+                if (value.name().equalsIgnoreCase(mode.trim())) {
+                    return value;
+                }
+            }
+
+            throw new IllegalArgumentException(format("Unknown seed policy \"%s\", valid values are \"first_ordinals\" and \"percentage\".", mode));
+        }
+    }
+
+    public static final int DEFAULT_SEEDS_PER_RACK = 1;
+    public static final int DEFAULT_SEED_PERCENTAGE = 10;
+
+    private final Mode mode;
+    private final int seedsPerRack;
+    private final int seedPercentage;
+
+    public SeedPolicy(final Mode mode, final int seedsPerRack, final int seedPercentage) {
+        this.mode = mode;
+        this.seedsPerRack = Math.max(1, seedsPerRack);
+        this.seedPercentage = Math.max(1, Math.min(100, seedPercentage));
+    }
+
+    /**
+     * Reads "seed_policy", "seeds_per_rack" and "seed_percentage" from seed provider arguments.
+     */
+    public static SeedPolicy fromArgs(final Map<String, String> args) {
+        return new SeedPolicy(Mode.parse(args.get("seed_policy")),
+                              getInt(args, "seeds_per_rack", DEFAULT_SEEDS_PER_RACK),
+                              getInt(args, "seed_percentage", DEFAULT_SEED_PERCENTAGE));
+    }
+
+    /**
+     * @param hostnames host names of all endpoints of a seed service
+     * @return host names of seeds in the order they were given
+     */
+    public List<String> filter(final List<String> hostnames) {
+        final List<String> seeds = new ArrayList<>();
+
+        if (mode == Mode.FIRST_ORDINALS) {
+            for (final String hostname : hostnames) {
+                final int ordinal = ordinal(hostname);
+
+                if (ordinal >= 0 && ordinal < seedsPerRack) {
+                    seeds.add(hostname);
+                }
+            }
+
+            return seeds;
+        }
+
+        final Map<String, Integer> rackSizes = new HashMap<>();
+
+        for (final String hostname : hostnames) {
+            final int ordinal = ordinal(hostname);
+
+            if (ordinal >= 0) {
+                rackSizes.merge(SeedOrdering.statefulSet(hostname), ordinal + 1, Math::max);
+            }
+        }
+
+        for (final String hostname : hostnames) {
+            final int ordinal = ordinal(hostname);
+
+            if (ordinal >= 0 && ordinal < seedsOfRack(rackSizes.get(SeedOrdering.statefulSet(hostname)))) {
+                seeds.add(hostname);
+            }
+        }
+
+        return seeds;
+    }
+
+    private int seedsOfRack(final int rackSize) {
+        return (int) Math.max(1, ((long) rackSize * seedPercentage + 99) / 100);
+    }
+
+    /**
+     * Ordinal of a pod in its StatefulSet, the number after the last dash of the first label of its host name, read in
+     * place.
+     *
+     * @return ordinal, -1 when there is none
+     */
+    static int ordinal(final CharSequence hostname) {
+        int end = 0;
+
+        while (end < hostname.length() && hostname.charAt(end) != '.') {
+            end++;
+        }
+
+        int start = end;
+
+        while (start > 0 && hostname.charAt(start - 1) >= '0' && hostname.charAt(start - 1) <= '9') {
+            start--;
+        }
+
+        // at least one digit preceded by a dash, and not too many of them for an int
+        if (start == end || start == 0 || hostname.charAt(start - 1) != '-' || end - start > 9) {
+            return -1;
+        }
+
+        // name of a StatefulSet is not just digits and dashes, e.g. "10-244-2-117" is an address of a pod, not a pod
+        if (!hasLetter(hostname, start - 1)) {
+            return -1;
+        }
+
+        int ordinal = 0;
+
+        for (int i = start; i < end; i++) {
+            ordinal = ordinal * 10 + (hostname.charAt(i) - '0');
+        }
+
+        return ordinal;
+    }
+
+    private static boolean hasLetter(final CharSequence hostname, final int end) {
+        for (int i = 0; i < end; i++) {
+            final char c = hostname.charAt(i);
+
+            if (c != '-' && (c < '0' || c > '9')) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return mode == Mode.FIRST_ORDINALS
+            ? format("first %s ordinal(s) of each rack", seedsPerRack)
+            : format("%s%% of each rack", seedPercentage);
+    }
+}
@@ -0,0 +1,43 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.lang.String.format;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Typed access to "parameters" of seed provider as they are specified in cassandra.yaml, all of them are strings.
+ */
+public final class SeedProviderArgs {
+
+    private SeedProviderArgs() {
+    }
+
+    public static Duration getMillis(final Map<String, String> args, final String key, final Duration defaultValue) {
+        final String value = args.get(key);
+
+        if (value == null) {
+            return defaultValue;
+        }
+
+        return Duration.ofMillis(Math.max(0, parseLong(key, value)));
+    }
+
+    public static int getInt(final Map<String, String> args, final String key, final int defaultValue) {
+        final String value = args.get(key);
+
+        if (value == null) {
+            return defaultValue;
+        }
+
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, parseLong(key, value)));
+    }
+
+    private static long parseLong(final String key, final String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (final NumberFormatException ex) {
+            throw new IllegalArgumentException(format("Seed provider argument \"%s\" has to be a number but it is \"%s\"", key, value), ex);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.lang.String.format;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A seed service as it is given in "service" argument of seed provider, one of
+ *
+ * <ul>
+ *     <li>"cassandra-dc1-seeds", a service in our own namespace</li>
+ *     <li>"cassandra-dc2-seeds.other-namespace", a service in another namespace of our cluster</li>
+ *     <li>"cassandra-dc3-seeds.ns.svc.other.cluster.domain", fully qualified name of a service anywhere DNS reaches,
+ *     e.g. in another Kubernetes cluster, a trailing dot is optional</li>
+ * </ul>
+ */
+public final class SeedService {
+
+    private static final String DEFAULT_SERVICE_DOMAIN = "svc.cluster.local";
+
+    private final String service;
+    private final String name;
+    private final String namespace;
+    private final boolean fullyQualified;
+
+    private SeedService(final String service, final String name, final String namespace, final boolean fullyQualified) {
+        this.service = service;
+        this.name = name;
+        this.namespace = namespace;
+        this.fullyQualified = fullyQualified;
+    }
+
+    public static SeedService parse(final String service) {
+        final String trimmed = service.trim();
+        final String withoutDot = trimmed.endsWith(".") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+
+        if (withoutDot.isEmpty() || withoutDot.startsWith(".") || withoutDot.contains("..")) {
+            throw new IllegalArgumentException(format("Invalid seed service \"%s\"", service));
+        }
+
+        final String[] labels = withoutDot.split("\\.");
+
+        if (labels.length == 1 && !trimmed.endsWith(".")) {
+            return new SeedService(trimmed, withoutDot, null, false);
+        }
+
+        if (labels.length == 2 && !trimmed.endsWith(".")) {
+            return new SeedService(trimmed, labels[0], labels[1], false);
+        }
+
+        return new SeedService(trimmed, labels[0], labels.length > 1 ? labels[1] : null, true);
+    }
+
+    /**
+     * @param services services separated by commas or white space
+     */
+    public static List<SeedService> parseList(final String services) {
+        final List<SeedService> parsed = new ArrayList<>();
+
+        for (final String service : services.split("[,\\s]+")) {
+            if (!service.isEmpty()) {
+                parsed.add(parse(service));
+            }
+        }
+
+        if (parsed.isEmpty()) {
+            throw new IllegalArgumentException(format("No seed service in \"%s\"", services));
+        }
+
+        return parsed;
+    }
+
+    /**
+     * @return name of the service, the first label
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return namespace of the service, null when it is our own
+     */
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * @return true when the service was given by its fully qualified domain name, it is then looked up only in DNS
+     */
+    public boolean isFullyQualified() {
+        return fullyQualified;
+    }
+
+    /**
+     * @param ownNamespace namespace we run in
+     * @param searchDomains search domains of resolv.conf, e.g. "default.svc.cluster.local svc.cluster.local cluster.local"
+     * @return domain name to ask for SRV records of the service
+     */
+    String domainName(final String ownNamespace, final List<String> searchDomains) {
+        if (fullyQualified) {
+            return service.endsWith(".") ? service.substring(0, service.length() - 1) : service;
+        }
+
+        if (namespace == null && !searchDomains.isEmpty()) {
+            return format("%s.%s", name, searchDomains.get(0));
+        }
+
+        // the service domain of the cluster is the search domain starting with "svc.", e.g. "svc.cluster.local"
+        String serviceDomain = DEFAULT_SERVICE_DOMAIN;
+
+        for (final String searchDomain : searchDomains) {
+            if (searchDomain.startsWith("svc.")) {
+                serviceDomain = searchDomain;
+                break;
+            }
+        }
+
+        return format("%s.%s.%s", name, namespace == null ? ownNamespace : namespace, serviceDomain);
+    }
+
+    @Override
+    public String toString() {
+        return service;
+    }
+}
@@ -0,0 +1,183 @@
+package com.instaclustr.cassandra.k8s;
+
+import static com.instaclustr.cassandra.k8s.SeedProviderArgs.getMillis;
+import static java.lang.String.format;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the last successfully resolved seeds of a service so Cassandra does not do a DNS round trip
+ * every time it asks for seeds.
+ *
+ * Once there is a good list, it is always returned immediately. When it is older than TTL, it is refreshed
+ * in the background and the old list is returned until the refresh finishes (stale-while-revalidate).
+ *
+ * Failed (or empty) resolutions are cached too, the next resolution is attempted only after a backoff which
+ * starts at negative TTL, doubles on each consecutive failure up to max backoff and is jittered so a whole
+ * StatefulSet restarting at once does not hit cluster DNS at the same moment. If there is no good list yet,
+ * callers get the cached failure until the backoff elapses.
+ *
+ * @param <T> type of seed addresses
+ */
+public final class SeedsCache<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeedsCache.class);
+
+    private static final ConcurrentMap<String, SeedsCache<?>> CACHES = new ConcurrentHashMap<>();
+
+    private static final ExecutorService REFRESH_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "seeds-cache-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String name;
+    private final Settings settings;
+    private final Callable<List<T>> resolver;
+    private final SeedDiscoveryMetrics metrics;
+
+    private List<T> seeds;
+    private long resolvedAtNanos;
+    private Exception lastFailure;
+    private int consecutiveFailures;
+    private long nextAttemptAtNanos;
+    private boolean refreshing;
+
+    SeedsCache(final String name, final Settings settings, final Callable<List<T>> resolver) {
+        this.name = name;
+        this.settings = settings;
+        this.resolver = resolver;
+        this.metrics = SeedDiscoveryMetrics.forService(name);
+    }
+
+    /**
+     * Returns cache shared by all callers asking for seeds of the same service, settings and resolver
+     * of the first caller are used.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> SeedsCache<T> forService(final String service, final Settings settings, final Callable<List<T>> resolver) {
+        return (SeedsCache<T>) CACHES.computeIfAbsent(service, s -> new SeedsCache<>(s, settings, resolver));
+    }
+
+    public List<T> get() throws Exception {
+        synchronized (this) {
+            while (true) {
+                final long now = System.nanoTime();
+
+                if (seeds != null) {
+                    if (now - resolvedAtNanos >= settings.ttl.toNanos() && !refreshing && now - nextAttemptAtNanos >= 0) {
+                        refreshing = true;
+                        REFRESH_EXECUTOR.submit(this::refresh);
+                    }
+                    metrics.cacheHit();
+                    return seeds;
+                }
+
+                if (lastFailure != null && now - nextAttemptAtNanos < 0) {
+                    metrics.cacheHit();
+                    throw lastFailure;
+                }
+
+                if (!refreshing) {
+                    break;
+                }
+
+                // somebody else is resolving the very first list, wait for it instead of resolving too
+                wait();
+            }
+
+            refreshing = true;
+        }
+
+        metrics.cacheMiss();
+        refresh();
+
+        synchronized (this) {
+            if (seeds != null) {
+                return seeds;
+            }
+            throw lastFailure;
+        }
+    }
+
+    private void refresh() {
+        try {
+            final List<T> resolved = resolver.call();
+
+            if (resolved == null || resolved.isEmpty()) {
+                throw new IllegalStateException("Seed list is empty!");
+            }
+
+            synchronized (this) {
+                seeds = resolved;
+                resolvedAtNanos = System.nanoTime();
+                lastFailure = null;
+                consecutiveFailures = 0;
+                nextAttemptAtNanos = resolvedAtNanos;
+            }
+
+            logger.debug("Resolved seeds of {}: {}", name, resolved);
+        } catch (final Exception ex) {
+            synchronized (this) {
+                lastFailure = ex;
+                consecutiveFailures++;
+                nextAttemptAtNanos = System.nanoTime() + backoff(consecutiveFailures).toNanos();
+
+                logger.warn(format("Unable to resolve seeds of %s, %s consecutive failures%s", name, consecutiveFailures,
+                                   seeds == null ? "" : ", using last known seeds " + seeds), ex);
+            }
+        } finally {
+            synchronized (this) {
+                refreshing = false;
+                notifyAll();
+            }
+        }
+    }
+
+    private Duration backoff(final int failures) {
+        final long base = settings.negativeTtl.toMillis();
+        final long max = Math.max(base, settings.maxBackoff.toMillis());
+        final long exponential = failures >= 31 ? max : Math.min(max, base << (failures - 1));
+
+        // equal jitter - at least half of the computed backoff, at most all of it
+        final long half = exponential / 2;
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(exponential - half + 1));
+    }
+
+    public static final class Settings {
+
+        public static final Duration DEFAULT_TTL = Duration.ofSeconds(30);
+        public static final Duration DEFAULT_NEGATIVE_TTL = Duration.ofSeconds(5);
+        public static final Duration DEFAULT_MAX_BACKOFF = Duration.ofMinutes(2);
+
+        private final Duration ttl;
+        private final Duration negativeTtl;
+        private final Duration maxBackoff;
+
+        public Settings(final Duration ttl, final Duration negativeTtl, final Duration maxBackoff) {
+            this.ttl = ttl;
+            this.negativeTtl = negativeTtl;
+            this.maxBackoff = maxBackoff;
+        }
+
+        /**
+         * Reads "seeds_cache_ttl_ms", "seeds_cache_negative_ttl_ms" and "seeds_cache_max_backoff_ms" from seed provider arguments.
+         */
+        public static Settings fromArgs(final Map<String, String> args) {
+            return new Settings(getMillis(args, "seeds_cache_ttl_ms", DEFAULT_TTL),
+                                getMillis(args, "seeds_cache_negative_ttl_ms", DEFAULT_NEGATIVE_TTL),
+                                getMillis(args, "seeds_cache_max_backoff_ms", DEFAULT_MAX_BACKOFF));
+        }
+    }
+}
@@ -1,24 +1,39 @@
 package com.instaclustr.cassandra.k8s;
 
+import static com.instaclustr.cassandra.k8s.SeedProviderArgs.getInt;
+import static com.instaclustr.cassandra.k8s.SeedProviderArgs.getMillis;
 import static java.lang.String.format;
-import static java.util.stream.Collectors.toList;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
 import java.net.InetAddress;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * The logic in this seed resolver seems to  be rather counter-intuitive, using of dig command ... eh?
+ * The logic in this seed resolver seems to  be rather counter-intuitive, asking for SRV records ... eh?
  *
  * The reason for this is that we have a seed service (as Kubernetes service) in operator and it work in such
  * way that it exposes even unready endpoints which is what we want, sure, but the resolution of addresses it
@@ -28,16 +43,30 @@ import org.slf4j.LoggerFactory;
  * cassandra-test-cluster-dc1-west1-b-0.cassandra-test-cluster-dc1-nodes.default.svc.cluster.local
  * 10-244-2-117.cassandra-test-cluster-dc1-nodes.default.svc.cluster.local
  *
- * Seeds are told to be only nodes which are ending on "-0" (first node in a rack) but we can not
+ * Seeds are told to be only nodes which are ending on "-0" (first node in a rack) by default but we can not
  * parse this suffix from the second address. No matter what, it will always return ip address at the beginning
  * in case of the other pod and we can not determine if the pod is indeed a seed or not (its hostname ending on "-0")
  *
- * For that reason, we are using dig command here and we are asking for SRV records of service name, which returns this:
+ * For that reason, we are asking for SRV records of service name, which returns this:
  *
  * cassandra-test-cluster-dc1-west1-b-0.cassandra-test-cluster-dc1-nodes.default.svc.cluster.local
  * cassandra-test-cluster-dc1-west1-a-0.cassandra-test-cluster-dc1-nodes.default.svc.cluster.local
  *
- * From that we can filter out only seeds and that will be returned.
+ * From that we can filter out only seeds and that will be returned. Which ordinals are seeds is set by
+ * {@link SeedPolicy}, e.g. the first three pods of each rack.
+ *
+ * SRV records are looked up natively by {@link DnsSrvResolver} by default, forking of dig command by
+ * {@link DigSrvLookup} is still available as a fallback, see {@link SrvLookup.Mode}.
+ *
+ * Resolved seeds are ordered by locality, and by latency when asked to, see {@link SeedOrdering}.
+ *
+ * Instead of DNS, seeds can be discovered by watching EndpointSlices of the seed service, see {@link Discovery}.
+ *
+ * Resolved seeds are persisted, when seeds are not resolved in time or at all, e.g. on an outage of DNS, the last
+ * resolved seeds are used instead, see {@link SeedsSnapshot}.
+ *
+ * Seeds of a service can be prefetched before Cassandra asks for them, e.g. right after its configuration is loaded,
+ * the first resolution of that service then takes what the prefetch resolved, see {@link #prefetch(String, Settings)}.
  *
  * @param <T>
  */
@@ -45,76 +74,397 @@ public class SeedsResolver<T> {
 
     private static final Logger logger = LoggerFactory.getLogger(SeedsResolver.class);
 
-    private static final Pattern digResponseLinePattern = Pattern.compile("(.*) (.*) (.*) (.*)");
+    public enum Discovery {
+        /**
+         * Seeds are resolved from SRV records of the seed service on every resolution.
+         */
+        DNS,
+        /**
+         * Seeds are kept up to date by watching EndpointSlices of the seed service in Kubernetes API,
+         * see {@link EndpointSliceWatcher}.
+         */
+        ENDPOINT_SLICES;
+
+        public static Discovery parse(final String discovery) {
+            if (discovery == null) {
+                return DNS;
+            }
+
+            for (final Discovery value : values()) {
+                if (value.name().equalsIgnoreCase(discovery.trim())) {
+                    return value;
+                }
+            }
+
+            throw new IllegalArgumentException(format("Unknown seed discovery \"%s\", valid values are \"dns\" and \"endpoint_slices\".", discovery));
+        }
+    }
+
+    private static final int PROBE_THREADS = 4;
+
+    // storage port probes of seed ordering and publishing of watched seeds
+    private static final ExecutorService PROBE_EXECUTOR = newProbeExecutor();
+
+    private static final int MAX_ADDRESS_LOOKUPS = 32;
+
+    // lookups by name block in native code and can not be interrupted, a hung one holds its thread until the resolver
+    // of the system gives up, so they have a pool of their own which grows up to a limit and rejects lookups beyond it
+    private static final ExecutorService ADDRESS_LOOKUP_EXECUTOR = newAddressLookupExecutor();
+
+    // resolutions block on lookups running on the lookup executors, so they run on threads of their own
+    private static final ExecutorService LIVE_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "seeds-resolver-live");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // prefetched resolutions not taken by any resolver yet, by service
+    private static final Map<String, Future<List<InetAddress>>> PREFETCHES = new ConcurrentHashMap<>();
+
+    private static final Set<String> PREFETCHED_SERVICES = ConcurrentHashMap.newKeySet();
 
     private final String serviceName;
 
+    private final SeedService service;
+
     private final AddressTranslator<T> addressTranslator;
 
+    private final Settings settings;
+
+    private final SrvLookup srvLookup;
+
+    private final SeedsSnapshot snapshot;
+
+    // resolution still running after seeds of the snapshot were returned, guarded by this
+    private Future<List<InetAddress>> liveResolution;
+
     public SeedsResolver(String serviceName, AddressTranslator<T> addressTranslator) {
+        this(serviceName, addressTranslator, Settings.defaults());
+    }
+
+    public SeedsResolver(String serviceName, AddressTranslator<T> addressTranslator, Settings settings) {
+        this(serviceName, addressTranslator, settings, null);
+    }
+
+    /**
+     * Resolves SRV records by given lookup, e.g. a {@link DnsSrvResolver} pointing to a stub DNS server.
+     */
+    public SeedsResolver(String serviceName, AddressTranslator<T> addressTranslator, Settings settings, SrvLookup srvLookup) {
         this.serviceName = serviceName;
+        this.service = SeedService.parse(serviceName);
         this.addressTranslator = addressTranslator;
+        this.settings = settings;
+        this.srvLookup = srvLookup;
+        this.snapshot = SeedsSnapshot.forService(settings.seedsSnapshotDirectory, serviceName, settings.seedsSnapshotMaxAge);
+    }
+
+    /**
+     * Starts resolution of seeds of given service in the background, once per service. Addresses are translated only
+     * when the resolution is taken, so a prefetch does not depend on anything the translation needs, e.g. the default
+     * port of Cassandra not set until its configuration is applied.
+     */
+    public static void prefetch(final String serviceName, final Settings settings) {
+        if (!PREFETCHED_SERVICES.add(serviceName)) {
+            return;
+        }
+
+        final SeedsResolver<InetAddress> resolver = new SeedsResolver<>(serviceName, new AddressTranslator.NoOpAddressTranslator(), settings);
+        PREFETCHES.put(serviceName, LIVE_EXECUTOR.submit(resolver::resolveAndStore));
+
+        logger.info("Prefetching seeds of {}", serviceName);
     }
 
     public List<T> resolve() throws Exception {
-        final List<InetAddress> seeds = resolveSeeds(serviceName);
+        return addressTranslator.translate(snapshot == null ? resolvePrefetchedOrLive() : resolveOrRestore());
+    }
+
+    private List<InetAddress> resolvePrefetchedOrLive() throws Exception {
+        final Future<List<InetAddress>> prefetch = PREFETCHES.remove(serviceName);
+
+        if (prefetch == null) {
+            return resolveLive();
+        }
+
+        try {
+            return prefetch.get();
+        } catch (final ExecutionException ex) {
+            throw ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex;
+        }
+    }
+
+    /**
+     * Resolves seeds in the background and waits for them at most seeds snapshot wait. When they are not resolved
+     * by then or their resolution fails, seeds of the snapshot are returned if it is not too old, the resolution
+     * carries on and what it resolves is returned next time.
+     */
+    private List<InetAddress> resolveOrRestore() throws Exception {
+        final Future<List<InetAddress>> resolution;
+
+        synchronized (this) {
+            if (liveResolution == null) {
+                final Future<List<InetAddress>> prefetch = PREFETCHES.remove(serviceName);
+                liveResolution = prefetch != null ? prefetch : LIVE_EXECUTOR.submit(this::resolveAndStore);
+            }
+            resolution = liveResolution;
+        }
+
+        Exception failure;
+
+        try {
+            final List<InetAddress> seeds = resolution.get(settings.seedsSnapshotWait.toNanos(), TimeUnit.NANOSECONDS);
+            resolved(resolution);
+            return seeds;
+        } catch (final TimeoutException ex) {
+            failure = ex;
+        } catch (final ExecutionException ex) {
+            resolved(resolution);
+            failure = ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex;
+        }
+
+        final List<InetAddress> restored = snapshot.load();
+
+        if (restored != null) {
+            logger.warn("Seeds of {} are not resolved{}, using seeds resolved at {} from snapshot {}: {}",
+                        serviceName, failure instanceof TimeoutException ? " yet" : " (" + failure + ")", snapshot.getResolvedAt(), snapshot, restored);
+            return restored;
+        }
+
+        if (failure instanceof TimeoutException) {
+            try {
+                return resolution.get();
+            } catch (final ExecutionException ex) {
+                failure = ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex;
+            } finally {
+                resolved(resolution);
+            }
+        }
+
+        throw failure;
+    }
+
+    private synchronized void resolved(final Future<List<InetAddress>> resolution) {
+        if (liveResolution == resolution) {
+            liveResolution = null;
+        }
+    }
+
+    private List<InetAddress> resolveAndStore() throws Exception {
+        final List<InetAddress> seeds = resolveLive();
+
+        if (snapshot != null) {
+            snapshot.store(seeds);
+        }
+
+        return seeds;
+    }
+
+    private List<InetAddress> resolveLive() throws Exception {
+        final SeedDiscoveryMetrics metrics = SeedDiscoveryMetrics.forService(serviceName);
+        metrics.seedPolicy(settings.seedPolicy);
+        final long start = System.nanoTime();
+
+        final List<InetAddress> seeds;
+
+        try {
+            seeds = resolveSeeds(metrics);
+        } catch (final Exception ex) {
+            metrics.resolutionFailed(System.nanoTime() - start);
+            throw ex;
+        } finally {
+            StartupTimeline.SEEDS.logSummary();
+        }
 
         if (seeds.isEmpty()) {
+            metrics.resolutionEmpty(System.nanoTime() - start);
             throw new IllegalStateException("Seed list is empty!");
         }
 
-        return addressTranslator.translate(seeds);
+        metrics.resolutionSucceeded(System.nanoTime() - start, seeds.size());
+
+        return seeds;
+    }
+
+    /**
+     * Watched seeds are always up to date, there is no point in caching them. Services given by their fully qualified
+     * name are always resolved by DNS.
+     */
+    public boolean isCacheable() {
+        return settings.isCacheable() || service.isFullyQualified();
+    }
+
+    private List<InetAddress> resolveSeeds(SeedDiscoveryMetrics metrics) throws Exception {
+        final String namespace;
+
+        final StartupTimeline.Phase namespacePhase = StartupTimeline.SEEDS.begin("namespace", serviceName);
+
+        try {
+            namespace = settings.namespace != null ? settings.namespace : readNamespace();
+        } finally {
+            namespacePhase.end();
+        }
+
+        if (settings.seedDiscovery == Discovery.ENDPOINT_SLICES && !service.isFullyQualified()) {
+            final StartupTimeline.Phase slicesPhase = StartupTimeline.SEEDS.begin("endpoint slices", serviceName);
+
+            try {
+                final List<InetAddress> seeds = EndpointSliceWatcher.forService(service.getNamespace() != null ? service.getNamespace() : namespace,
+                                                                                service.getName(),
+                                                                                () -> KubernetesApiClient.inCluster(settings.kubernetesApiUrl, settings.kubernetesApiTimeout),
+                                                                                settings.seedPolicy,
+                                                                                seedOrdering(),
+                                                                                PROBE_EXECUTOR)
+                    .getSeeds(settings.kubernetesApiTimeout);
+                slicesPhase.count(seeds.size());
+                return seeds;
+            } finally {
+                slicesPhase.end();
+            }
+        }
+
+        final ResolvConf resolvConf = readResolvConf();
+        final String srvQuery = constructDomainName(namespace, resolvConf);
+        logger.debug("Resolved SRV query " + srvQuery);
+
+        long start = System.nanoTime();
+        final List<SrvRecord> srvRecords;
+
+        final StartupTimeline.Phase srvPhase = StartupTimeline.SEEDS.begin("srv query", srvQuery);
+
+        try {
+            srvRecords = srvLookup(resolvConf).lookup(srvQuery);
+            srvPhase.count(srvRecords.size());
+        } finally {
+            srvPhase.end();
+        }
+
+        metrics.dnsQueryFinished(System.nanoTime() - start);
+
+        start = System.nanoTime();
+        final List<String> endpoints = parseEndpoints(srvRecords);
+        final List<String> seeds = settings.seedPolicy.filter(endpoints);
+        metrics.parsingFinished(System.nanoTime() - start, endpoints.size(), seeds.size());
+
+        start = System.nanoTime();
+        final List<InetAddress> inetAddresses;
+
+        final StartupTimeline.Phase mappingPhase = StartupTimeline.SEEDS.begin("address mapping", serviceName);
+
+        try {
+            inetAddresses = mapEndpointAsInetAddresses(seeds);
+            mappingPhase.count(inetAddresses.size());
+        } finally {
+            mappingPhase.end();
+        }
+
+        metrics.addressMappingFinished(System.nanoTime() - start);
+
+        start = System.nanoTime();
+        final List<InetAddress> orderedAddresses;
+
+        final StartupTimeline.Phase orderingPhase = StartupTimeline.SEEDS.begin("ordering", serviceName);
+
+        try {
+            orderedAddresses = seedOrdering().order(service.getName(), inetAddresses, PROBE_EXECUTOR);
+            orderingPhase.count(orderedAddresses.size());
+        } finally {
+            orderingPhase.end();
+        }
+
+        metrics.orderingFinished(System.nanoTime() - start);
+
+        return orderedAddresses;
     }
 
-    private List<InetAddress> resolveSeeds(String service) throws Exception {
-        final String namespace = readNamespace();
-        final String digQuery = constructDomainName(service, namespace);
-        logger.debug("Resolved dig query " + digQuery);
-        final List<String> digResult = executeShellCommand("dig", "-t", "SRV", digQuery, "+short");
-        final List<String> endpoints = parseEndpoints(digResult);
-        final List<String> seeds = filterSeeds(endpoints);
-        return mapEndpointAsInetAddresses(seeds);
+    private SrvLookup srvLookup(final ResolvConf resolvConf) {
+        if (srvLookup != null) {
+            return srvLookup;
+        }
+
+        if (settings.srvLookupMode == SrvLookup.Mode.DIG) {
+            return new DigSrvLookup(resolvConf.getTimeout().multipliedBy(resolvConf.getAttempts()));
+        }
+
+        return new DnsSrvResolver(resolvConf);
     }
 
-    private List<String> filterSeeds(final List<String> endpoints) {
-        return endpoints.stream().filter(endpoint -> endpoint.split("\\.")[0].endsWith("-0")).collect(toList());
+    private SeedOrdering seedOrdering() {
+        return new SeedOrdering(settings.seedOrdering, settings.localHostname, settings.storagePort, settings.seedProbeTimeout, settings.maxSeeds);
     }
 
-    private List<InetAddress> mapEndpointAsInetAddresses(final List<String> endpoints) {
+    /**
+     * Endpoints are resolved in parallel on a pool of address lookups. We wait for each of them at most
+     * address lookup timeout and for all of them at most address resolution timeout, whatever
+     * was resolved by then is returned and the rest is given up on.
+     */
+    private List<InetAddress> mapEndpointAsInetAddresses(final List<String> endpoints) throws InterruptedException {
 
-        List<InetAddress> inetAddresses = new ArrayList<>();
+        final List<Future<InetAddress>> lookups = new ArrayList<>(endpoints.size());
 
         for (String endpoint : endpoints) {
             try {
-                InetAddress inetAddress = InetAddress.getByName(endpoint);
+                lookups.add(ADDRESS_LOOKUP_EXECUTOR.submit(() -> InetAddress.getByName(endpoint)));
+            } catch (RejectedExecutionException ex) {
+                // all lookup threads hang on earlier lookups, waiting for another would not be any better
+                final CompletableFuture<InetAddress> rejected = new CompletableFuture<>();
+                rejected.completeExceptionally(ex);
+                lookups.add(rejected);
+            }
+        }
+
+        final long deadline = System.nanoTime() + settings.addressResolutionTimeout.toNanos();
 
-                logger.debug(String.format("Resolved seed: %s", inetAddress.getCanonicalHostName()));
+        List<InetAddress> inetAddresses = new ArrayList<>(endpoints.size());
+
+        for (int i = 0; i < endpoints.size(); i++) {
+            final String endpoint = endpoints.get(i);
+            final Future<InetAddress> lookup = lookups.get(i);
+
+            try {
+                final long timeout = Math.max(0, Math.min(settings.addressLookupTimeout.toNanos(), deadline - System.nanoTime()));
+
+                InetAddress inetAddress = lookup.get(timeout, TimeUnit.NANOSECONDS);
+
+                logger.debug(String.format("Resolved seed %s: %s", endpoint, inetAddress.getHostAddress()));
 
                 inetAddresses.add(inetAddress);
-            } catch (Exception ex) {
-                logger.warn(format("Unable to resolve endpoint %s by name", endpoint), ex);
+            } catch (TimeoutException ex) {
+                lookup.cancel(true);
+                logger.warn(format("Unable to resolve endpoint %s by name in time", endpoint));
+            } catch (ExecutionException ex) {
+                logger.warn(format("Unable to resolve endpoint %s by name", endpoint), ex.getCause());
             }
         }
 
         return inetAddresses;
     }
 
-    private List<String> parseEndpoints(List<String> digResult) {
-        List<String> endpoints = new ArrayList<>();
+    static List<String> parseEndpoints(List<SrvRecord> srvRecords) {
+        List<String> endpoints = new ArrayList<>(srvRecords.size());
 
-        for (String line : digResult) {
-            Matcher matcher = digResponseLinePattern.matcher(line);
+        for (SrvRecord srvRecord : srvRecords) {
+            endpoints.add(srvRecord.getTarget());
+        }
 
-            if (matcher.matches()) {
-                String endpoint = matcher.group(4);
+        return endpoints;
+    }
 
-                endpoint = endpoint.substring(0, endpoint.length() - 1);
+    private ResolvConf readResolvConf() {
+        final StartupTimeline.Phase phase = StartupTimeline.SEEDS.begin("resolv.conf", ResolvConf.DEFAULT_PATH.toString());
 
-                endpoints.add(endpoint);
-            }
-        }
+        try {
+            final List<String> resolvConf = Files.readAllLines(ResolvConf.DEFAULT_PATH);
 
-        return endpoints;
+            logger.debug("Content of /etc/resolv.conf \n{}", String.join("\n", resolvConf));
+
+            phase.count(resolvConf.size());
+
+            return ResolvConf.parse(resolvConf);
+        } catch (final Exception ex) {
+            logger.error("Unable to read /etc/resolv.conf, using default resolver configuration");
+            return ResolvConf.parse(Collections.emptyList());
+        } finally {
+            phase.end();
+        }
     }
 
     /**
@@ -124,53 +474,111 @@ public class SeedsResolver<T> {
      * search default.svc.cluster.local svc.cluster.local cluster.local
      * options ndots:5
      *
-     * and we prepend that with service name
+     * and we prepend that with service name, a service in another namespace is prepended to "svc.cluster.local"
+     * with its namespace, see {@link SeedService}
      */
-    private String constructDomainName(String serviceName, String namespace) {
+    private String constructDomainName(String namespace, ResolvConf resolvConf) {
+        final String domainName = service.domainName(namespace, resolvConf.getSearchDomains());
 
-        final String defaultDomainName = format("%s.svc.cluster.local", namespace);
+        if (resolvConf.getSearchDomains().isEmpty() && !service.isFullyQualified()) {
+            logger.error("Unable to resolve domain name from /etc/resolv.conf, returning " + domainName);
+        }
 
-        try {
-            final List<String> resolvConf = Files.readAllLines(Paths.get("/etc/resolv.conf"));
+        return domainName;
+    }
 
-            logger.debug("Content of /etc/resolv.conf \n{}", String.join("\n", resolvConf));
+    private String readNamespace() throws Exception {
+        return new String(Files.readAllBytes(KubernetesApiClient.SERVICE_ACCOUNT_PATH.resolve("namespace")));
+    }
 
-            final String resolvedClusterDomain = resolvConf.stream()
-                .filter(line -> line.startsWith("search"))
-                .filter(line -> line.split(" ").length > 1)
-                .map(searchLine -> {
-                    final String[] split = searchLine.split(" ");
-                    return split[1];
-                })
-                .findFirst()
-                .orElse(defaultDomainName);
-
-            return format("%s.%s", serviceName, resolvedClusterDomain);
-        } catch (final Exception ex) {
-            logger.error("Unable to read /etc/resolv.conf or unable to resolve domain name, returning " + defaultDomainName);
-            return defaultDomainName;
-        }
+    private static ExecutorService newProbeExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(PROBE_THREADS, PROBE_THREADS, 30, TimeUnit.SECONDS,
+                                                                   new LinkedBlockingQueue<>(), newThreadFactory("seeds-resolver-probe-"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
-    private String readNamespace() throws Exception {
-        return new String(Files.readAllBytes(Paths.get("/var/run/secrets/kubernetes.io/serviceaccount/namespace")));
+    private static ExecutorService newAddressLookupExecutor() {
+        return new ThreadPoolExecutor(0, MAX_ADDRESS_LOOKUPS, 30, TimeUnit.SECONDS,
+                                      new SynchronousQueue<>(), newThreadFactory("seeds-resolver-address-lookup-"));
     }
 
-    private List<String> executeShellCommand(String... command) throws IOException {
-        ProcessBuilder processBuilder = new ProcessBuilder(command);
+    private static ThreadFactory newThreadFactory(final String prefix) {
+        final AtomicInteger threadCounter = new AtomicInteger();
 
-        Process process = processBuilder.start();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, prefix + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
 
-        BufferedReader br = new BufferedReader(new InputStreamReader(process.getInputStream()));
-        String line;
+    public static final class Settings {
+
+        public static final Duration DEFAULT_ADDRESS_LOOKUP_TIMEOUT = Duration.ofSeconds(2);
+        public static final Duration DEFAULT_ADDRESS_RESOLUTION_TIMEOUT = Duration.ofSeconds(5);
+        public static final int DEFAULT_STORAGE_PORT = 7000;
+        public static final Duration DEFAULT_SEED_PROBE_TIMEOUT = Duration.ofMillis(250);
+        public static final Duration DEFAULT_KUBERNETES_API_TIMEOUT = Duration.ofSeconds(5);
+        public static final Duration DEFAULT_SEEDS_SNAPSHOT_WAIT = Duration.ofSeconds(2);
+
+        private final SrvLookup.Mode srvLookupMode;
+        private final SeedPolicy seedPolicy;
+        private final Duration addressLookupTimeout;
+        private final Duration addressResolutionTimeout;
+        private final SeedOrdering.Mode seedOrdering;
+        private final int storagePort;
+        private final Duration seedProbeTimeout;
+        private final int maxSeeds;
+        private final String localHostname;
+        private final Discovery seedDiscovery;
+        private final String namespace;
+        private final String kubernetesApiUrl;
+        private final Duration kubernetesApiTimeout;
+        private final Path seedsSnapshotDirectory;
+        private final Duration seedsSnapshotMaxAge;
+        private final Duration seedsSnapshotWait;
+
+        private Settings(final Map<String, String> args) {
+            srvLookupMode = SrvLookup.Mode.parse(args.get("srv_lookup"));
+            seedPolicy = SeedPolicy.fromArgs(args);
+            addressLookupTimeout = getMillis(args, "address_lookup_timeout_ms", DEFAULT_ADDRESS_LOOKUP_TIMEOUT);
+            addressResolutionTimeout = getMillis(args, "address_resolution_timeout_ms", DEFAULT_ADDRESS_RESOLUTION_TIMEOUT);
+            seedOrdering = SeedOrdering.Mode.parse(args.get("seed_ordering"));
+            storagePort = getInt(args, "storage_port", DEFAULT_STORAGE_PORT);
+            seedProbeTimeout = getMillis(args, "seed_probe_timeout_ms", DEFAULT_SEED_PROBE_TIMEOUT);
+            maxSeeds = Math.max(0, getInt(args, "max_seeds", 0));
+            // Kubernetes sets pod name as host name
+            localHostname = System.getenv("HOSTNAME");
+            seedDiscovery = Discovery.parse(args.get("seed_discovery"));
+            namespace = args.get("namespace");
+            kubernetesApiUrl = args.get("kubernetes_api_url");
+            kubernetesApiTimeout = getMillis(args, "kubernetes_api_timeout_ms", DEFAULT_KUBERNETES_API_TIMEOUT);
+            seedsSnapshotDirectory = args.get("seeds_snapshot_directory") == null ? SeedsSnapshot.DEFAULT_DIRECTORY : Paths.get(args.get("seeds_snapshot_directory"));
+            seedsSnapshotMaxAge = getMillis(args, "seeds_snapshot_max_age_ms", SeedsSnapshot.DEFAULT_MAX_AGE);
+            seedsSnapshotWait = getMillis(args, "seeds_snapshot_wait_ms", DEFAULT_SEEDS_SNAPSHOT_WAIT);
+        }
 
-        List<String> output = new ArrayList<>();
+        public static Settings defaults() {
+            return fromArgs(Collections.emptyMap());
+        }
 
-        while ((line = br.readLine()) != null) {
-            logger.debug("dig output: {}", line);
-            output.add(line);
+        /**
+         * Reads "srv_lookup", "address_lookup_timeout_ms", "address_resolution_timeout_ms", "seed_ordering", "storage_port",
+         * "seed_probe_timeout_ms", "max_seeds", "seed_discovery", "namespace", "kubernetes_api_url",
+         * "kubernetes_api_timeout_ms", "seeds_snapshot_directory", "seeds_snapshot_max_age_ms" and "seeds_snapshot_wait_ms"
+         * from seed provider arguments, max age of zero turns the snapshot off. Seed providers fill in "storage_port"
+         * from Cassandra's configuration unless it is given. Seed policy is read too, see {@link SeedPolicy#fromArgs(Map)}.
+         */
+        public static Settings fromArgs(final Map<String, String> args) {
+            return new Settings(args);
         }
 
-        return output;
+        /**
+         * Watched seeds are always up to date, there is no point in caching them.
+         */
+        public boolean isCacheable() {
+            return seedDiscovery == Discovery.DNS;
+        }
     }
 }
@@ -0,0 +1,165 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The last seeds of a service which were resolved successfully, persisted so a restarting node has seeds to start
+ * with when DNS or Kubernetes API are slow or down, e.g. on a restart of the whole cluster or an outage of CoreDNS.
+ *
+ * Seeds are stored with the time they were resolved at, and a snapshot older than its max age is never used. The
+ * file is rewritten when seeds change, seeds which stay the same only refresh it once in a tenth of the max age so
+ * the time of resolution does not go stale while a node keeps resolving the very same seeds.
+ */
+public final class SeedsSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeedsSnapshot.class);
+
+    public static final Path DEFAULT_DIRECTORY = Paths.get("/var/lib/cassandra");
+    public static final Duration DEFAULT_MAX_AGE = Duration.ofDays(1);
+
+    private static final Duration MIN_REFRESH = Duration.ofMinutes(1);
+
+    private final Path file;
+    private final Duration maxAge;
+
+    // guarded by this
+    private List<InetAddress> seeds;
+    private Instant resolvedAt;
+    private boolean loaded;
+
+    public SeedsSnapshot(final Path file, final Duration maxAge) {
+        this.file = file;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * @return snapshot of given service in given directory, null when the directory does not exist or max age is zero
+     */
+    public static SeedsSnapshot forService(final Path directory, final String service, final Duration maxAge) {
+        if (directory == null || maxAge.isZero() || !Files.isDirectory(directory)) {
+            return null;
+        }
+
+        return new SeedsSnapshot(directory.resolve(format(".seeds-%s.properties", service.replaceAll("[^A-Za-z0-9._-]", "_"))), maxAge);
+    }
+
+    /**
+     * @return seeds of the snapshot when they are not older than max age, null otherwise
+     */
+    public synchronized List<InetAddress> load() {
+        if (!loaded) {
+            loaded = true;
+            read();
+        }
+
+        if (seeds == null || Duration.between(resolvedAt, Instant.now()).compareTo(maxAge) > 0) {
+            return null;
+        }
+
+        return seeds;
+    }
+
+    /**
+     * @return time the seeds of the snapshot were resolved at, null when there is no snapshot
+     */
+    public synchronized Instant getResolvedAt() {
+        return resolvedAt;
+    }
+
+    public synchronized void store(final List<InetAddress> resolved) {
+        final Instant now = Instant.now();
+
+        if (!loaded) {
+            loaded = true;
+            read();
+        }
+
+        final Duration refresh = maxAge.dividedBy(10).compareTo(MIN_REFRESH) < 0 ? MIN_REFRESH : maxAge.dividedBy(10);
+
+        if (resolved.equals(seeds) && Duration.between(resolvedAt, now).compareTo(refresh) < 0) {
+            return;
+        }
+
+        final List<String> entries = new ArrayList<>(resolved.size());
+
+        for (final InetAddress seed : resolved) {
+            entries.add(ReverseDnsCache.shared().getHostname(seed) + "/" + seed.getHostAddress());
+        }
+
+        final Properties properties = new Properties();
+        properties.setProperty("resolved_at", now.toString());
+        properties.setProperty("seeds", String.join(",", entries));
+
+        final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try {
+            try (final Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                properties.store(writer, "Generated by " + SeedsSnapshot.class.getName());
+            }
+
+            AtomicFiles.move(temp, file);
+        } catch (final IOException ex) {
+            logger.warn(format("Unable to store seeds snapshot %s", file), ex);
+            return;
+        }
+
+        seeds = new ArrayList<>(resolved);
+        resolvedAt = now;
+    }
+
+    private void read() {
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        final Properties properties = new Properties();
+
+        try (final Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+
+            final List<InetAddress> restored = new ArrayList<>();
+
+            for (final String entry : properties.getProperty("seeds", "").split(",")) {
+                final int slash = entry.lastIndexOf('/');
+
+                if (slash > 0) {
+                    // a literal, so nothing is looked up
+                    final byte[] address = InetAddress.getByName(entry.substring(slash + 1)).getAddress();
+                    restored.add(InetAddress.getByAddress(entry.substring(0, slash), address));
+                }
+            }
+
+            final String resolved = properties.getProperty("resolved_at");
+
+            if (!restored.isEmpty() && resolved != null) {
+                resolvedAt = Instant.parse(resolved);
+                seeds = restored;
+            }
+        } catch (final IOException | DateTimeParseException ex) {
+            logger.warn(format("Unable to read seeds snapshot %s, ignoring it", file), ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+}
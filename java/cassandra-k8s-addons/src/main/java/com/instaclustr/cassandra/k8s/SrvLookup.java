@@ -0,0 +1,38 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.lang.String.format;
+
+import java.util.List;
+
+/**
+ * Looks up SRV records of a service name.
+ */
+public interface SrvLookup {
+
+    List<SrvRecord> lookup(String name) throws Exception;
+
+    enum Mode {
+        /**
+         * Queries nameservers from /etc/resolv.conf directly from JVM, see {@link DnsSrvResolver}.
+         */
+        NATIVE,
+        /**
+         * Forks "dig" command and parses its output, see {@link DigSrvLookup}.
+         */
+        DIG;
+
+        public static Mode parse(final String mode) {
+            if (mode == null) {
+                return NATIVE;
+            }
+
+            for (final Mode value : values()) {
+                if (value.name().equalsIgnoreCase(mode.trim())) {
+                    return value;
+                }
+            }
+
+            throw new IllegalArgumentException(format("Unknown SRV lookup mode \"%s\", valid values are \"native\" and \"dig\".", mode));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.lang.String.format;
+
+import java.util.Objects;
+
+/**
+ * Single SRV record as returned for a service name, e.g. for
+ *
+ * 10 100 7000 cassandra-test-cluster-dc1-west1-b-0.cassandra-test-cluster-dc1-nodes.default.svc.cluster.local.
+ *
+ * the priority is 10, weight 100, port 7000 and target is the host name without the trailing dot.
+ */
+public final class SrvRecord {
+
+    private final int priority;
+    private final int weight;
+    private final int port;
+    private final String target;
+
+    public SrvRecord(final int priority, final int weight, final int port, final String target) {
+        this.priority = priority;
+        this.weight = weight;
+        this.port = port;
+        this.target = stripTrailingDot(target);
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    private static String stripTrailingDot(final String name) {
+        if (name.endsWith(".")) {
+            return name.substring(0, name.length() - 1);
+        }
+        return name;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final SrvRecord that = (SrvRecord) o;
+        return priority == that.priority && weight == that.weight && port == that.port && target.equals(that.target);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(priority, weight, port, target);
+    }
+
+    @Override
+    public String toString() {
+        return format("%d %d %d %s", priority, weight, port, target);
+    }
+}
@@ -0,0 +1,125 @@
+package com.instaclustr.cassandra.k8s;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * JFR event of a {@link StartupTimeline} phase, e.g. "jfr print --events com.instaclustr.cassandra.k8s.StartupPhase".
+ *
+ * The event type is defined at runtime by jdk.jfr.EventFactory and driven reflectively, so this jar compiles against
+ * Java 8 (--release 8, builds before 8u262) and runs on JVMs without JFR, where {@link #create()} returns null.
+ */
+final class StartupPhaseEvent {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupPhaseEvent.class);
+
+    private static final String NAME = "com.instaclustr.cassandra.k8s.StartupPhase";
+
+    // indexes of fields given to the factory
+    private static final int COMPONENT = 0;
+    private static final int PHASE = 1;
+    private static final int DETAIL = 2;
+    private static final int BYTES = 3;
+    private static final int COUNT = 4;
+
+    private final Object factory;
+    private final Method newEvent;
+    private final Method begin;
+    private final Method end;
+    private final Method shouldCommit;
+    private final Method set;
+    private final Method commit;
+
+    private StartupPhaseEvent(final Object factory) throws ReflectiveOperationException {
+        final Class<?> event = Class.forName("jdk.jfr.Event");
+
+        this.factory = factory;
+        this.newEvent = factory.getClass().getMethod("newEvent");
+        this.begin = event.getMethod("begin");
+        this.end = event.getMethod("end");
+        this.shouldCommit = event.getMethod("shouldCommit");
+        this.set = event.getMethod("set", int.class, Object.class);
+        this.commit = event.getMethod("commit");
+    }
+
+    /**
+     * @return event type registered with JFR or null when this JVM has no JFR
+     */
+    static StartupPhaseEvent create() {
+        final Class<?> factoryClass;
+
+        try {
+            factoryClass = Class.forName("jdk.jfr.EventFactory");
+        } catch (final ClassNotFoundException | LinkageError ex) {
+            return null;
+        }
+
+        try {
+            final Class<?> annotationElement = Class.forName("jdk.jfr.AnnotationElement");
+            final Class<?> valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor");
+            final Constructor<?> annotation = annotationElement.getConstructor(Class.class, Object.class);
+            final Constructor<?> field = valueDescriptor.getConstructor(Class.class, String.class, List.class);
+            final Class<?> label = Class.forName("jdk.jfr.Label");
+
+            final List<Object> annotations = Arrays.asList(
+                annotation.newInstance(Class.forName("jdk.jfr.Name"), NAME),
+                annotation.newInstance(label, "Startup Phase"),
+                annotation.newInstance(Class.forName("jdk.jfr.Category"), new String[]{"Cassandra", "Kubernetes Addons"}),
+                annotation.newInstance(Class.forName("jdk.jfr.Description"), "Phase of configuration loading or seed discovery done by Cassandra Kubernetes addons"),
+                annotation.newInstance(Class.forName("jdk.jfr.StackTrace"), false));
+
+            // in the order of the indexes above
+            final List<Object> fields = Arrays.asList(
+                field.newInstance(String.class, "component", Collections.singletonList(annotation.newInstance(label, "Component"))),
+                field.newInstance(String.class, "phase", Collections.singletonList(annotation.newInstance(label, "Phase"))),
+                field.newInstance(String.class, "detail", Collections.singletonList(annotation.newInstance(label, "Detail"))),
+                field.newInstance(long.class, "bytes", Arrays.asList(annotation.newInstance(label, "Bytes"),
+                                                                      annotation.newInstance(Class.forName("jdk.jfr.DataAmount"), "BYTES"))),
+                field.newInstance(long.class, "count", Collections.singletonList(annotation.newInstance(label, "Count"))));
+
+            return new StartupPhaseEvent(factoryClass.getMethod("create", List.class, List.class).invoke(null, annotations, fields));
+        } catch (final ReflectiveOperationException | RuntimeException | LinkageError ex) {
+            logger.warn("Unable to define JFR event {}, startup phases will not be recorded by JFR", NAME, ex);
+            return null;
+        }
+    }
+
+    /**
+     * @return event of a phase which has just begun
+     */
+    Object started() {
+        try {
+            final Object event = newEvent.invoke(factory);
+            begin.invoke(event);
+            return event;
+        } catch (final IllegalAccessException | InvocationTargetException ex) {
+            // a phase is timed regardless
+            return null;
+        }
+    }
+
+    void ended(final Object event, final String component, final String phase, final String detail, final long bytes, final long count) {
+        try {
+            end.invoke(event);
+
+            if ((Boolean) shouldCommit.invoke(event)) {
+                set.invoke(event, COMPONENT, component);
+                set.invoke(event, PHASE, phase);
+                set.invoke(event, DETAIL, detail);
+                // not set is -1
+                set.invoke(event, BYTES, Math.max(0, bytes));
+                set.invoke(event, COUNT, Math.max(0, count));
+                commit.invoke(event);
+            }
+        } catch (final IllegalAccessException | InvocationTargetException ex) {
+            logger.debug("Unable to commit JFR event {}", NAME, ex);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.lang.String.format;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Times phases of our part of Cassandra's startup, e.g. listing of configuration directories or SRV queries.
+ *
+ * Every phase is committed as a {@link StartupPhaseEvent} JFR event carrying its duration and sizes, so it shows up
+ * in any recording next to Cassandra's own events. Until {@link #logSummary()} is called, phases are also summed up
+ * per name and then logged as one line, phases after that go to JFR only.
+ *
+ * JFR events are not emitted on JVMs without JFR (older Java 8 builds), timing and the summary work regardless.
+ *
+ * A phase is ended explicitly, usually in a finally block:
+ * <pre>
+ * final StartupTimeline.Phase phase = StartupTimeline.CONFIG.begin("parse", path.toString());
+ *
+ * try {
+ *     ...
+ * } finally {
+ *     phase.end();
+ * }
+ * </pre>
+ */
+public final class StartupTimeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupTimeline.class);
+
+    private static final StartupPhaseEvent EVENT = StartupPhaseEvent.create();
+
+    public static final StartupTimeline CONFIG = new StartupTimeline("configuration");
+
+    public static final StartupTimeline SEEDS = new StartupTimeline("seeds");
+
+    private final String component;
+
+    private final Map<String, Totals> totals = new LinkedHashMap<>();
+
+    private long firstStart;
+    private long lastEnd;
+
+    private boolean summarized;
+
+    private StartupTimeline(final String component) {
+        this.component = component;
+    }
+
+    /**
+     * @param phase name of the phase, phases of the same name are summed up in the summary
+     * @param detail what the phase worked on, e.g. a path, may be null
+     */
+    public Phase begin(final String phase, final String detail) {
+        return new Phase(phase, detail);
+    }
+
+    /**
+     * Logs phases recorded so far as one line, only on the first call.
+     */
+    public void logSummary() {
+        final String summary;
+
+        synchronized (this) {
+            if (summarized) {
+                return;
+            }
+            summarized = true;
+
+            if (totals.isEmpty()) {
+                return;
+            }
+
+            final StringJoiner joiner = new StringJoiner(", ");
+
+            for (final Map.Entry<String, Totals> entry : totals.entrySet()) {
+                joiner.add(entry.getKey() + " " + entry.getValue());
+            }
+
+            // phases nest and run in parallel so they do not add up, the total is from the first start to the last end
+            summary = format("Startup of %s took %s ms: %s", component, TimeUnit.NANOSECONDS.toMillis(lastEnd - firstStart), joiner);
+            totals.clear();
+        }
+
+        logger.info(summary);
+    }
+
+    private synchronized void record(final Phase phase, final long end) {
+        if (summarized) {
+            return;
+        }
+
+        if (totals.isEmpty() || phase.start - firstStart < 0) {
+            firstStart = phase.start;
+        }
+        if (totals.isEmpty() || end - lastEnd > 0) {
+            lastEnd = end;
+        }
+
+        final long nanos = end - phase.start;
+
+        final Totals phaseTotals = totals.computeIfAbsent(phase.phase, name -> new Totals());
+        phaseTotals.phases++;
+        phaseTotals.nanos += nanos;
+        phaseTotals.bytes += Math.max(0, phase.bytes);
+        phaseTotals.count += Math.max(0, phase.count);
+    }
+
+    /**
+     * A running phase, see {@link #end()}.
+     */
+    public final class Phase {
+
+        private final String phase;
+        private final String detail;
+        private final long start = System.nanoTime();
+        private final Object event;
+
+        private long bytes = -1;
+        private long count = -1;
+
+        private Phase(final String phase, final String detail) {
+            this.phase = phase;
+            this.detail = detail;
+            this.event = EVENT == null ? null : EVENT.started();
+        }
+
+        /**
+         * @param bytes size of what the phase read, parsed or wrote
+         */
+        public Phase bytes(final long bytes) {
+            this.bytes = bytes;
+            return this;
+        }
+
+        /**
+         * @param count number of items the phase produced, e.g. files or records
+         */
+        public Phase count(final long count) {
+            this.count = count;
+            return this;
+        }
+
+        /**
+         * Ends the phase, to be called exactly once.
+         */
+        public void end() {
+            record(this, System.nanoTime());
+
+            if (event != null) {
+                EVENT.ended(event, component, phase, detail, bytes, count);
+            }
+        }
+    }
+
+    private static final class Totals {
+
+        private int phases;
+        private long nanos;
+        private long bytes;
+        private long count;
+
+        @Override
+        public String toString() {
+            final StringBuilder builder = new StringBuilder().append(TimeUnit.NANOSECONDS.toMillis(nanos)).append(" ms");
+
+            if (phases > 1) {
+                builder.append(" x").append(phases);
+            }
+            if (count > 0) {
+                builder.append(" (").append(count).append(" items)");
+            }
+            if (bytes > 0) {
+                builder.append(" (").append(bytes < 1024 ? bytes + " B" : bytes / 1024 + " KiB").append(")");
+            }
+
+            return builder.toString();
+        }
+    }
+}
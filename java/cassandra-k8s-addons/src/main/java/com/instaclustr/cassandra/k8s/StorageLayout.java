@@ -0,0 +1,466 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.lang.String.format;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Spreads Cassandra's directories over the volumes mounted under its base directory (/var/lib/cassandra).
+ *
+ * Volumes are found in /proc/self/mountinfo. With a single volume there is nothing to spread and configured
+ * directories are kept. With more of them, commit log (and CDC, which hard-links commit log segments so it has to be
+ * on the same filesystem) gets the volume with the lowest sync latency to itself and SSTables are spread over the rest.
+ * Without a probe, the latency is guessed, non-rotational devices first, then the smallest one.
+ *
+ * The probe writes a few MiB to every volume, sequentially and as small synced random writes as commit log does.
+ * Page cache would answer reads, so only writes are measured.
+ *
+ * The layout is stored in the base directory and used on later starts as is, without probing, so directories never
+ * move under existing data. Volumes added later only get data directories. A layout is not made at all when configured
+ * directories already have files in them.
+ */
+public final class StorageLayout {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageLayout.class);
+
+    public static final Path DEFAULT_BASE = Paths.get("/var/lib/cassandra");
+
+    static final String CACHE_FILE = ".storage-layout.properties";
+
+    private static final String PROBE_FILE = ".storage-probe";
+    private static final int PROBE_SEQUENTIAL_BYTES = 16 * 1024 * 1024;
+    private static final int PROBE_SYNCED_WRITES = 32;
+    private static final int PROBE_BLOCK = 4096;
+
+    // filesystems which are not volumes data could be spread to
+    private static final List<String> PSEUDO_FILESYSTEMS = Arrays.asList("proc", "sysfs", "tmpfs", "devtmpfs", "devpts", "cgroup", "cgroup2", "mqueue", "overlay");
+
+    public enum Mode {
+        /**
+         * Configured directories are used as they are.
+         */
+        OFF,
+        /**
+         * Volumes are detected, commit log goes to a non-rotational and the smallest one.
+         */
+        DETECT,
+        /**
+         * Volumes are detected and probed, commit log goes to the one with the lowest sync latency.
+         */
+        PROBE;
+
+        public static Mode parse(final String mode) {
+            if (mode == null) {
+                return OFF;
+            }
+
+            for (final Mode value : values()) {
+                if (value.name().equalsIgnoreCase(mode.trim())) {
+                    return value;
+                }
+            }
+
+            throw new IllegalArgumentException(format("Unknown storage layout mode \"%s\", valid values are \"off\", \"detect\" and \"probe\".", mode));
+        }
+    }
+
+    private StorageLayout() {
+    }
+
+    /**
+     * @param base directory volumes are mounted under
+     * @param mode detect or probe
+     * @param configuredDirectories directories Cassandra is configured with, a layout is not made when they have files
+     * @return layout to use, null when configured directories should be used
+     */
+    public static Layout resolve(final Path base, final Mode mode, final List<String> configuredDirectories) throws IOException {
+        final List<Volume> volumes = detectVolumes(Paths.get("/proc/self/mountinfo"), Paths.get("/sys"), base);
+        final Path cache = base.resolve(CACHE_FILE);
+
+        final Layout cached = Layout.load(cache);
+
+        if (cached != null) {
+            final Layout updated = cached.withVolumes(volumes);
+
+            if (updated != cached) {
+                updated.store(cache);
+            }
+
+            return updated;
+        }
+
+        if (volumes.size() < 2) {
+            logger.debug("Found volumes {} under {}, there is nothing to spread directories to", volumes, base);
+            return null;
+        }
+
+        if (mode == Mode.PROBE) {
+            for (final Volume volume : volumes) {
+                probe(volume);
+            }
+        }
+
+        final Layout layout = plan(volumes);
+
+        for (final String directory : configuredDirectories) {
+            if (directory != null && !layout.getDirectories().contains(directory) && hasFiles(Paths.get(directory))) {
+                logger.warn("Not spreading directories over volumes {}, configured directory {} already has files in it", volumes, directory);
+                return null;
+            }
+        }
+
+        layout.store(cache);
+
+        return layout;
+    }
+
+    /**
+     * @return writable volumes mounted at or under base, one per device
+     */
+    static List<Volume> detectVolumes(final Path mountinfo, final Path sys, final Path base) throws IOException {
+        final Map<String, Volume> volumes = new LinkedHashMap<>();
+
+        for (final String line : Files.readAllLines(mountinfo, StandardCharsets.UTF_8)) {
+            // 36 35 98:0 /mnt1 /mnt2 rw,noatime master:1 - ext3 /dev/root rw,errors=continue
+            final String[] fields = line.split(" ");
+            final int separator = Arrays.asList(fields).indexOf("-");
+
+            if (fields.length < 6 || separator < 0 || separator + 1 >= fields.length) {
+                continue;
+            }
+
+            final String device = fields[2];
+            final Path mountPoint = Paths.get(unescape(fields[4]));
+            final List<String> options = Arrays.asList(fields[5].split(","));
+            final String fsType = fields[separator + 1];
+
+            if (!mountPoint.startsWith(base) || options.contains("ro") || PSEUDO_FILESYSTEMS.contains(fsType)) {
+                continue;
+            }
+
+            // later mounts over the same device, e.g. bind mounts of its subdirectories, are the same volume
+            volumes.putIfAbsent(device, new Volume(mountPoint, device, fsType, isRotational(sys, device), totalSpace(mountPoint)));
+        }
+
+        return volumes.values().stream().sorted(Comparator.comparing(volume -> volume.mountPoint)).collect(Collectors.toList());
+    }
+
+    /**
+     * mountinfo escapes space, tab, new line and backslash as octal
+     */
+    private static String unescape(final String field) {
+        if (field.indexOf('\\') < 0) {
+            return field;
+        }
+
+        final StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < field.length(); i++) {
+            if (field.charAt(i) == '\\' && i + 3 < field.length()) {
+                try {
+                    builder.append((char) Integer.parseInt(field.substring(i + 1, i + 4), 8));
+                    i += 3;
+                    continue;
+                } catch (final NumberFormatException ex) {
+                    // not an escape
+                }
+            }
+            builder.append(field.charAt(i));
+        }
+
+        return builder.toString();
+    }
+
+    private static Boolean isRotational(final Path sys, final String device) {
+        final Path block = sys.resolve("dev/block").resolve(device);
+
+        try {
+            Path rotational = block.resolve("queue/rotational");
+
+            if (!Files.exists(rotational) && Files.exists(block)) {
+                // partitions have no queue of their own
+                rotational = block.toRealPath().getParent().resolve("queue/rotational");
+            }
+
+            if (Files.exists(rotational)) {
+                return "1".equals(new String(Files.readAllBytes(rotational), StandardCharsets.UTF_8).trim());
+            }
+        } catch (final IOException ex) {
+            logger.debug(format("Unable to tell whether device %s is rotational", device), ex);
+        }
+
+        // network filesystems and the like
+        return null;
+    }
+
+    private static long totalSpace(final Path mountPoint) {
+        try {
+            return Files.getFileStore(mountPoint).getTotalSpace();
+        } catch (final IOException ex) {
+            return -1;
+        }
+    }
+
+    static void probe(final Volume volume) throws IOException {
+        final Path file = volume.mountPoint.resolve(PROBE_FILE);
+        final ByteBuffer block = ByteBuffer.allocateDirect(1024 * 1024);
+        final Random random = new Random();
+
+        while (block.hasRemaining()) {
+            block.put((byte) random.nextInt());
+        }
+
+        try (final FileChannel channel = FileChannel.open(file, CREATE, READ, WRITE)) {
+            long start = System.nanoTime();
+
+            for (int written = 0; written < PROBE_SEQUENTIAL_BYTES; written += block.capacity()) {
+                block.clear();
+                while (block.hasRemaining()) {
+                    channel.write(block);
+                }
+            }
+            channel.force(false);
+
+            volume.sequentialWriteMBps = (PROBE_SEQUENTIAL_BYTES / (1024.0 * 1024.0)) / ((System.nanoTime() - start) / 1e9);
+
+            final long[] latencies = new long[PROBE_SYNCED_WRITES];
+
+            for (int i = 0; i < PROBE_SYNCED_WRITES; i++) {
+                block.clear().limit(PROBE_BLOCK);
+                final long position = (long) random.nextInt(PROBE_SEQUENTIAL_BYTES / PROBE_BLOCK) * PROBE_BLOCK;
+
+                start = System.nanoTime();
+                while (block.hasRemaining()) {
+                    channel.write(block, position + block.position());
+                }
+                channel.force(false);
+                latencies[i] = System.nanoTime() - start;
+            }
+
+            Arrays.sort(latencies);
+            volume.syncLatencyMicros = TimeUnit.NANOSECONDS.toMicros(latencies[latencies.length / 2]);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        logger.info("Probed volume {}: sequential writes {} MiB/s, synced 4 KiB writes take {} us", volume.mountPoint,
+                    (long) volume.sequentialWriteMBps, volume.syncLatencyMicros);
+    }
+
+    static Layout plan(final List<Volume> volumes) {
+        final boolean probed = volumes.stream().allMatch(volume -> volume.syncLatencyMicros >= 0);
+
+        final Comparator<Volume> commitLogFirst = probed
+            ? Comparator.comparingLong(volume -> volume.syncLatencyMicros)
+            : Comparator.<Volume>comparingInt(volume -> Boolean.FALSE.equals(volume.rotational) ? 0 : 1)
+                .thenComparingLong(volume -> volume.totalSpace < 0 ? Long.MAX_VALUE : volume.totalSpace);
+
+        final Volume commitLogVolume = volumes.stream().min(commitLogFirst.thenComparing(volume -> volume.mountPoint)).get();
+
+        final List<Volume> dataVolumes = new ArrayList<>(volumes);
+        dataVolumes.remove(commitLogVolume);
+
+        final Layout layout = new Layout(volumes.stream().map(volume -> volume.mountPoint.toString()).collect(Collectors.toList()),
+                                         dataVolumes.stream().map(volume -> volume.mountPoint.resolve("data").toString()).collect(Collectors.toList()),
+                                         commitLogVolume.mountPoint.resolve("commitlog").toString(),
+                                         commitLogVolume.mountPoint.resolve("cdc").toString(),
+                                         dataVolumes.get(0).mountPoint.resolve("hints").toString(),
+                                         dataVolumes.get(0).mountPoint.resolve("saved_caches").toString());
+
+        logger.info("Spreading directories over volumes {}, commit log on {} ({}), data on {}",
+                    volumes, commitLogVolume.mountPoint, probed ? "lowest sync latency" : "non-rotational and smallest", layout.dataDirectories);
+
+        return layout;
+    }
+
+    private static boolean hasFiles(final Path directory) {
+        if (!Files.isDirectory(directory)) {
+            return false;
+        }
+
+        try (final Stream<Path> children = Files.list(directory)) {
+            return children.findAny().isPresent();
+        } catch (final IOException ex) {
+            // better not to move what we can not see
+            return true;
+        }
+    }
+
+    static final class Volume {
+
+        private final Path mountPoint;
+        private final String device;
+        private final String fsType;
+        private final Boolean rotational;
+        private final long totalSpace;
+
+        private long syncLatencyMicros = -1;
+        private double sequentialWriteMBps = -1;
+
+        Volume(final Path mountPoint, final String device, final String fsType, final Boolean rotational, final long totalSpace) {
+            this.mountPoint = mountPoint;
+            this.device = device;
+            this.fsType = fsType;
+            this.rotational = rotational;
+            this.totalSpace = totalSpace;
+        }
+
+        @Override
+        public String toString() {
+            return format("%s (%s %s%s)", mountPoint, fsType, device, rotational == null ? "" : rotational ? " rotational" : " non-rotational");
+        }
+    }
+
+    public static final class Layout {
+
+        private final List<String> volumes;
+        private final List<String> dataDirectories;
+        private final String commitLogDirectory;
+        private final String cdcRawDirectory;
+        private final String hintsDirectory;
+        private final String savedCachesDirectory;
+
+        Layout(final List<String> volumes,
+               final List<String> dataDirectories,
+               final String commitLogDirectory,
+               final String cdcRawDirectory,
+               final String hintsDirectory,
+               final String savedCachesDirectory) {
+            this.volumes = volumes;
+            this.dataDirectories = dataDirectories;
+            this.commitLogDirectory = commitLogDirectory;
+            this.cdcRawDirectory = cdcRawDirectory;
+            this.hintsDirectory = hintsDirectory;
+            this.savedCachesDirectory = savedCachesDirectory;
+        }
+
+        static Layout load(final Path file) throws IOException {
+            if (!Files.exists(file)) {
+                return null;
+            }
+
+            final Properties properties = new Properties();
+
+            try (final Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+
+            return new Layout(split(properties.getProperty("volumes")),
+                              split(properties.getProperty("data_file_directories")),
+                              properties.getProperty("commitlog_directory"),
+                              properties.getProperty("cdc_raw_directory"),
+                              properties.getProperty("hints_directory"),
+                              properties.getProperty("saved_caches_directory"));
+        }
+
+        void store(final Path file) throws IOException {
+            final Properties properties = new Properties();
+
+            properties.setProperty("volumes", String.join(",", volumes));
+            properties.setProperty("data_file_directories", String.join(",", dataDirectories));
+            properties.setProperty("commitlog_directory", commitLogDirectory);
+            properties.setProperty("cdc_raw_directory", cdcRawDirectory);
+            properties.setProperty("hints_directory", hintsDirectory);
+            properties.setProperty("saved_caches_directory", savedCachesDirectory);
+
+            final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+            try (final Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                properties.store(writer, "Generated by " + StorageLayout.class.getName() + ", directories never move under existing data");
+            }
+
+            AtomicFiles.move(temp, file);
+        }
+
+        private static List<String> split(final String value) {
+            return value == null || value.isEmpty() ? Collections.emptyList() : Arrays.asList(value.split(","));
+        }
+
+        /**
+         * Volumes added since the layout was made get data directories, everything else stays where it is.
+         */
+        Layout withVolumes(final List<Volume> current) {
+            final List<String> added = current.stream()
+                .map(volume -> volume.mountPoint.toString())
+                .filter(mountPoint -> !volumes.contains(mountPoint))
+                .collect(Collectors.toList());
+
+            for (final String volume : volumes) {
+                if (current.stream().noneMatch(v -> v.mountPoint.toString().equals(volume))) {
+                    logger.warn("Volume {} of the storage layout is not mounted anymore", volume);
+                }
+            }
+
+            if (added.isEmpty()) {
+                return this;
+            }
+
+            logger.info("Adding data directories on new volumes {} to the storage layout", added);
+
+            final List<String> allVolumes = new ArrayList<>(volumes);
+            final List<String> allDataDirectories = new ArrayList<>(dataDirectories);
+
+            for (final String volume : added) {
+                allVolumes.add(volume);
+                allDataDirectories.add(Paths.get(volume).resolve("data").toString());
+            }
+
+            return new Layout(allVolumes, allDataDirectories, commitLogDirectory, cdcRawDirectory, hintsDirectory, savedCachesDirectory);
+        }
+
+        List<String> getDirectories() {
+            final List<String> directories = new ArrayList<>(dataDirectories);
+            directories.add(commitLogDirectory);
+            directories.add(cdcRawDirectory);
+            directories.add(hintsDirectory);
+            directories.add(savedCachesDirectory);
+            return directories;
+        }
+
+        public List<String> getDataDirectories() {
+            return dataDirectories;
+        }
+
+        public String getCommitLogDirectory() {
+            return commitLogDirectory;
+        }
+
+        public String getCdcRawDirectory() {
+            return cdcRawDirectory;
+        }
+
+        public String getHintsDirectory() {
+            return hintsDirectory;
+        }
+
+        public String getSavedCachesDirectory() {
+            return savedCachesDirectory;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ConfigAutoTunerTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void takesKeysSetToAnyValueAsExplicit() {
+        final Map<String, Object> first = new LinkedHashMap<>();
+        first.put("concurrent_reads", 32L);
+        // a nested structure is a value too, whichever way it was written
+        first.put("data_file_directories", asList("/var/lib/cassandra/data"));
+        first.put("seed_provider", Collections.singletonMap("class_name", "SeedProvider"));
+        // "key:" alone
+        first.put("concurrent_writes", null);
+
+        final Map<String, Object> second = Collections.singletonMap("key_cache_size_in_mb", "");
+
+        assertEquals(new HashSet<>(asList("concurrent_reads", "data_file_directories", "seed_provider", "key_cache_size_in_mb")),
+                     ConfigAutoTuner.explicitKeys(asList(first, second)));
+    }
+
+    @Test
+    public void leavesExplicitKeysAlone() throws IOException {
+        final TestConfig config = new TestConfig();
+        config.concurrent_reads = 1;
+
+        final Set<String> explicitKeys = ConfigAutoTuner.explicitKeys(Collections.singletonList(Collections.singletonMap("concurrent_reads", 1L)));
+        final List<String> tuned = new ConfigAutoTuner(limits(4), 1024L << 20).tune(config, explicitKeys, 1);
+
+        assertFalse(tuned.contains("concurrent_reads"));
+        assertEquals(1, config.concurrent_reads);
+
+        assertTrue(tuned.contains("concurrent_writes"));
+        assertEquals(Integer.valueOf(32), config.concurrent_writes);
+        assertTrue(tuned.contains("memtable_heap_space_in_mb"));
+        assertEquals(Integer.valueOf(256), config.memtable_heap_space_in_mb);
+        assertEquals(51L, config.key_cache_size_in_mb);
+    }
+
+    private ContainerLimits limits(final int cpus) throws IOException {
+        final Path root = folder.getRoot().toPath();
+        final Path cgroup = Files.createDirectories(root.resolve("sys/fs/cgroup"));
+        Files.write(cgroup.resolve("cgroup.controllers"), "cpu memory\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(cgroup.resolve("cpu.max"), (cpus * 100000 + " 100000\n").getBytes(StandardCharsets.UTF_8));
+        Files.write(cgroup.resolve("memory.max"), Long.toString(4L << 30).getBytes(StandardCharsets.UTF_8));
+        return ContainerLimits.read(root, 64);
+    }
+
+    public static class TestConfig {
+
+        public int concurrent_reads = 32;
+        public Integer concurrent_writes;
+        public Integer memtable_heap_space_in_mb;
+        public long key_cache_size_in_mb;
+    }
+}
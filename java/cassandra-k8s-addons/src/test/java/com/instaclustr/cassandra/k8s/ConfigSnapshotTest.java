@@ -0,0 +1,290 @@
+package com.instaclustr.cassandra.k8s;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ConfigSnapshotTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+    private ConfigSnapshot<TestConfig> snapshot;
+
+    @Before
+    public void setUp() throws IOException {
+        file = folder.getRoot().toPath().resolve("config.snapshot");
+        snapshot = new ConfigSnapshot<>(file, TestConfig.class, TestConfig::new, Collections.singletonList("server_encryption_options"));
+        Outlaw.instances = 0;
+    }
+
+    @Test
+    public void roundTripsChangedFields() throws IOException {
+        final TestConfig config = new TestConfig();
+        config.cluster_name = "k8s";
+        config.num_tokens = 16;
+        config.concurrent_reads = 64;
+        config.auto_snapshot = false;
+        config.commitlog_sync_period_in_ms = 10_000L;
+        config.disk_access_mode = DiskAccessMode.mmap;
+        config.data_file_directories = new String[]{"/var/lib/cassandra/data", "/var/lib/cassandra/data2"};
+        config.ports = new int[]{7000, 7001};
+        config.table_names = new ArrayList<>(Arrays.asList("a", "b"));
+        config.hints_flush_names.add("flushed");
+        config.modes = new TreeMap<>(Collections.singletonMap("x", DiskAccessMode.standard));
+        config.seed_provider = new Nested("SimpleSeedProvider", Collections.singletonMap("seeds", "10.0.0.1"));
+        config.nested_by_name.put("first", new Nested("First", new LinkedHashMap<>(Collections.singletonMap("k", "v"))));
+
+        snapshot.write("hash", config, 42);
+
+        final ConfigSnapshot.Loaded<TestConfig> loaded = snapshot.read("hash");
+        assertNotNull(loaded);
+        assertEquals(42, loaded.getParseNanos());
+
+        final TestConfig read = loaded.getConfig();
+        assertEquals("k8s", read.cluster_name);
+        assertEquals(16, read.num_tokens);
+        assertEquals(Integer.valueOf(64), read.concurrent_reads);
+        assertFalse(read.auto_snapshot);
+        assertEquals(Long.valueOf(10_000L), read.commitlog_sync_period_in_ms);
+        assertEquals(DiskAccessMode.mmap, read.disk_access_mode);
+        assertArrayEquals(config.data_file_directories, read.data_file_directories);
+        assertArrayEquals(config.ports, read.ports);
+        assertEquals(config.table_names, read.table_names);
+        assertSame(ArrayList.class, read.table_names.getClass());
+        assertEquals(config.hints_flush_names, read.hints_flush_names);
+        assertSame(config.hints_flush_names.getClass(), read.hints_flush_names.getClass());
+        assertEquals(config.modes, read.modes);
+        assertSame(TreeMap.class, read.modes.getClass());
+
+        assertEquals("SimpleSeedProvider", read.seed_provider.class_name);
+        assertEquals(config.seed_provider.parameters, read.seed_provider.parameters);
+        assertSame(config.seed_provider.parameters.getClass(), read.seed_provider.parameters.getClass());
+        assertEquals("First", read.nested_by_name.get("first").class_name);
+        assertEquals(config.nested_by_name.get("first").parameters, read.nested_by_name.get("first").parameters);
+    }
+
+    @Test
+    public void keepsImmutableCollectionsOfDefaults() throws IOException {
+        final TestConfig config = new TestConfig();
+        config.seed_provider = new Nested("SimpleSeedProvider", Collections.emptyMap());
+        config.table_names = Collections.unmodifiableList(new ArrayList<>(Collections.singletonList("a")));
+
+        snapshot.write("hash", config, 0);
+
+        final TestConfig read = snapshot.read("hash").getConfig();
+        assertSame(Collections.emptyMap(), read.seed_provider.parameters);
+        assertSame(config.table_names.getClass(), read.table_names.getClass());
+        assertEquals(config.table_names, read.table_names);
+    }
+
+    @Test
+    public void doesNotWriteExcludedFields() throws Exception {
+        final TestConfig config = new TestConfig();
+        config.cluster_name = "k8s";
+        config.server_encryption_options = new Nested("EncryptionOptions", Collections.singletonMap("keystore_password", "secret"));
+
+        snapshot.write("hash", config, 0);
+
+        assertFalse(new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1).contains("secret"));
+        final TestConfig read = snapshot.read("hash").getConfig();
+        assertEquals("k8s", read.cluster_name);
+        assertNull(read.server_encryption_options);
+
+        snapshot.copyExcludedFields(config, read);
+        assertSame(config.server_encryption_options, read.server_encryption_options);
+    }
+
+    @Test
+    public void isReadableByOwnerOnly() throws IOException {
+        snapshot.write("hash", new TestConfig(), 0);
+
+        try {
+            assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+        } catch (final UnsupportedOperationException ex) {
+            // not a POSIX file system
+        }
+    }
+
+    @Test
+    public void ignoresStaleSnapshot() throws IOException {
+        snapshot.write("hash", new TestConfig(), 0);
+
+        assertNull(snapshot.read("other"));
+        assertNull(new ConfigSnapshot<>(folder.getRoot().toPath().resolve("missing"), TestConfig.class, TestConfig::new, Collections.emptyList()).read("hash"));
+    }
+
+    @Test
+    public void hashDependsOnContentsOfFiles() throws IOException {
+        final Path yaml = folder.newFile("cassandra.yaml").toPath();
+        Files.write(yaml, "cluster_name: a\n".getBytes(StandardCharsets.UTF_8));
+        final String first = snapshot.hash(Collections.singletonList(yaml));
+
+        assertEquals(first, snapshot.hash(Collections.singletonList(yaml)));
+        assertNotEquals(first, snapshot.hash(Collections.singletonList(yaml), "merge_fragments=true"));
+
+        Files.write(yaml, "cluster_name: b\n".getBytes(StandardCharsets.UTF_8));
+        assertNotEquals(first, snapshot.hash(Collections.singletonList(yaml)));
+    }
+
+    @Test
+    public void refusesToWriteTypesNotOfConfiguration() {
+        final TestConfig config = new TestConfig();
+        config.extra = new Outlaw();
+
+        try {
+            snapshot.write("hash", config, 0);
+            fail("type of no field must not be written");
+        } catch (final IOException ex) {
+            assertFalse(Files.exists(file));
+        }
+    }
+
+    @Test
+    public void refusesToLoadTypesNotOfConfiguration() throws IOException {
+        final TestConfig config = new TestConfig();
+        config.seed_provider = new Nested("SimpleSeedProvider", Collections.emptyMap());
+        snapshot.write("hash", config, 0);
+
+        // same length, so the snapshot stays well-formed
+        replace(Nested.class.getName(), Outlaw.class.getName());
+
+        assertNull(snapshot.read("hash"));
+        assertEquals(0, Outlaw.instances);
+    }
+
+    @Test
+    public void refusesToLoadCollectionsNotOfJavaUtil() throws IOException {
+        final TestConfig config = new TestConfig();
+        config.table_names = new ArrayList<>(Collections.singletonList("a"));
+        snapshot.write("hash", config, 0);
+
+        replace(ArrayList.class.getName(), Throwable.class.getName());
+
+        assertNull(snapshot.read("hash"));
+    }
+
+    @Test
+    public void extractsExcludedSections() throws IOException {
+        final Path yaml = write("cluster_name: k8s\n"
+                                    + "# comment\n"
+                                    + "server_encryption_options:\n"
+                                    + "  internode_encryption: all\n"
+                                    + "\n"
+                                    + "  keystore: /etc/keystore\n"
+                                    + "seeds:\n"
+                                    + "- a\n"
+                                    + "server_encryption_options_extra: 1\n");
+
+        assertEquals("server_encryption_options:\n"
+                         + "  internode_encryption: all\n"
+                         + "\n"
+                         + "  keystore: /etc/keystore\n",
+                     snapshot.excludedSections(yaml));
+    }
+
+    @Test
+    public void refusesFilesWithKeysWhichCanNotBeToldApart() throws IOException {
+        for (final String yaml : Arrays.asList("\"server_encryption_options\":\n  internode_encryption: all\n",
+                                               "'server_encryption_options': {}\n",
+                                               "{server_encryption_options: {internode_encryption: all}}\n",
+                                               "? server_encryption_options\n: {}\n",
+                                               "<<: *defaults\n",
+                                               "---\ncluster_name: k8s\n",
+                                               "%YAML 1.1\ncluster_name: k8s\n")) {
+            try {
+                snapshot.excludedSections(write(yaml));
+                fail("keys of " + yaml + " must not be told apart");
+            } catch (final IOException ex) {
+                // expected
+            }
+        }
+    }
+
+    private Path write(final String yaml) throws IOException {
+        final Path path = folder.newFile().toPath();
+        Files.write(path, yaml.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    private void replace(final String from, final String to) throws IOException {
+        assertEquals(from.length(), to.length());
+
+        final String contents = new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1);
+        assertTrue(contents.contains(from));
+        Files.write(file, contents.replace(from, to).getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    public enum DiskAccessMode {
+        auto, mmap, standard
+    }
+
+    public static class TestConfig {
+
+        public String cluster_name;
+        public int num_tokens = 1;
+        public Integer concurrent_reads;
+        public boolean auto_snapshot = true;
+        public Long commitlog_sync_period_in_ms;
+        public DiskAccessMode disk_access_mode = DiskAccessMode.auto;
+        public String[] data_file_directories = new String[0];
+        public int[] ports;
+        public List<String> table_names = new ArrayList<>();
+        public final Set<String> hints_flush_names = ConcurrentHashMap.newKeySet();
+        public Map<String, DiskAccessMode> modes = new LinkedHashMap<>();
+        public Nested seed_provider;
+        public Map<String, Nested> nested_by_name = new LinkedHashMap<>();
+        public Nested server_encryption_options;
+        public Object extra;
+    }
+
+    public static class Nested {
+
+        public String class_name;
+        public Map<String, String> parameters = Collections.emptyMap();
+
+        public Nested() {
+        }
+
+        Nested(final String class_name, final Map<String, String> parameters) {
+            this.class_name = class_name;
+            this.parameters = parameters;
+        }
+    }
+
+    public static class Outlaw {
+
+        static int instances;
+
+        public Outlaw() {
+            instances++;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.instaclustr.cassandra.k8s;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Reads limits of fake filesystem trees laid out as cgroup v2, v1 and no cgroup at all.
+ */
+public class ContainerLimitsTest {
+
+    private static final long GB = 1024 * 1024 * 1024;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private Path root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.getRoot().toPath();
+        // 16 GiB host
+        write("proc/meminfo", "MemTotal:       16777216 kB\nMemFree:         1024 kB\n");
+    }
+
+    @Test
+    public void readsQuotaAndMemoryLimitOfV2() throws IOException {
+        write("sys/fs/cgroup/cgroup.controllers", "cpuset cpu io memory pids");
+        write("sys/fs/cgroup/cpu.max", "150000 100000");
+        write("sys/fs/cgroup/cpuset.cpus.effective", "0-7");
+        write("sys/fs/cgroup/memory.max", Long.toString(4 * GB));
+
+        final ContainerLimits limits = ContainerLimits.read(root, 32);
+
+        assertEquals(2, limits.getCgroupVersion());
+        assertEquals(1.5, limits.getCpuQuota(), 0);
+        // rounded up as 1.5 CPU keeps two busy
+        assertEquals(2, limits.getCpus());
+        assertTrue(limits.getCpuSource(), limits.getCpuSource().endsWith("cpu.max"));
+        assertEquals(4 * GB, limits.getMemoryLimit());
+        assertEquals(4 * GB, limits.getMemory());
+        assertTrue(limits.getMemorySource(), limits.getMemorySource().endsWith("memory.max"));
+    }
+
+    @Test
+    public void takesCpusetWhenSmallerThanQuotaOfV2() throws IOException {
+        write("sys/fs/cgroup/cgroup.controllers", "cpuset cpu memory");
+        write("sys/fs/cgroup/cpu.max", "400000 100000");
+        write("sys/fs/cgroup/cpuset.cpus.effective", "2-3");
+        write("sys/fs/cgroup/memory.max", "max");
+
+        final ContainerLimits limits = ContainerLimits.read(root, 32);
+
+        assertEquals(4.0, limits.getCpuQuota(), 0);
+        assertEquals(2, limits.getCpus());
+        assertTrue(limits.getCpuSource(), limits.getCpuSource().startsWith("cpuset"));
+    }
+
+    @Test
+    public void fallsBackToHostForMaxOfV2() throws IOException {
+        write("sys/fs/cgroup/cgroup.controllers", "cpu memory");
+        write("sys/fs/cgroup/cpu.max", "max 100000");
+        write("sys/fs/cgroup/memory.max", "max");
+
+        final ContainerLimits limits = ContainerLimits.read(root, 32);
+
+        assertEquals(2, limits.getCgroupVersion());
+        assertEquals(-1, limits.getCpuQuota(), 0);
+        assertEquals(32, limits.getCpus());
+        assertEquals("available processors", limits.getCpuSource());
+        assertEquals(-1, limits.getMemoryLimit());
+        assertEquals(16 * GB, limits.getMemory());
+        assertTrue(limits.getMemorySource(), limits.getMemorySource().endsWith("meminfo"));
+    }
+
+    @Test
+    public void readsQuotaAndCpusetOfV1() throws IOException {
+        write("sys/fs/cgroup/cpu,cpuacct/cpu.cfs_quota_us", "300000");
+        write("sys/fs/cgroup/cpu,cpuacct/cpu.cfs_period_us", "100000");
+        write("sys/fs/cgroup/cpuset/cpuset.cpus", "0,2,4-5");
+        write("sys/fs/cgroup/memory/memory.limit_in_bytes", Long.toString(2 * GB));
+
+        final ContainerLimits limits = ContainerLimits.read(root, 32);
+
+        assertEquals(1, limits.getCgroupVersion());
+        assertEquals(3.0, limits.getCpuQuota(), 0);
+        assertEquals(3, limits.getCpus());
+        assertEquals(2 * GB, limits.getMemoryLimit());
+        assertEquals(2 * GB, limits.getMemory());
+    }
+
+    @Test
+    public void takesNoQuotaAndPageAlignedMaxOfV1AsUnlimited() throws IOException {
+        write("sys/fs/cgroup/cpu/cpu.cfs_quota_us", "-1");
+        write("sys/fs/cgroup/cpu/cpu.cfs_period_us", "100000");
+        write("sys/fs/cgroup/cpuset/cpuset.cpus", "0-3");
+        write("sys/fs/cgroup/memory/memory.limit_in_bytes", "9223372036854771712");
+
+        final ContainerLimits limits = ContainerLimits.read(root, 32);
+
+        assertEquals(1, limits.getCgroupVersion());
+        assertEquals(-1, limits.getCpuQuota(), 0);
+        assertEquals(4, limits.getCpus());
+        assertTrue(limits.getCpuSource(), limits.getCpuSource().startsWith("cpuset"));
+        assertEquals(-1, limits.getMemoryLimit());
+        assertEquals(16 * GB, limits.getMemory());
+    }
+
+    @Test
+    public void takesLimitOfAtLeastOneExbibyteAsUnlimited() throws IOException {
+        write("sys/fs/cgroup/memory/memory.limit_in_bytes", Long.toString(1L << 60));
+
+        assertEquals(-1, ContainerLimits.read(root, 4).getMemoryLimit());
+
+        write("sys/fs/cgroup/memory/memory.limit_in_bytes", Long.toString((1L << 60) - 4096));
+
+        // a limit, though bigger than the host
+        final ContainerLimits limits = ContainerLimits.read(root, 4);
+        assertEquals((1L << 60) - 4096, limits.getMemoryLimit());
+        assertEquals(16 * GB, limits.getMemory());
+    }
+
+    @Test
+    public void readsHostWithoutCgroup() throws IOException {
+        final ContainerLimits limits = ContainerLimits.read(root, 6);
+
+        assertEquals(0, limits.getCgroupVersion());
+        assertEquals(6, limits.getCpus());
+        assertEquals(-1, limits.getMemoryLimit());
+        assertEquals(16 * GB, limits.getMemory());
+
+        Files.delete(root.resolve("proc/meminfo"));
+
+        assertEquals(-1, ContainerLimits.read(root, 6).getMemory());
+        assertEquals("unknown", ContainerLimits.read(root, 6).getMemorySource());
+    }
+
+    @Test
+    public void countsCpusOfCpuset() {
+        assertEquals(0, ContainerLimits.countCpus(""));
+        assertEquals(1, ContainerLimits.countCpus("3"));
+        assertEquals(8, ContainerLimits.countCpus("0-3,8,10-11,15"));
+        assertEquals(0, ContainerLimits.countCpus("0-x"));
+    }
+
+    private void write(final String path, final String contents) throws IOException {
+        final Path file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, (contents + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,266 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Parses canned responses to a query for {@value #NAME} and resolves it from a stub nameserver on loopback.
+ */
+public class DnsSrvResolverTest {
+
+    private static final String NAME = "_cql._tcp.seeds.ns.svc.cluster.local";
+
+    // offset of "seeds" label in the question, right after the header, "_cql" and "_tcp"
+    private static final int SEEDS_OFFSET = 12 + 5 + 5;
+
+    private DatagramSocket udp;
+    private ServerSocket tcp;
+
+    @After
+    public void tearDown() throws IOException {
+        if (udp != null) {
+            udp.close();
+        }
+        if (tcp != null) {
+            tcp.close();
+        }
+    }
+
+    @Test
+    public void readsCompressedNames() throws IOException {
+        final byte[] query = DnsSrvResolver.buildQuery(NAME);
+
+        final byte[] response = response(query, 0x8180, 2,
+                                         srv(10, 50, 9042, labels("cassandra-dc1-rack1-0"), pointer(SEEDS_OFFSET)),
+                                         // ending with a pointer to the whole name in the question
+                                         srv(20, 0, 9042, labels("cassandra-dc1-rack2-0"), pointer(12)));
+
+        assertEquals(asList(new SrvRecord(10, 50, 9042, "cassandra-dc1-rack1-0.seeds.ns.svc.cluster.local"),
+                            new SrvRecord(20, 0, 9042, "cassandra-dc1-rack2-0." + NAME)),
+                     DnsSrvResolver.parseResponse(ByteBuffer.wrap(response), query));
+    }
+
+    @Test
+    public void skipsRecordsOtherThanSrv() throws IOException {
+        final byte[] query = DnsSrvResolver.buildQuery(NAME);
+
+        final byte[] response = response(query, 0x8180, 2,
+                                         record(5, concat(labels("elsewhere"), pointer(SEEDS_OFFSET))),
+                                         srv(0, 0, 7000, labels("cassandra-dc1-rack1-0", "seeds"), new byte[]{0}));
+
+        assertEquals(Collections.singletonList(new SrvRecord(0, 0, 7000, "cassandra-dc1-rack1-0.seeds")),
+                     DnsSrvResolver.parseResponse(ByteBuffer.wrap(response), query));
+    }
+
+    @Test
+    public void returnsNoRecordsForNxdomain() throws IOException {
+        final byte[] query = DnsSrvResolver.buildQuery(NAME);
+
+        assertEquals(Collections.emptyList(), DnsSrvResolver.parseResponse(ByteBuffer.wrap(response(query, 0x8183, 0)), query));
+    }
+
+    @Test
+    public void refusesErrorsAndMalformedResponses() {
+        final byte[] query = DnsSrvResolver.buildQuery(NAME);
+        final byte[] answer = response(query, 0x8180, 1, srv(0, 0, 9042, labels("cassandra-dc1-rack1-0"), pointer(SEEDS_OFFSET)));
+
+        final byte[] otherId = answer.clone();
+        otherId[0] ^= 1;
+
+        // a pointer to itself
+        final byte[] loop = response(query, 0x8180, 1, srv(0, 0, 9042, pointer(12 + question(query).length + 12 + 6)));
+
+        for (final byte[] response : asList(response(query, 0x8182, 0),
+                                            response(query, 0x0100, 0),
+                                            otherId,
+                                            Arrays.copyOf(answer, 6),
+                                            Arrays.copyOf(answer, answer.length - 5),
+                                            // answer count beyond the answers
+                                            withAnswerCount(answer, 2),
+                                            loop)) {
+            try {
+                DnsSrvResolver.parseResponse(ByteBuffer.wrap(response), query);
+                fail("response must be refused: " + Arrays.toString(response));
+            } catch (final IOException ex) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void retriesTruncatedResponseOverTcp() throws Exception {
+        final InetSocketAddress nameserver = bindNameserver();
+
+        final Thread server = new Thread(() -> {
+            try {
+                final DatagramPacket packet = new DatagramPacket(new byte[512], 512);
+                udp.receive(packet);
+                final byte[] query = Arrays.copyOf(packet.getData(), packet.getLength());
+
+                // truncated, no answers fit
+                final byte[] truncated = response(query, 0x8380, 0);
+                udp.send(new DatagramPacket(truncated, truncated.length, packet.getSocketAddress()));
+
+                try (final Socket socket = tcp.accept()) {
+                    final DataInputStream in = new DataInputStream(socket.getInputStream());
+                    final byte[] tcpQuery = new byte[in.readUnsignedShort()];
+                    in.readFully(tcpQuery);
+
+                    final byte[] full = response(tcpQuery, 0x8180, 1, srv(0, 0, 9042, labels("cassandra-dc1-rack1-0"), pointer(SEEDS_OFFSET)));
+                    final DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                    out.writeShort(full.length);
+                    out.write(full);
+                    out.flush();
+                }
+            } catch (final IOException ex) {
+                // the lookup fails then
+            }
+        });
+        server.start();
+
+        assertEquals(Collections.singletonList(new SrvRecord(0, 0, 9042, "cassandra-dc1-rack1-0.seeds.ns.svc.cluster.local")),
+                     new DnsSrvResolver(Collections.singletonList(nameserver), Duration.ofSeconds(5), 1).lookup(NAME));
+
+        server.join(5000);
+    }
+
+    @Test
+    public void failsWhenNoNameserverAnswers() throws IOException {
+        final InetSocketAddress nameserver = bindNameserver();
+
+        final long start = System.nanoTime();
+
+        try {
+            new DnsSrvResolver(Collections.singletonList(nameserver), Duration.ofMillis(100), 2).lookup(NAME);
+            fail("nothing answered");
+        } catch (final IOException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("in 2 attempts"));
+        }
+
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(200).toNanos());
+    }
+
+    /**
+     * Binds UDP and TCP of the stub nameserver to the same port of loopback.
+     */
+    private InetSocketAddress bindNameserver() throws IOException {
+        final InetAddress loopback = InetAddress.getLoopbackAddress();
+
+        for (int i = 0; ; i++) {
+            udp = new DatagramSocket(new InetSocketAddress(loopback, 0));
+
+            try {
+                tcp = new ServerSocket(udp.getLocalPort(), 1, loopback);
+                return new InetSocketAddress(loopback, udp.getLocalPort());
+            } catch (final IOException ex) {
+                udp.close();
+                if (i == 10) {
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    /**
+     * Response to a query with its question and given answers, without the EDNS0 record of the query.
+     */
+    private static byte[] response(final byte[] query, final int flags, final int answerCount, final byte[]... answers) {
+        final ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+        buffer.put(query, 0, 2);
+        buffer.putShort((short) flags);
+        buffer.putShort((short) 1);
+        buffer.putShort((short) answerCount);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0);
+        buffer.put(question(query));
+
+        for (final byte[] answer : answers) {
+            buffer.put(answer);
+        }
+
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    private static byte[] question(final byte[] query) {
+        // the EDNS0 record of 11 bytes follows the question
+        return Arrays.copyOfRange(query, 12, query.length - 11);
+    }
+
+    private static byte[] withAnswerCount(final byte[] response, final int answerCount) {
+        final byte[] copy = response.clone();
+        copy[6] = (byte) (answerCount >>> 8);
+        copy[7] = (byte) answerCount;
+        return copy;
+    }
+
+    private static byte[] srv(final int priority, final int weight, final int port, final byte[]... target) {
+        final ByteBuffer data = ByteBuffer.allocate(512);
+        data.putShort((short) priority);
+        data.putShort((short) weight);
+        data.putShort((short) port);
+        data.put(concat(target));
+        return record(33, Arrays.copyOf(data.array(), data.position()));
+    }
+
+    /**
+     * Record of the name in the question, compressed.
+     */
+    private static byte[] record(final int type, final byte[] data) {
+        final ByteBuffer record = ByteBuffer.allocate(12 + data.length);
+        record.put(pointer(12));
+        record.putShort((short) type);
+        record.putShort((short) 1);
+        record.putInt(30);
+        record.putShort((short) data.length);
+        record.put(data);
+        return record.array();
+    }
+
+    private static byte[] labels(final String... labels) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        for (final String label : labels) {
+            final byte[] bytes = label.getBytes(StandardCharsets.US_ASCII);
+            out.write(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        return out.toByteArray();
+    }
+
+    private static byte[] pointer(final int offset) {
+        return new byte[]{(byte) (0xC0 | offset >>> 8), (byte) offset};
+    }
+
+    private static byte[] concat(final byte[]... parts) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        for (final byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+
+        return out.toByteArray();
+    }
+}
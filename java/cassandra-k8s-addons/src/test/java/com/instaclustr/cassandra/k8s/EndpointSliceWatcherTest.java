@@ -0,0 +1,294 @@
+package com.instaclustr.cassandra.k8s;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Runs the watcher against a stub API server which answers lists and watches as scripted by each test.
+ */
+public class EndpointSliceWatcherTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+    private final BlockingQueue<Response> lists = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Response> watches = new LinkedBlockingQueue<>();
+
+    private ExecutorService serverExecutor;
+    private ExecutorService probeExecutor;
+    private HttpServer server;
+    private EndpointSliceWatcher watcher;
+
+    @Before
+    public void setUp() throws IOException {
+        serverExecutor = Executors.newCachedThreadPool();
+        probeExecutor = Executors.newSingleThreadExecutor();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(serverExecutor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        if (watcher != null) {
+            watcher.stop();
+        }
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        probeExecutor.shutdownNow();
+    }
+
+    @Test
+    public void appliesWatchEventsAndResumesClosedWatch() throws Exception {
+        lists.add(Response.json(list("10", slice("svc-a", "10", "c-dc1-rack1-0=10.0.0.1", "c-dc1-rack1-1=10.0.0.2"))));
+        // the stream closes after these events
+        watches.add(Response.events(event("ADDED", slice("svc-b", "11", "c-dc1-rack2-0=10.0.0.3")),
+                                event("MODIFIED", slice("svc-a", "12", "c-dc1-rack1-0=10.0.0.1"))));
+
+        watcher = start("appliesWatchEvents");
+
+        awaitSeeds("10.0.0.1", "10.0.0.3");
+        assertTrue(awaitRequest("resourceVersion=10").contains("watch=true"));
+        awaitRequest("resourceVersion=12");
+
+        watches.add(Response.events(event("DELETED", slice("svc-b", "13"))));
+
+        awaitSeeds("10.0.0.1");
+        awaitRequest("resourceVersion=13");
+        assertEquals(1, requests("watch=false"));
+    }
+
+    @Test
+    public void listsAgainWhenResourceVersionIsGone() throws Exception {
+        lists.add(Response.json(list("10", slice("svc-a", "10", "c-dc1-rack1-0=10.0.0.1"))));
+        watches.add(Response.events(event("ERROR", status(410, "too old resource version: 10 (20)"))));
+        lists.add(Response.json(list("20", slice("svc-a", "20", "c-dc1-rack1-0=10.0.0.1", "c-dc1-rack1-1=10.0.0.2"))));
+
+        watcher = start("listsAgain");
+
+        awaitSeeds("10.0.0.1", "10.0.0.2");
+        awaitRequest("resourceVersion=20");
+        assertEquals(2, requests("watch=false"));
+    }
+
+    @Test
+    public void listsAgainWhenWatchIsRefusedAsGone() throws Exception {
+        lists.add(Response.json(list("10", slice("svc-a", "10", "c-dc1-rack1-0=10.0.0.1"))));
+        watches.add(Response.status(410));
+        lists.add(Response.json(list("20", slice("svc-a", "20", "c-dc1-rack1-1=10.0.0.2"))));
+
+        watcher = start("refusedAsGone");
+
+        awaitSeeds("10.0.0.2");
+        assertEquals(2, requests("watch=false"));
+    }
+
+    @Test
+    public void stopsRetryingWhenInterrupted() throws Exception {
+        lists.add(Response.status(500));
+
+        watcher = start("stopsRetrying");
+        awaitRequest("watch=false");
+
+        // it is backing off now
+        watcher.stop();
+
+        final long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (watchThreadAlive("stopsRetrying") && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertFalse(watchThreadAlive("stopsRetrying"));
+        assertEquals(1, requests.size());
+    }
+
+    private EndpointSliceWatcher start(final String service) {
+        final KubernetesApiClient client = new KubernetesApiClient("http://127.0.0.1:" + server.getAddress().getPort(), folder.getRoot().toPath(), TIMEOUT);
+
+        return new EndpointSliceWatcher("ns", service, client,
+                                        new SeedPolicy(SeedPolicy.Mode.FIRST_ORDINALS, 2, SeedPolicy.DEFAULT_SEED_PERCENTAGE),
+                                        new SeedOrdering(SeedOrdering.Mode.DNS, null, 7000, Duration.ofMillis(100), 0),
+                                        probeExecutor).start();
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        final String uri = exchange.getRequestURI().toString();
+        requests.add(uri.contains("watch=true") ? uri : uri + "&watch=false");
+
+        final Response response;
+
+        try {
+            // a watch without a scripted response is held open as a quiet one would be
+            response = (uri.contains("watch=true") ? watches : lists).poll(uri.contains("watch=true") ? 60 : 5, TimeUnit.SECONDS);
+        } catch (final InterruptedException ex) {
+            exchange.close();
+            return;
+        }
+
+        if (response == null) {
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+            return;
+        }
+
+        if (response.status != 200) {
+            exchange.sendResponseHeaders(response.status, -1);
+            exchange.close();
+            return;
+        }
+
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+
+        try (final OutputStream out = exchange.getResponseBody()) {
+            for (final String line : response.lines) {
+                out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+        }
+    }
+
+    private void awaitSeeds(final String... expected) throws InterruptedException {
+        final long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        List<String> seeds = addresses(watcher.getSeeds(TIMEOUT));
+
+        while (!seeds.equals(Arrays.asList(expected)) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            seeds = addresses(watcher.getSeeds(TIMEOUT));
+        }
+
+        assertEquals(requests.toString(), Arrays.asList(expected), seeds);
+    }
+
+    private String awaitRequest(final String part) throws InterruptedException {
+        final long deadline = System.nanoTime() + TIMEOUT.toNanos();
+
+        while (System.nanoTime() < deadline) {
+            synchronized (requests) {
+                for (final String request : requests) {
+                    if (request.contains(part)) {
+                        return request;
+                    }
+                }
+            }
+            Thread.sleep(10);
+        }
+
+        throw new AssertionError("No request with " + part + " in " + requests);
+    }
+
+    private long requests(final String part) {
+        synchronized (requests) {
+            return requests.stream().filter(request -> request.contains(part)).count();
+        }
+    }
+
+    private static boolean watchThreadAlive(final String service) {
+        return Thread.getAllStackTraces().keySet().stream().anyMatch(thread -> thread.getName().equals("endpoint-slice-watch-" + service));
+    }
+
+    private static List<String> addresses(final List<InetAddress> seeds) {
+        return seeds.stream().map(InetAddress::getHostAddress).collect(Collectors.toList());
+    }
+
+    private static Map<String, Object> list(final String version, final Object... slices) {
+        final Map<String, Object> list = new LinkedHashMap<>();
+        list.put("metadata", Collections.singletonMap("resourceVersion", version));
+        list.put("items", Arrays.asList(slices));
+        return list;
+    }
+
+    /**
+     * @param endpoints "hostname=address" of each endpoint
+     */
+    private static Map<String, Object> slice(final String name, final String version, final String... endpoints) {
+        final Map<String, Object> metadata = new LinkedHashMap<>();
+        metadata.put("name", name);
+        metadata.put("resourceVersion", version);
+
+        final List<Object> endpointList = new ArrayList<>();
+
+        for (final String endpoint : endpoints) {
+            final String[] parts = endpoint.split("=");
+            final Map<String, Object> value = new LinkedHashMap<>();
+            value.put("hostname", parts[0]);
+            value.put("addresses", Collections.singletonList(parts[1]));
+            endpointList.add(value);
+        }
+
+        final Map<String, Object> slice = new LinkedHashMap<>();
+        slice.put("metadata", metadata);
+        slice.put("endpoints", endpointList);
+        return slice;
+    }
+
+    private static Map<String, Object> status(final long code, final String message) {
+        final Map<String, Object> status = new LinkedHashMap<>();
+        status.put("kind", "Status");
+        status.put("code", code);
+        status.put("message", message);
+        return status;
+    }
+
+    private static String event(final String type, final Object object) {
+        final Map<String, Object> event = new LinkedHashMap<>();
+        event.put("type", type);
+        event.put("object", object);
+        return Json.write(event);
+    }
+
+    private static final class Response {
+
+        private final int status;
+        private final List<String> lines;
+
+        private Response(final int status, final List<String> lines) {
+            this.status = status;
+            this.lines = lines;
+        }
+
+        static Response json(final Object body) {
+            return new Response(200, Collections.singletonList(Json.write(body)));
+        }
+
+        static Response events(final String... lines) {
+            return new Response(200, Arrays.asList(lines));
+        }
+
+        static Response status(final int status) {
+            return new Response(status, Collections.emptyList());
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Plans options for limits read from fake cgroup v2, v1 and no cgroup trees.
+ */
+public class JvmOptionsPlannerTest {
+
+    private static final long GB = 1024 * 1024 * 1024;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void plansG1ForCassandra4InV2Container() throws IOException {
+        final JvmOptionsPlanner.Plan plan = new JvmOptionsPlanner(v2(2, 4 * GB), 4).plan(emptyList());
+
+        assertEquals(asList("-Xms1024M",
+                            "-Xmx1024M",
+                            "-XX:MaxDirectMemorySize=1536M",
+                            "-XX:+UseG1GC",
+                            "-XX:MaxGCPauseMillis=300",
+                            "-XX:G1RSetUpdatingPauseTimePercent=5",
+                            "-XX:ParallelGCThreads=2",
+                            "-XX:ConcGCThreads=1"),
+                     plan.getOptions());
+        assertTrue(plan.toString(), plan.toString().contains("# heap from Cassandra's formula on 4096 MiB of memory\n-Xms1024M\n"));
+    }
+
+    @Test
+    public void plansCmsForCassandra3InV1Container() throws IOException {
+        final JvmOptionsPlanner.Plan plan = new JvmOptionsPlanner(v1(16, 16 * GB), 3).plan(emptyList());
+
+        assertEquals(asList("-Xms4096M",
+                            "-Xmx4096M",
+                            "-XX:MaxDirectMemorySize=6144M",
+                            "-XX:+UseConcMarkSweepGC",
+                            "-XX:+CMSParallelRemarkEnabled",
+                            "-XX:SurvivorRatio=8",
+                            "-XX:MaxTenuringThreshold=1",
+                            "-XX:CMSInitiatingOccupancyFraction=75",
+                            "-XX:+UseCMSInitiatingOccupancyOnly",
+                            "-Xmn1024M",
+                            "-XX:ParallelGCThreads=13",
+                            "-XX:ConcGCThreads=4"),
+                     plan.getOptions());
+    }
+
+    @Test
+    public void plansG1ForBigHeapOfCassandra3() throws IOException {
+        final List<String> options = new JvmOptionsPlanner(v1(8, 64 * GB), 3).plan(emptyList()).getOptions();
+
+        assertTrue(options.contains("-Xmx8192M"));
+        assertTrue(options.contains("-XX:+UseG1GC"));
+        assertFalse(options.contains("-XX:+UseConcMarkSweepGC"));
+    }
+
+    @Test
+    public void plansForHostWithoutCgroup() throws IOException {
+        final List<String> options = new JvmOptionsPlanner(host(GB), 4).plan(emptyList()).getOptions();
+
+        assertTrue(options.contains("-Xmx512M"));
+        // never less than 256 MiB
+        assertTrue(options.contains("-XX:MaxDirectMemorySize=256M"));
+        assertTrue(options.contains("-XX:ParallelGCThreads=3"));
+    }
+
+    @Test
+    public void leavesHeapGivenAsXmxToUser() throws IOException {
+        final List<String> options = new JvmOptionsPlanner(v2(4, 8 * GB), 4).plan(singletonList("-Xmx2G")).getOptions();
+
+        assertFalse(options.stream().anyMatch(option -> option.startsWith("-Xms") || option.startsWith("-Xmx")));
+        // off the heap the user gave
+        assertTrue(options.contains("-XX:MaxDirectMemorySize=3072M"));
+    }
+
+    @Test
+    public void leavesHeapGivenAsMaxRAMPercentageToUser() throws IOException {
+        final List<String> options = new JvmOptionsPlanner(v2(4, 8 * GB), 4).plan(singletonList("-XX:MaxRAMPercentage=50.0")).getOptions();
+
+        assertFalse(options.stream().anyMatch(option -> option.startsWith("-Xms") || option.startsWith("-Xmx")));
+        assertTrue(options.contains("-XX:MaxDirectMemorySize=2048M"));
+    }
+
+    @Test
+    public void leavesGcChosenByUserAndItsTuningToUser() throws IOException {
+        final List<String> options = new JvmOptionsPlanner(v1(2, 4 * GB), 3).plan(asList("-XX:+UseG1GC", "-XX:ParallelGCThreads=1")).getOptions();
+
+        assertEquals(asList("-Xms1024M", "-Xmx1024M", "-XX:MaxDirectMemorySize=1536M", "-XX:ConcGCThreads=1"), options);
+    }
+
+    @Test
+    public void leavesYoungGenerationGivenByUserToUser() throws IOException {
+        final List<String> options = new JvmOptionsPlanner(v1(2, 4 * GB), 3).plan(singletonList("-Xmn400M")).getOptions();
+
+        assertTrue(options.contains("-XX:+UseConcMarkSweepGC"));
+        assertFalse(options.stream().anyMatch(option -> option.startsWith("-Xmn")));
+    }
+
+    @Test
+    public void sizesHeapAsJvmDoes() {
+        assertEquals(2 * GB, JvmOptionsPlanner.userHeap(asList("-Xmx1G", "-XX:MaxHeapSize=2g"), 8 * GB));
+        assertEquals(3 * GB, JvmOptionsPlanner.userHeap(asList("-Xms3G", "-XX:MaxRAMPercentage=25"), 8 * GB));
+        assertEquals(2 * GB, JvmOptionsPlanner.userHeap(singletonList("-XX:MaxRAMFraction=4"), 8 * GB));
+        // JVM's default quarter of memory
+        assertEquals(2 * GB, JvmOptionsPlanner.userHeap(singletonList("-Xms1G"), 8 * GB));
+
+        assertEquals(512 * 1024, JvmOptionsPlanner.size("512k"));
+        assertEquals(1024, JvmOptionsPlanner.size("1024"));
+        assertEquals(1024 * GB, JvmOptionsPlanner.size("1T"));
+    }
+
+    @Test
+    public void readsOptionsOfFilesAndDirectories() throws IOException {
+        final Path directory = folder.newFolder("jvm").toPath();
+        Files.write(directory.resolve("b.options"), "-XX:+UseG1GC\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("a.options"), "# comment\n  -Xmx2G\n-ea\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("c.txt"), "-Xmx8G\n".getBytes(StandardCharsets.UTF_8));
+
+        final Path file = folder.newFile("jvm.options").toPath();
+        Files.write(file, "-Xss256k\n".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(asList("-Xmx2G", "-ea", "-XX:+UseG1GC", "-Xss256k"),
+                     JvmOptionsPlanner.readOptions(asList(directory, file, folder.getRoot().toPath().resolve("missing"))));
+    }
+
+    private ContainerLimits v2(final int cpus, final long memory) throws IOException {
+        final Path root = folder.newFolder().toPath();
+        write(root, "sys/fs/cgroup/cgroup.controllers", "cpuset cpu memory");
+        write(root, "sys/fs/cgroup/cpu.max", cpus * 100000 + " 100000");
+        write(root, "sys/fs/cgroup/memory.max", Long.toString(memory));
+        write(root, "proc/meminfo", "MemTotal: " + 128 * GB / 1024 + " kB");
+        return ContainerLimits.read(root, 64);
+    }
+
+    private ContainerLimits v1(final int cpus, final long memory) throws IOException {
+        final Path root = folder.newFolder().toPath();
+        write(root, "sys/fs/cgroup/cpu,cpuacct/cpu.cfs_quota_us", Integer.toString(cpus * 100000));
+        write(root, "sys/fs/cgroup/cpu,cpuacct/cpu.cfs_period_us", "100000");
+        write(root, "sys/fs/cgroup/memory/memory.limit_in_bytes", Long.toString(memory));
+        write(root, "proc/meminfo", "MemTotal: " + 128 * GB / 1024 + " kB");
+        return ContainerLimits.read(root, 64);
+    }
+
+    private ContainerLimits host(final long memory) throws IOException {
+        final Path root = folder.newFolder().toPath();
+        write(root, "proc/meminfo", "MemTotal: " + memory / 1024 + " kB");
+        return ContainerLimits.read(root, 3);
+    }
+
+    private static void write(final Path root, final String path, final String contents) throws IOException {
+        final Path file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, (contents + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,90 @@
+package com.instaclustr.cassandra.k8s;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class MultiServiceSeedsResolverTest {
+
+    @Test
+    public void mergesSeedsInOrderOfServices() throws Exception {
+        final Map<String, Callable<List<String>>> services = new LinkedHashMap<>();
+        services.put("dc1", () -> asList("a", "b"));
+        services.put("dc2", () -> asList("b", "c"));
+
+        assertEquals(asList("a", "b", "c"), new MultiServiceSeedsResolver<>(services, Duration.ofSeconds(5)).resolve());
+    }
+
+    @Test
+    public void leavesOutFailedServices() throws Exception {
+        final Map<String, Callable<List<String>>> services = new LinkedHashMap<>();
+        services.put("dc1", () -> {
+            throw new IllegalStateException("no DNS");
+        });
+        services.put("dc2", () -> Collections.singletonList("c"));
+
+        assertEquals(Collections.singletonList("c"), new MultiServiceSeedsResolver<>(services, Duration.ofSeconds(5)).resolve());
+    }
+
+    @Test
+    public void waitsForResolutionStillRunningInsteadOfStartingAnother() throws Exception {
+        final CountDownLatch hung = new CountDownLatch(1);
+        final AtomicInteger resolutions = new AtomicInteger();
+
+        final Map<String, Callable<List<String>>> services = new LinkedHashMap<>();
+        services.put("dc1", () -> {
+            resolutions.incrementAndGet();
+            hung.await(10, TimeUnit.SECONDS);
+            return Collections.singletonList("a");
+        });
+        services.put("dc2", () -> Collections.singletonList("c"));
+
+        final MultiServiceSeedsResolver<String> resolver = new MultiServiceSeedsResolver<>(services, Duration.ofMillis(50));
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Collections.singletonList("c"), resolver.resolve());
+        }
+
+        assertEquals(1, resolutions.get());
+
+        hung.countDown();
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        List<String> seeds = resolver.resolve();
+
+        while (seeds.size() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            seeds = resolver.resolve();
+        }
+
+        assertEquals(asList("a", "c"), seeds);
+    }
+
+    @Test
+    public void failsWhenNoServiceResolved() throws Exception {
+        final Map<String, Callable<List<String>>> services = new LinkedHashMap<>();
+        services.put("dc1", Collections::emptyList);
+        services.put("dc2", () -> {
+            throw new IllegalStateException("no DNS");
+        });
+
+        try {
+            new MultiServiceSeedsResolver<>(services, Duration.ofSeconds(5)).resolve();
+            fail("there are no seeds");
+        } catch (final IllegalStateException ex) {
+            assertEquals(1, ex.getSuppressed().length);
+        }
+    }
+}
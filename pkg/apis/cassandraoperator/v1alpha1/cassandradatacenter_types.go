@@ -27,8 +27,10 @@ type CassandraDataCenterSpec struct {
 	DataVolumeClaimSpec       *v1.PersistentVolumeClaimSpec `json:"dataVolumeClaimSpec,omitempty"`
 	OptimizeKernelParams      bool                          `json:"optimizeKernelParams,omitempty"`
 	PrometheusSupport         bool                          `json:"prometheusSupport,omitempty"`
-	OperatorLabels            *OperatorLabels               `json:"operatorLabels,omitempty"`
-	OperatorAnnotations       *OperatorAnnotations          `json:"operatorAnnotations,omitempty"`
+	// Readiness is probed by HTTP on the health port, images older than this operator have no such port.
+	HealthProbe         bool                 `json:"healthProbe,omitempty"`
+	OperatorLabels      *OperatorLabels      `json:"operatorLabels,omitempty"`
+	OperatorAnnotations *OperatorAnnotations `json:"operatorAnnotations,omitempty"`
 	// +listType
 	SidecarEnv    []v1.EnvVar    `json:"sidecarEnv,omitempty"`
 	CassandraAuth *CassandraAuth `json:"cassandraAuth,omitempty"`
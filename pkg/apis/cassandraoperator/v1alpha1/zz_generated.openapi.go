@@ -482,6 +482,13 @@ func schema_pkg_apis_cassandraoperator_v1alpha1_CassandraDataCenterSpec(ref comm
 							Format: "",
 						},
 					},
+					"healthProbe": {
+						SchemaProps: spec.SchemaProps{
+							Description: "Readiness is probed by HTTP on the health port, images older than this operator have no such port.",
+							Type:        []string{"boolean"},
+							Format:      "",
+						},
+					},
 					"operatorLabels": {
 						SchemaProps: spec.SchemaProps{
 							Ref: ref("github.com/instaclustr/cassandra-operator/pkg/apis/cassandraoperator/v1alpha1.OperatorLabels"),
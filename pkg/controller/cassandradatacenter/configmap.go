@@ -39,6 +39,8 @@ func createOrUpdateOperatorConfigMap(rctx *reconciliationRequestContext, seedNod
 
 		addCassandraJVMOptions(rctx.cdc, addFileFn)
 
+		addHealthProbeJVMOptions(rctx.cdc, addFileFn)
+
 		addPrometheusSupport(rctx.cdc, addFileFn)
 
 		if err := controllerutil.SetControllerReference(rctx.cdc, configMap, rctx.scheme); err != nil {
@@ -271,6 +273,15 @@ func addCassandraJVMOptions(cdc *cassandraoperatorv1alpha1.CassandraDataCenter,
 	addFileFn("jvm.options.d/001-jvm-memory-gc.options", writer.String())
 }
 
+// the health server of the image is off unless its port is given, readiness is probed on it only when asked for
+func addHealthProbeJVMOptions(cdc *cassandraoperatorv1alpha1.CassandraDataCenter, addFileFn func(path string, data string)) {
+	if !cdc.Spec.HealthProbe {
+		return
+	}
+
+	addFileFn("jvm.options.d/002-health.options", fmt.Sprintf("-Dcassandra.k8s.health.port=%d\n", healthPort.port))
+}
+
 func youngGen(jvmHeapSize int64) int64 {
 
 	coreCount := int64(4) // TODO
@@ -10,6 +10,7 @@ var internodeTlsPort = port{"internode-tls", 7001}
 var prometheusPort = port{"prometheus", 9500}
 var cqlPort = port{"cql", 9042}
 var jmxPort = port{"jmx", 7199}
+var healthPort = port{"health", 8090}
 var promqlPort = port{"promql", 9500}
 var sidecarPort = port{"http", sidecar.DefaultSidecarClientOptions.Port}
 
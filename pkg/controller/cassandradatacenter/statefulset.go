@@ -19,6 +19,7 @@ import (
 	k8sErrors "k8s.io/apimachinery/pkg/api/errors"
 	metav1 "k8s.io/apimachinery/pkg/apis/meta/v1"
 	"k8s.io/apimachinery/pkg/types"
+	"k8s.io/apimachinery/pkg/util/intstr"
 	"sigs.k8s.io/controller-runtime/pkg/client"
 	"sigs.k8s.io/controller-runtime/pkg/controller/controllerutil"
 )
@@ -205,6 +206,17 @@ func newCassandraContainer(
 		},
 	}
 
+	// only images which serve readiness themselves have the health port, older ones are probed by cqlsh
+	if cdc.Spec.HealthProbe {
+		container.Ports = append(container.Ports, healthPort.asContainerPort())
+		container.ReadinessProbe.Handler = corev1.Handler{
+			HTTPGet: &corev1.HTTPGetAction{
+				Path: "/ready",
+				Port: intstr.FromString(healthPort.name),
+			},
+		}
+	}
+
 	var volumeMounts = []corev1.VolumeMount{
 		{Name: configVolume.Name, MountPath: OperatorConfigVolumeMountPath},
 		{Name: rackConfigVolume.Name, MountPath: RackConfigVolumeMountPath},